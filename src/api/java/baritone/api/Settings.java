@@ -532,6 +532,75 @@ public final class Settings {
      */
     public final Setting<Float> pathingMapLoadFactor = new Setting<>(0.75f);
 
+    /**
+     * Store A* nodes as indices into reusable primitive arrays instead of allocating a PathNode object per visited block
+     * <p>
+     * Creates far less garbage on long searches. The bytes allocated are logged after every search, with {@link #chatDebug}
+     * on, so this can be compared against the default.
+     */
+    public final Setting<Boolean> pathingNodeArena = new Setting<>(false);
+
+    /**
+     * How many cleared search arenas (node map, open set) to keep around for the next path segment to reuse
+     * <p>
+     * Each one keeps the capacity of the largest search that used it, set to 0 to always start from pathingMapDefaultSize.
+     * How often one was reused, and the most nodes one has held, are logged with chatDebug after every search.
+     */
+    public final Setting<Integer> pathingArenaPoolSize = new Setting<>(1);
+
+    /**
+     * How many threads to split a single path calculation across
+     * <p>
+     * More threads expand more nodes before the timeout on long paths, but the path found may differ slightly from the
+     * single threaded one. Nodes per second for each thread are logged after every search, with {@link #chatDebug} on.
+     * Ignored when slowPath is on.
+     */
+    public final Setting<Integer> pathingThreads = new Setting<>(1);
+
+    /**
+     * Search from the goal back towards the start at the same time as from the start, for goals that are a single block
+     * <p>
+     * Helps most when the goal is walled in, since the forward search alone would explore everything around the start
+     * before finding the way in. Node counts for each direction are logged after every search, with {@link #chatDebug} on.
+     */
+    public final Setting<Boolean> pathingBidirectional = new Setting<>(false);
+
+    /**
+     * Which priority queue A* takes the next node from: {@code binary}, {@code quaternary} or {@code bucket}
+     * <p>
+     * {@code quaternary} is a 4-ary heap that keeps node costs in a primitive array next to the nodes, {@code bucket}
+     * groups nodes into buckets of nearby cost. Only used when pathingNodeArena is off. Anything else is warned about
+     * and treated as {@code binary}.
+     */
+    public final Setting<String> pathingOpenSet = new Setting<>("binary");
+
+    /**
+     * Remember every block state a search looks at until it's over, instead of going back to the chunk for each one
+     * <p>
+     * Neighboring nodes read mostly the same blocks, so most reads are answered from the cache. The hit rate is logged
+     * after every search, with {@link #chatDebug} on.
+     */
+    public final Setting<Boolean> pathingBlockCache = new Setting<>(false);
+
+    /**
+     * Keep the search graph around between paths to the same goal, and only repair the parts next to blocks that
+     * changed since, instead of searching everything again (D* Lite)
+     * <p>
+     * Only used for goals that are a single loaded position, like {@code goto x y z}. Parkour isn't considered. The
+     * number of nodes that had to be expanded again, next to how many the first search needed, is logged after every
+     * search, with {@link #chatDebug} on.
+     */
+    public final Setting<Boolean> pathingIncremental = new Setting<>(false);
+
+    /**
+     * Walk straight across open, flat floor in one go instead of putting every block of it in the open set, like jump
+     * point search. Paths along the floor cost the same, but far fewer nodes are expanded on open terrain.
+     * <p>
+     * Only used by the default single threaded search, and not while favoring. Breaking or placing blocks is only
+     * considered at the ends of each straight run, not in the middle of one.
+     */
+    public final Setting<Boolean> pathingJumpPoints = new Setting<>(false);
+
     /**
      * How far are you allowed to fall onto solid ground (without a water bucket)?
      * 3 won't deal any damage. But if you just want to get down the mountain quickly and you have
@@ -564,7 +633,43 @@ public final class Settings {
     public final Setting<Boolean> simplifyUnloadedYCoord = new Setting<>(true);
 
     /**
-     * Whenever a block changes, repack the whole chunk that it's in
+     * When the goal is outside of loaded chunks, plan a rough route there a chunk at a time through the cache first,
+     * and only path to the furthest loaded point along it
+     * <p>
+     * Keeps long paths through cached terrain from wandering towards the goal in a straight line and getting stuck.
+     */
+    public final Setting<Boolean> pathingHierarchical = new Setting<>(false);
+
+    /**
+     * For goals that are a single column, also estimate the cost to the goal from distances to a few landmarks
+     * across the cache. Chunks with nowhere to stand, like open ocean, can't be crossed at walking speed, which the
+     * goal's own heuristic doesn't know about.
+     * <p>
+     * The landmarks are built in the background the first time they're needed and rebuilt every few minutes, so the
+     * first search won't use them.
+     */
+    public final Setting<Boolean> pathingLandmarks = new Setting<>(false);
+
+    /**
+     * Start walking along the beginning of the path before the search is finished, once every best path so far has
+     * started out the same way for {@link #pathingPrefixStableNodes} nodes. The rest of the path is joined on where
+     * it splits off once the search is done, or calculated again from the end of the beginning if it split off behind.
+     * <p>
+     * Only used when nothing is being executed yet, and only works with the plain single threaded search. Nothing is
+     * handed off early while {@link #pathingIncremental}, {@link #pathingThreads}, {@link #pathingBidirectional} or
+     * {@link #pathingNodeArena} picks a different search instead.
+     */
+    public final Setting<Boolean> pathingPrefixHandoff = new Setting<>(false);
+
+    /**
+     * How many nodes the beginning of the path has to stay the same for before {@link #pathingPrefixHandoff} starts
+     * executing it
+     */
+    public final Setting<Integer> pathingPrefixStableNodes = new Setting<>(5000);
+
+    /**
+     * Whenever a block that's kept track of changes, update the cached chunk that it's in. Only the changed blocks are
+     * packed again, unless the chunk isn't cached yet.
      */
     public final Setting<Boolean> repackOnAnyBlockChange = new Setting<>(true);
 
@@ -629,7 +734,8 @@ public final class Settings {
     public final Setting<Boolean> chunkCaching = new Setting<>(true);
 
     /**
-     * On save, delete from RAM any cached regions that are more than 1024 blocks away from the player
+     * Keep the cached regions in RAM within {@link #cachedRegionsMemoryBudgetMB}, by compressing the ones that haven't
+     * been used in a while, and then saving them and deleting them from RAM
      * <p>
      * Temporarily disabled
      * <p>
@@ -640,12 +746,24 @@ public final class Settings {
     public final Setting<Boolean> pruneRegionsFromRAM = new Setting<>(true);
 
     /**
-     * The chunk packer queue can never grow to larger than this, if it does, the oldest chunks are discarded
+     * Roughly how many megabytes of RAM the cached regions can take up before the ones that haven't been used in a while
+     * are compressed, and then deleted from RAM. The regions that you, your path and your goal are in are always kept.
+     */
+    public final Setting<Integer> cachedRegionsMemoryBudgetMB = new Setting<>(256);
+
+    /**
+     * The chunk packer queue can never grow to larger than this, if it does, the chunks farthest from you and your path
+     * are discarded
      * <p>
-     * The newest chunks are kept, so that if you're moving in a straight line quickly then stop, your immediate render distance is still included
+     * Chunks are packed nearest first, so that if you're moving in a straight line quickly then stop, your immediate render distance is still included
      */
     public final Setting<Integer> chunkPackerQueueMaxSize = new Setting<>(2000);
 
+    /**
+     * How many threads pack chunks into the cache. Only read when a world is loaded.
+     */
+    public final Setting<Integer> chunkPackerThreads = new Setting<>(2);
+
     /**
      * Fill in blocks behind you
      */
@@ -33,13 +33,28 @@ public class GoalComposite implements Goal {
      */
     private final Goal[] goals;
 
+    /**
+     * The simple members bucketed by position, or {@code null} if there aren't many of them
+     */
+    private final SpatialGoalIndex index;
+
+    /**
+     * The members that have to be checked one by one
+     */
+    private final Goal[] others;
+
     public GoalComposite(Goal... goals) {
         this.goals = goals;
+        this.index = SpatialGoalIndex.build(goals);
+        this.others = index == null ? goals : index.others();
     }
 
     @Override
     public boolean isInGoal(int x, int y, int z) {
-        for (Goal goal : goals) {
+        if (index != null && index.isInGoal(x, y, z)) {
+            return true;
+        }
+        for (Goal goal : others) {
             if (goal.isInGoal(x, y, z)) {
                 return true;
             }
@@ -50,10 +65,13 @@ public class GoalComposite implements Goal {
     @Override
     public double heuristic(int x, int y, int z) {
         double min = Double.MAX_VALUE;
-        for (Goal g : goals) {
+        for (Goal g : others) {
             // TODO technically this isn't admissible...?
             min = Math.min(min, g.heuristic(x, y, z)); // whichever is closest
         }
+        if (index != null) {
+            min = index.heuristic(x, y, z, min);
+        }
         return min;
     }
 
@@ -0,0 +1,295 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.api.pathing.goals;
+
+import baritone.api.BaritoneAPI;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The members of a {@link GoalComposite} whose shape is known exactly ({@link GoalBlock}, {@link GoalGetToBlock},
+ * {@link GoalTwoBlocks} and {@link GoalXZ}, but not subclasses of them), bucketed by position.
+ * <p>
+ * {@link #isInGoal} is a handful of hash lookups. {@link #heuristic} visits cells in rings around the position and stops
+ * once a ring can't beat the best member found so far, since every one of these heuristics is at least
+ * {@code costHeuristic} per block of horizontal distance.
+ */
+final class SpatialGoalIndex {
+
+    /**
+     * Below this many members, a linear scan is just as fast
+     */
+    static final int MIN_MEMBERS = 32;
+
+    private static final byte BLOCK = 0;
+    private static final byte GET_TO_BLOCK = 1;
+    private static final byte TWO_BLOCKS = 2;
+    private static final byte XZ = 3;
+
+    /**
+     * Offsets from a position to the {@link GoalGetToBlock} targets it would be in the goal of
+     */
+    private static final int[][] GET_TO_BLOCK_OFFSETS = {
+            {0, 0, 0}, {0, 0, -1}, {0, 0, 1}, {-1, 0, 0}, {1, 0, 0}, {0, 1, -1}, {0, 1, 1}, {-1, 1, 0}, {1, 1, 0}, {0, -1, 0}, {0, 1, 0}, {0, 2, 0}
+    };
+
+    private final LongOpenHashSet blocks = new LongOpenHashSet();
+    private final LongOpenHashSet getToBlocks = new LongOpenHashSet();
+    private final LongOpenHashSet twoBlocks = new LongOpenHashSet();
+    private final LongOpenHashSet columns = new LongOpenHashSet();
+
+    /**
+     * Members sorted by cell, cell i covers {@code cellStart[i]} until {@code cellStart[i + 1]}
+     */
+    private final byte[] kind;
+    private final int[] x;
+    private final int[] y;
+    private final int[] z;
+    private final int[] cellStart;
+    private final Long2IntOpenHashMap cells = new Long2IntOpenHashMap();
+
+    /**
+     * log2 of the width of a cell, picked so that the bounding box doesn't have many more cells than there are members
+     */
+    private final int cellShift;
+    private final int minCellX;
+    private final int maxCellX;
+    private final int minCellZ;
+    private final int maxCellZ;
+
+    /**
+     * The members that aren't indexed
+     */
+    private final Goal[] others;
+
+    private SpatialGoalIndex(List<Goal> indexed, Goal[] others) {
+        this.others = others;
+        int n = indexed.size();
+        int minX = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+        byte[] kinds = new byte[n];
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        int[] zs = new int[n];
+        for (int i = 0; i < n; i++) {
+            Goal goal = indexed.get(i);
+            if (goal instanceof GoalXZ) {
+                kinds[i] = XZ;
+                xs[i] = ((GoalXZ) goal).getX();
+                zs[i] = ((GoalXZ) goal).getZ();
+                columns.add(pack(xs[i], 0, zs[i]));
+            } else if (goal instanceof GoalBlock) {
+                kinds[i] = BLOCK;
+                xs[i] = ((GoalBlock) goal).x;
+                ys[i] = ((GoalBlock) goal).y;
+                zs[i] = ((GoalBlock) goal).z;
+                blocks.add(pack(xs[i], ys[i], zs[i]));
+            } else if (goal instanceof GoalGetToBlock) {
+                kinds[i] = GET_TO_BLOCK;
+                xs[i] = ((GoalGetToBlock) goal).x;
+                ys[i] = ((GoalGetToBlock) goal).y;
+                zs[i] = ((GoalGetToBlock) goal).z;
+                getToBlocks.add(pack(xs[i], ys[i], zs[i]));
+            } else {
+                kinds[i] = TWO_BLOCKS;
+                xs[i] = ((GoalTwoBlocks) goal).x;
+                ys[i] = ((GoalTwoBlocks) goal).y;
+                zs[i] = ((GoalTwoBlocks) goal).z;
+                twoBlocks.add(pack(xs[i], ys[i], zs[i]));
+            }
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minZ = Math.min(minZ, zs[i]);
+            maxZ = Math.max(maxZ, zs[i]);
+        }
+        int shift = 4;
+        while (shift < 24 && (double) (((long) maxX >> shift) - (minX >> shift) + 1) * (((long) maxZ >> shift) - (minZ >> shift) + 1) > 4.0 * n) {
+            shift++;
+        }
+        this.cellShift = shift;
+        this.minCellX = minX >> shift;
+        this.maxCellX = maxX >> shift;
+        this.minCellZ = minZ >> shift;
+        this.maxCellZ = maxZ >> shift;
+
+        Long2ObjectOpenHashMap<IntArrayList> byCell = new Long2ObjectOpenHashMap<>();
+        for (int i = 0; i < n; i++) {
+            byCell.computeIfAbsent(cellKey(xs[i] >> shift, zs[i] >> shift), k -> new IntArrayList()).add(i);
+        }
+        this.kind = new byte[n];
+        this.x = new int[n];
+        this.y = new int[n];
+        this.z = new int[n];
+        this.cellStart = new int[byCell.size() + 1];
+        this.cells.defaultReturnValue(-1);
+        int cell = 0;
+        int next = 0;
+        for (Long2ObjectOpenHashMap.Entry<IntArrayList> entry : byCell.long2ObjectEntrySet()) {
+            cells.put(entry.getLongKey(), cell);
+            cellStart[cell++] = next;
+            for (int i : entry.getValue()) {
+                kind[next] = kinds[i];
+                x[next] = xs[i];
+                y[next] = ys[i];
+                z[next] = zs[i];
+                next++;
+            }
+        }
+        cellStart[cell] = next;
+    }
+
+    /**
+     * @return An index of the members that can be indexed, or {@code null} if there aren't enough of them to bother
+     */
+    static SpatialGoalIndex build(Goal[] goals) {
+        List<Goal> indexed = new ArrayList<>();
+        List<Goal> others = new ArrayList<>();
+        for (Goal goal : goals) {
+            Class<?> type = goal.getClass();
+            if (type == GoalBlock.class || type == GoalGetToBlock.class || type == GoalTwoBlocks.class || type == GoalXZ.class) {
+                indexed.add(goal);
+            } else {
+                others.add(goal);
+            }
+        }
+        if (indexed.size() < MIN_MEMBERS) {
+            return null;
+        }
+        return new SpatialGoalIndex(indexed, others.toArray(new Goal[0]));
+    }
+
+    Goal[] others() {
+        return others;
+    }
+
+    boolean isInGoal(int x, int y, int z) {
+        if (!blocks.isEmpty() && blocks.contains(pack(x, y, z))) {
+            return true;
+        }
+        if (!twoBlocks.isEmpty() && (twoBlocks.contains(pack(x, y, z)) || twoBlocks.contains(pack(x, y + 1, z)))) {
+            return true;
+        }
+        if (!columns.isEmpty() && columns.contains(pack(x, 0, z))) {
+            return true;
+        }
+        if (!getToBlocks.isEmpty()) {
+            for (int[] offset : GET_TO_BLOCK_OFFSETS) {
+                if (getToBlocks.contains(pack(x + offset[0], y + offset[1], z + offset[2]))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param min The lowest heuristic already found among the other members
+     * @return The lower of {@code min} and the lowest heuristic of any indexed member
+     */
+    double heuristic(int x, int y, int z, double min) {
+        double perBlock = BaritoneAPI.getSettings().costHeuristic.value;
+        if (!(perBlock > 0)) {
+            // no lower bound to prune with
+            for (int i = 0; i < this.x.length; i++) {
+                min = Math.min(min, heuristic(i, x, y, z));
+            }
+            return min;
+        }
+        int cellX = x >> cellShift;
+        int cellZ = z >> cellShift;
+        // the first ring that touches the bounding box, and the last one that does
+        int first = Math.max(Math.max(minCellX - cellX, cellX - maxCellX), Math.max(minCellZ - cellZ, cellZ - maxCellZ));
+        int last = Math.max(Math.max(cellX - minCellX, maxCellX - cellX), Math.max(cellZ - minCellZ, maxCellZ - cellZ));
+        for (int r = Math.max(first, 0); r <= last; r++) {
+            // every block in ring r is at least this far away horizontally
+            if (r > 0 && (((long) (r - 1) << cellShift) + 1) * perBlock >= min) {
+                break;
+            }
+            if (r == 0) {
+                min = visit(cellX, cellZ, x, y, z, min);
+                continue;
+            }
+            int fromX = Math.max(cellX - r, minCellX);
+            int toX = Math.min(cellX + r, maxCellX);
+            int fromZ = Math.max(cellZ - r + 1, minCellZ);
+            int toZ = Math.min(cellZ + r - 1, maxCellZ);
+            for (int cx = fromX; cx <= toX; cx++) {
+                if (cellZ - r >= minCellZ) {
+                    min = visit(cx, cellZ - r, x, y, z, min);
+                }
+                if (cellZ + r <= maxCellZ) {
+                    min = visit(cx, cellZ + r, x, y, z, min);
+                }
+            }
+            for (int cz = fromZ; cz <= toZ; cz++) {
+                if (cellX - r >= minCellX) {
+                    min = visit(cellX - r, cz, x, y, z, min);
+                }
+                if (cellX + r <= maxCellX) {
+                    min = visit(cellX + r, cz, x, y, z, min);
+                }
+            }
+        }
+        return min;
+    }
+
+    private double visit(int cellX, int cellZ, int x, int y, int z, double min) {
+        int cell = cells.get(cellKey(cellX, cellZ));
+        if (cell < 0) {
+            return min;
+        }
+        for (int i = cellStart[cell], end = cellStart[cell + 1]; i < end; i++) {
+            min = Math.min(min, heuristic(i, x, y, z));
+        }
+        return min;
+    }
+
+    /**
+     * The same as calling heuristic on the member, without the virtual call
+     */
+    private double heuristic(int i, int x, int y, int z) {
+        int xDiff = x - this.x[i];
+        int zDiff = z - this.z[i];
+        if (kind[i] == XZ) {
+            return GoalXZ.calculate(xDiff, zDiff);
+        }
+        int yDiff = y - this.y[i];
+        if (kind[i] != BLOCK && yDiff < 0) {
+            yDiff++;
+        }
+        return GoalBlock.calculate(xDiff, yDiff, zDiff);
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return (long) cellX << 32 | (cellZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Unlike {@link baritone.api.utils.BetterBlockPos#longHash}, never collides for positions inside the world
+     */
+    private static long pack(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFF) << 38 | ((long) z & 0x3FFFFFF) << 12 | (y & 0xFFF);
+    }
+}
@@ -35,8 +35,10 @@ import baritone.utils.BlockStateInterface;
 import baritone.utils.GuiClick;
 import baritone.utils.InputOverrideHandler;
 import baritone.utils.PathingControlManager;
+import baritone.utils.ToolSet;
 import baritone.utils.player.BaritonePlayerContext;
 import net.minecraft.client.Minecraft;
+import net.minecraft.client.player.LocalPlayer;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -90,6 +92,8 @@ public class Baritone implements IBaritone {
 
     public BlockStateInterface bsi;
 
+    private ToolSet toolSet;
+
     Baritone(Minecraft mc) {
         this.mc = mc;
         this.gameEventHandler = new GameEventHandler(this);
@@ -186,6 +190,17 @@ public class Baritone implements IBaritone {
         return this.inventoryBehavior;
     }
 
+    /**
+     * @return A toolset for the current player, that keeps its cached break times until the hotbar or effects change
+     */
+    public synchronized ToolSet getToolSet() {
+        LocalPlayer player = this.playerContext.player();
+        if (this.toolSet == null || !this.toolSet.isCurrent(player)) {
+            this.toolSet = new ToolSet(player);
+        }
+        return this.toolSet;
+    }
+
     @Override
     public LookBehavior getLookBehavior() {
         return this.lookBehavior;
@@ -20,18 +20,30 @@ package baritone.behavior;
 import baritone.Baritone;
 import baritone.api.behavior.IPathingBehavior;
 import baritone.api.event.events.*;
+import baritone.api.event.events.type.EventState;
 import baritone.api.pathing.calc.IPath;
 import baritone.api.pathing.goals.Goal;
+import baritone.api.pathing.goals.GoalBlock;
 import baritone.api.pathing.goals.GoalXZ;
 import baritone.api.process.PathingCommand;
 import baritone.api.utils.BetterBlockPos;
 import baritone.api.utils.Helper;
+import baritone.api.utils.Pair;
 import baritone.api.utils.PathCalculationResult;
 import baritone.api.utils.interfaces.IGoalRenderPos;
+import baritone.cache.ChunkGraph;
+import baritone.cache.LandmarkHeuristic;
 import baritone.pathing.calc.AStarPathFinder;
+import baritone.pathing.calc.ArenaAStarPathFinder;
+import baritone.pathing.calc.BidirectionalAStarPathFinder;
+import baritone.pathing.calc.DStarLite;
+import baritone.pathing.calc.DStarLitePathFinder;
+import baritone.pathing.calc.ParallelAStarPathFinder;
+import baritone.pathing.calc.SearchArenaPool;
 import baritone.pathing.calc.AbstractNodeCostSearch;
 import baritone.pathing.movement.CalculationContext;
 import baritone.pathing.movement.MovementHelper;
+import baritone.pathing.path.CutoffPath;
 import baritone.pathing.path.PathExecutor;
 import baritone.process.ElytraProcess;
 import baritone.utils.PathRenderer;
@@ -39,10 +51,12 @@ import baritone.utils.PathingCommandContext;
 import baritone.utils.pathing.Favoring;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.LinkedBlockingQueue;
 import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.block.state.BlockState;
 
 public final class PathingBehavior extends Behavior implements IPathingBehavior, Helper {
 
@@ -74,6 +88,18 @@ public final class PathingBehavior extends Behavior implements IPathingBehavior,
 
     private final LinkedBlockingQueue<PathEvent> toDispatch = new LinkedBlockingQueue<>();
 
+    private final SearchArenaPool searchArenaPool = new SearchArenaPool();
+
+    /**
+     * The graph of the last incremental search, which is told about block changes until it's replaced
+     */
+    private volatile DStarLite incrementalGraph;
+
+    /**
+     * The beginning of the path that's being executed while the search for the rest of it goes on, if any
+     */
+    private IPath handedOffPrefix;
+
     public PathingBehavior(Baritone baritone) {
         super(baritone);
     }
@@ -139,6 +165,7 @@ public final class PathingBehavior extends Behavior implements IPathingBehavior,
                     BetterBlockPos calcFrom = inProgress.getStart();
                     Optional<IPath> currentBest = inProgress.bestPathSoFar();
                     if ((current == null || !current.getPath().getDest().equals(calcFrom)) // if current ends in inProgress's start, then we're ok
+                            && (current == null || current.getPath() != handedOffPrefix) // if current is the start of what's being calculated, we're ok too
                             && !calcFrom.equals(ctx.playerFeet()) && !calcFrom.equals(expectedSegmentStart) // if current starts in our playerFeet or pathStart, then we're ok
                             && (!currentBest.isPresent() || (!currentBest.get().positions().contains(ctx.playerFeet()) && !currentBest.get().positions().contains(expectedSegmentStart))) // if
                     ) {
@@ -493,7 +520,26 @@ public final class PathingBehavior extends Behavior implements IPathingBehavior,
             primaryTimeout = Baritone.settings().planAheadPrimaryTimeoutMS.value;
             failureTimeout = Baritone.settings().planAheadFailureTimeoutMS.value;
         }
-        AbstractNodeCostSearch pathfinder = createPathfinder(start, goal, current == null ? null : current.getPath(), context);
+        BlockPos routeTarget = routeTarget(goal, context);
+        AbstractNodeCostSearch pathfinder = createPathfinder(start, goal, current == null ? null : current.getPath(), context, routeTarget == null);
+        if (Baritone.settings().pathingLandmarks.value) {
+            useLandmarks(pathfinder, start, context);
+        }
+        if (Baritone.settings().pathingPrefixHandoff.value && current == null) {
+            if (!(pathfinder instanceof AStarPathFinder)) {
+                logDebug("pathingPrefixHandoff only works with the plain single threaded search, not " + pathfinder.getClass().getSimpleName() + ", so this path won't be handed off early");
+            }
+            pathfinder.onStablePrefix(Baritone.settings().pathingPrefixStableNodes.value, prefix -> {
+                synchronized (pathPlanLock) {
+                    if (current == null && prefix.positions().contains(expectedSegmentStart)) {
+                        queuePathEvent(PathEvent.CALC_FINISHED_NOW_EXECUTING);
+                        current = new PathExecutor(PathingBehavior.this, prefix);
+                        handedOffPrefix = prefix;
+                        resetEstimatedTicksToGoal(start);
+                    }
+                }
+            });
+        }
         if (!Objects.equals(pathfinder.getGoal(), goal)) { // will return the exact same object if simplification didn't happen
             logDebug("Simplifying " + goal.getClass() + " to GoalXZ due to distance");
         }
@@ -502,11 +548,31 @@ public final class PathingBehavior extends Behavior implements IPathingBehavior,
             if (talkAboutIt) {
                 logDebug("Starting to search for path from " + start + " to " + goal);
             }
+            if (routeTarget != null) {
+                // planned here and not on the main thread, since it can take a while and read cached chunks from disk
+                Goal firstLeg = firstLegOfRoute(start, routeTarget, context);
+                if (firstLeg != null) {
+                    pathfinder.setGoal(firstLeg);
+                    if (Baritone.settings().pathingLandmarks.value) {
+                        useLandmarks(pathfinder, start, context);
+                    }
+                }
+            }
 
             PathCalculationResult calcResult = pathfinder.calculate(primaryTimeout, failureTimeout);
             synchronized (pathPlanLock) {
                 Optional<PathExecutor> executor = calcResult.getPath().map(p -> new PathExecutor(PathingBehavior.this, p));
-                if (current == null) {
+                if (handedOffPrefix != null) {
+                    IPath prefix = handedOffPrefix;
+                    handedOffPrefix = null;
+                    if (current != null && current.getPath() == prefix) {
+                        calcResult.getPath().ifPresent(this::continueAfterPrefix);
+                    } else if (current == null && executor.isPresent() && executor.get().getPath().positions().contains(expectedSegmentStart)) {
+                        // already done with the prefix, pick the rest up from where we are
+                        queuePathEvent(PathEvent.CALC_FINISHED_NOW_EXECUTING);
+                        current = executor.get();
+                    }
+                } else if (current == null) {
                     if (executor.isPresent()) {
                         if (executor.get().getPath().positions().contains(expectedSegmentStart)) {
                             queuePathEvent(PathEvent.CALC_FINISHED_NOW_EXECUTING);
@@ -553,7 +619,33 @@ public final class PathingBehavior extends Behavior implements IPathingBehavior,
         });
     }
 
-    private AbstractNodeCostSearch createPathfinder(BlockPos start, Goal goal, IPath previous, CalculationContext context) {
+    /**
+     * Once the search that the prefix being executed came from is done, switches over to its full path from where
+     * the two split up. If they split up behind us, the full path is used from the end of the prefix instead, or if it
+     * doesn't go there, the next segment is calculated from there like usual.
+     */
+    private void continueAfterPrefix(IPath path) {
+        PathExecutor refined = current.tryRefine(path);
+        if (refined != null) {
+            logDebug("Continuing onto the rest of the path, " + (refined.getPath().length() - current.getPath().length()) + " more movements");
+            current = refined;
+            return;
+        }
+        int index = path.positions().indexOf(current.getPath().getDest());
+        if (index != -1 && index < path.length() - 1) {
+            logDebug("The rest of the path split off already, continuing it from the end of the prefix");
+            queuePathEvent(PathEvent.NEXT_SEGMENT_CALC_FINISHED);
+            next = new PathExecutor(this, new CutoffPath(path, index, path.length() - 1));
+        } else {
+            logDebug("The rest of the path doesn't go through the end of the prefix, planning again from there");
+        }
+    }
+
+    /**
+     * @param fixedGoal Whether the goal stays the same, rather than possibly being swapped for the first leg of a route
+     *                  with {@link AbstractNodeCostSearch#setGoal} once the search is about to start
+     */
+    private AbstractNodeCostSearch createPathfinder(BlockPos start, Goal goal, IPath previous, CalculationContext context, boolean fixedGoal) {
         Goal transformed = goal;
         if (Baritone.settings().simplifyUnloadedYCoord.value && goal instanceof IGoalRenderPos) {
             BlockPos pos = ((IGoalRenderPos) goal).getGoalPos();
@@ -568,8 +660,124 @@ public final class PathingBehavior extends Behavior implements IPathingBehavior,
         if (feet.getY() == realStart.getY() && Math.abs(sub.getX()) <= 1 && Math.abs(sub.getZ()) <= 1) {
             realStart = feet;
         }
-        return new AStarPathFinder(realStart, start.getX(), start.getY(), start.getZ(), transformed, favoring, context);
+        CalculationContext searchContext = context.forSearch();
+        if (fixedGoal && Baritone.settings().pathingIncremental.value && searchContext.getClass() == CalculationContext.class && DStarLite.supports(transformed)) {
+            BlockPos pos = ((IGoalRenderPos) transformed).getGoalPos();
+            if (searchContext.bsi.worldContainsLoadedChunk(pos.getX(), pos.getZ())) {
+                DStarLite graph = incrementalGraph;
+                if (graph == null || !graph.isFor(transformed, searchContext)) {
+                    graph = new DStarLite(transformed, searchContext);
+                    incrementalGraph = graph;
+                }
+                return new DStarLitePathFinder(realStart, start.getX(), start.getY(), start.getZ(), transformed, searchContext, graph);
+            }
+        }
+        int threads = Baritone.settings().pathingThreads.value;
+        if (threads > 1 && !Baritone.settings().slowPath.value && searchContext.safeForThreadedUse && searchContext.getClass() == CalculationContext.class) {
+            // subclasses override costs in ways a plain copy wouldn't carry over to the other workers, so they stay single threaded
+            return new ParallelAStarPathFinder(realStart, start.getX(), start.getY(), start.getZ(), transformed, favoring, searchContext, searchArenaPool.borrow(), threads);
+        }
+        if (fixedGoal && Baritone.settings().pathingBidirectional.value && BidirectionalAStarPathFinder.supports(transformed)) {
+            return new BidirectionalAStarPathFinder(realStart, start.getX(), start.getY(), start.getZ(), transformed, favoring, searchContext, searchArenaPool.borrow());
+        }
+        if (Baritone.settings().pathingNodeArena.value) {
+            return new ArenaAStarPathFinder(realStart, start.getX(), start.getY(), start.getZ(), transformed, favoring, searchContext, searchArenaPool.borrow());
+        }
+        return new AStarPathFinder(realStart, start.getX(), start.getY(), start.getZ(), transformed, favoring, searchContext, searchArenaPool.borrow());
+
+    }
+
+    /**
+     * @return Where to plan a coarse route to with the {@link ChunkGraph}, or {@code null} if the goal doesn't need one
+     */
+    private BlockPos routeTarget(Goal goal, CalculationContext context) {
+        if (!Baritone.settings().pathingHierarchical.value || context.worldData == null) {
+            return null;
+        }
+        BlockPos target;
+        if (goal instanceof IGoalRenderPos) {
+            target = ((IGoalRenderPos) goal).getGoalPos();
+        } else if (goal instanceof GoalXZ) {
+            target = new BlockPos(((GoalXZ) goal).getX(), 0, ((GoalXZ) goal).getZ());
+        } else {
+            return null;
+        }
+        if (context.bsi.worldContainsLoadedChunk(target.getX(), target.getZ())) {
+            return null; // the block level search can see all the way there
+        }
+        return target;
+    }
+
+    /**
+     * For goals outside of loaded chunks, plans a coarse route with the {@link ChunkGraph} and picks the furthest point
+     * along it that is still loaded, so that the block level search heads the way the route goes instead of straight
+     * at the goal. Can take a while, so this is run on the pathing thread.
+     *
+     * @return The goal for this segment, or {@code null} to just use the real goal
+     */
+    private Goal firstLegOfRoute(BlockPos start, BlockPos target, CalculationContext context) {
+        Optional<List<BetterBlockPos>> route = context.worldData.cache.getChunkGraph().route(new BetterBlockPos(start), target.getX(), target.getZ());
+        if (!route.isPresent()) {
+            return null;
+        }
+        BetterBlockPos waypoint = null;
+        for (BetterBlockPos pos : route.get()) {
+            if (!context.bsi.worldContainsLoadedChunk(pos.x, pos.z)) {
+                break;
+            }
+            waypoint = pos;
+        }
+        if (waypoint == null || Math.abs(waypoint.x - start.getX()) + Math.abs(waypoint.z - start.getZ()) < 16) {
+            return null; // too close to be worth a segment of its own
+        }
+        logDebug("Chunk graph route has " + route.get().size() + " waypoints, heading for " + waypoint + " first");
+        return new GoalXZ(waypoint.x, waypoint.z);
+    }
+
+    /**
+     * Gives a search for a single column a heuristic that also knows about the cached chunks with nowhere to stand in
+     * between, if one has been built for this world yet
+     */
+    private void useLandmarks(AbstractNodeCostSearch pathfinder, BlockPos start, CalculationContext context) {
+        if (context.worldData == null || context.getClass() != CalculationContext.class) {
+            return; // subclasses can make anything cheaper
+        }
+        Goal goal = pathfinder.getGoal();
+        int goalX;
+        int goalZ;
+        if (goal instanceof GoalBlock) {
+            BlockPos pos = ((GoalBlock) goal).getGoalPos();
+            goalX = pos.getX();
+            goalZ = pos.getZ();
+        } else if (goal instanceof GoalXZ) {
+            goalX = ((GoalXZ) goal).getX();
+            goalZ = ((GoalXZ) goal).getZ();
+        } else {
+            return;
+        }
+        LandmarkHeuristic landmarks = context.worldData.cache.getLandmarks(start.getX(), start.getZ(), context);
+        if (landmarks == null) {
+            return;
+        }
+        pathfinder.setHeuristic(landmarks.bound(goal, goalX, goalZ));
+    }
+
+    @Override
+    public void onChunkEvent(ChunkEvent event) {
+        DStarLite graph = incrementalGraph;
+        if (graph != null && event.getState() == EventState.POST && (event.getType().isPopulate() || event.getType() == ChunkEvent.Type.UNLOAD)) {
+            graph.chunkChanged(event.getX(), event.getZ());
+        }
+    }
 
+    @Override
+    public void onBlockChange(BlockChangeEvent event) {
+        DStarLite graph = incrementalGraph;
+        if (graph != null) {
+            for (Pair<BlockPos, BlockState> change : event.getBlocks()) {
+                graph.blockChanged(change.first());
+            }
+        }
     }
 
     @Override
@@ -0,0 +1,252 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package baritone.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for how much work the region cache does on disk and packing chunks, across all worlds
+ */
+public final class CacheStats {
+
+    private static final AtomicLong regionsLoaded = new AtomicLong();
+    private static final AtomicLong regionLoadNanos = new AtomicLong();
+    private static final AtomicLong chunksRead = new AtomicLong();
+    private static final AtomicLong chunkReadNanos = new AtomicLong();
+    private static final AtomicLong bytesRead = new AtomicLong();
+    private static final AtomicLong bytesWritten = new AtomicLong();
+    private static final AtomicLong regionsConverted = new AtomicLong();
+    private static final AtomicLong regionLoadsDeferred = new AtomicLong();
+    private static final AtomicLong chunksPacked = new AtomicLong();
+    private static final AtomicLong chunkPackNanos = new AtomicLong();
+    private static final AtomicLong sectionsPackedFromPalette = new AtomicLong();
+    private static final AtomicLong sectionsPackedPerBlock = new AtomicLong();
+    private static final AtomicLong chunksUpdated = new AtomicLong();
+    private static final AtomicLong blocksUpdated = new AtomicLong();
+    private static final AtomicLong chunkUpdateNanos = new AtomicLong();
+    private static final AtomicLong chunksCoalesced = new AtomicLong();
+    private static final AtomicLong chunksDropped = new AtomicLong();
+    private static final AtomicLong packQueueDepth = new AtomicLong();
+    private static final AtomicLong maxPackQueueDepth = new AtomicLong();
+    private static final AtomicLong packLagNanos = new AtomicLong();
+    private static final AtomicLong maxPackLagNanos = new AtomicLong();
+    private static final AtomicLong chunksDecompressed = new AtomicLong();
+    private static final AtomicLong regionsCompressed = new AtomicLong();
+    private static final AtomicLong regionsEvicted = new AtomicLong();
+    private static final AtomicLong regionsReloaded = new AtomicLong();
+    private static final AtomicLong residentBytes = new AtomicLong();
+
+    private CacheStats() {}
+
+    static void regionLoaded(long nanos) {
+        regionsLoaded.incrementAndGet();
+        regionLoadNanos.addAndGet(nanos);
+    }
+
+    static void chunkRead(long nanos) {
+        chunksRead.incrementAndGet();
+        chunkReadNanos.addAndGet(nanos);
+    }
+
+    static void bytesRead(long bytes) {
+        bytesRead.addAndGet(bytes);
+    }
+
+    static void bytesWritten(long bytes) {
+        bytesWritten.addAndGet(bytes);
+    }
+
+    static void regionConverted() {
+        regionsConverted.incrementAndGet();
+    }
+
+    /**
+     * Counts every time something asked for a region that wasn't in RAM, and would have waited for it to be read from
+     * disk before regions were loaded in the background
+     */
+    static void regionLoadDeferred() {
+        regionLoadsDeferred.incrementAndGet();
+    }
+
+    static void chunkPacked(long nanos) {
+        chunksPacked.incrementAndGet();
+        chunkPackNanos.addAndGet(nanos);
+    }
+
+    /**
+     * @param fromPalette Whether the section was packed from its palette, rather than looking at every block
+     */
+    static void sectionPacked(boolean fromPalette) {
+        (fromPalette ? sectionsPackedFromPalette : sectionsPackedPerBlock).incrementAndGet();
+    }
+
+    /**
+     * Counts block changes that were applied to the packed chunk, instead of packing all of it again
+     *
+     * @param blocks How many blocks changed
+     */
+    static void chunkUpdated(int blocks, long nanos) {
+        chunksUpdated.incrementAndGet();
+        blocksUpdated.addAndGet(blocks);
+        chunkUpdateNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Counts a chunk that was queued for packing while it was already queued, which only replaces its contents
+     */
+    static void packCoalesced() {
+        chunksCoalesced.incrementAndGet();
+    }
+
+    /**
+     * Counts a chunk that was dropped from the packer queue for being the farthest when it was too long
+     */
+    static void packDropped() {
+        chunksDropped.incrementAndGet();
+    }
+
+    static void packQueueDepth(int depth) {
+        packQueueDepth.set(depth);
+        maxPackQueueDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    /**
+     * @param nanos How long it took from when a chunk was queued for packing until it was in the cache
+     */
+    static void packLag(long nanos) {
+        packLagNanos.addAndGet(nanos);
+        maxPackLagNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Counts a chunk that was unpacked from a compressed region in RAM, instead of being read from disk
+     */
+    static void chunkDecompressed() {
+        chunksDecompressed.incrementAndGet();
+    }
+
+    static void regionCompressed() {
+        regionsCompressed.incrementAndGet();
+    }
+
+    /**
+     * Counts a region that was dropped from RAM to stay within the memory budget
+     */
+    static void regionEvicted() {
+        regionsEvicted.incrementAndGet();
+    }
+
+    /**
+     * Counts a region that had to be loaded again after it was dropped from RAM to stay within the memory budget
+     */
+    static void regionReloaded() {
+        regionsReloaded.incrementAndGet();
+    }
+
+    /**
+     * @param bytes Roughly how much RAM the cached regions take up
+     */
+    static void residentBytes(long bytes) {
+        residentBytes.set(bytes);
+    }
+
+    public static long getRegionsLoaded() {
+        return regionsLoaded.get();
+    }
+
+    public static long getChunksRead() {
+        return chunksRead.get();
+    }
+
+    public static long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public static long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public static long getRegionsConverted() {
+        return regionsConverted.get();
+    }
+
+    public static long getRegionLoadsDeferred() {
+        return regionLoadsDeferred.get();
+    }
+
+    public static long getChunksPacked() {
+        return chunksPacked.get();
+    }
+
+    public static long getChunksUpdated() {
+        return chunksUpdated.get();
+    }
+
+    public static long getChunksDropped() {
+        return chunksDropped.get();
+    }
+
+    public static long getPackQueueDepth() {
+        return packQueueDepth.get();
+    }
+
+    public static long getRegionsEvicted() {
+        return regionsEvicted.get();
+    }
+
+    public static long getRegionsReloaded() {
+        return regionsReloaded.get();
+    }
+
+    public static long getResidentBytes() {
+        return residentBytes.get();
+    }
+
+    public static String summary() {
+        long regions = regionsLoaded.get();
+        long chunks = chunksRead.get();
+        long packed = chunksPacked.get();
+        long updated = chunksUpdated.get();
+        return "CacheStats{regionsLoaded=" + regions
+                + ",avgRegionLoadMs=" + (regions == 0 ? 0 : regionLoadNanos.get() / regions / 1000000L)
+                + ",chunksRead=" + chunks
+                + ",avgChunkReadUs=" + (chunks == 0 ? 0 : chunkReadNanos.get() / chunks / 1000L)
+                + ",bytesRead=" + bytesRead.get()
+                + ",bytesWritten=" + bytesWritten.get()
+                + ",regionsConverted=" + regionsConverted.get()
+                + ",regionLoadsDeferred=" + regionLoadsDeferred.get()
+                + ",chunksPacked=" + packed
+                + ",avgChunkPackUs=" + (packed == 0 ? 0 : chunkPackNanos.get() / packed / 1000L)
+                + ",avgPackLagMs=" + (packed == 0 ? 0 : packLagNanos.get() / packed / 1000000L)
+                + ",maxPackLagMs=" + maxPackLagNanos.get() / 1000000L
+                + ",packQueueDepth=" + packQueueDepth.get()
+                + ",maxPackQueueDepth=" + maxPackQueueDepth.get()
+                + ",chunksCoalesced=" + chunksCoalesced.get()
+                + ",chunksDropped=" + chunksDropped.get()
+                + ",sectionsPackedFromPalette=" + sectionsPackedFromPalette.get()
+                + ",sectionsPackedPerBlock=" + sectionsPackedPerBlock.get()
+                + ",chunksUpdated=" + updated
+                + ",blocksUpdated=" + blocksUpdated.get()
+                + ",avgChunkUpdateUs=" + (updated == 0 ? 0 : chunkUpdateNanos.get() / updated / 1000L)
+                + ",residentMB=" + residentBytes.get() / 1024 / 1024
+                + ",regionsCompressed=" + regionsCompressed.get()
+                + ",chunksDecompressed=" + chunksDecompressed.get()
+                + ",regionsEvicted=" + regionsEvicted.get()
+                + ",regionsReloaded=" + regionsReloaded.get()
+                + "}";
+    }
+}
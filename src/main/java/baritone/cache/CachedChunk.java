@@ -27,10 +27,17 @@ import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.dimension.DimensionType;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
 import java.util.ArrayList;
-import java.util.BitSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * @author Brady
@@ -110,6 +117,32 @@ public final class CachedChunk {
             Blocks.VINE
     );
 
+    /**
+     * Number of longs needed to store a 16x16x16 section, 2 bits per block
+     */
+    public static final int SECTION_WORDS = 16 * 16 * 16 * 2 / 64;
+
+    /**
+     * Shared storage for sections that are entirely air. Never written to.
+     */
+    static final long[] EMPTY_SECTION = new long[SECTION_WORDS];
+
+    /**
+     * Maps the two raw bits of a block (bit {@code index} in the low position) to its type. The bit at {@code index}
+     * is the high bit of {@link PathingBlockType}, so the order is swapped relative to the enum.
+     */
+    private static final PathingBlockType[] FROM_RAW = {PathingBlockType.AIR, PathingBlockType.AVOID, PathingBlockType.WATER, PathingBlockType.SOLID};
+
+    /**
+     * The inverse of {@link #FROM_RAW}, indexed by ordinal
+     */
+    private static final int[] TO_RAW = {0b00, 0b10, 0b01, 0b11};
+
+    /**
+     * Bits that mark the first bit of every 2 bit pair in a word
+     */
+    private static final long PAIR_MASK = 0x5555555555555555L;
+
     public final int height;
 
     /**
@@ -135,11 +168,13 @@ public final class CachedChunk {
     public final int z;
 
     /**
-     * The actual raw data of this packed chunk.
+     * The actual raw data of this packed chunk, one array of {@link #SECTION_WORDS} longs per 16 tall section.
      * <p>
-     * Each block is expressed as 2 bits giving a total of 16 KiB
+     * Each block is expressed as 2 bits at {@link #getPositionIndex}, laid out exactly like the words of a
+     * {@link java.util.BitSet} so that the serialized form is unchanged. Sections that are all air share
+     * {@link #EMPTY_SECTION}.
      */
-    private final BitSet data;
+    private final long[][] data;
 
     private final Int2ObjectOpenHashMap<String> special;
 
@@ -154,10 +189,10 @@ public final class CachedChunk {
 
     public final long cacheTimestamp;
 
-    CachedChunk(int x, int z, int height, BitSet data, BlockState[] overview, Map<String, List<BlockPos>> specialBlockLocations, long cacheTimestamp) {
+    CachedChunk(int x, int z, int height, long[][] data, BlockState[] overview, Map<String, List<BlockPos>> specialBlockLocations, long cacheTimestamp) {
         this.size = size(height);
         this.sizeInBytes = sizeInBytes(size);
-        validateSize(data);
+        validateSize(data, height);
 
         this.x = x;
         this.z = z;
@@ -173,7 +208,12 @@ public final class CachedChunk {
             this.special = new Int2ObjectOpenHashMap<>();
             setSpecial();
         }
-        calculateHeightMap();
+        calculateHeightMap(data, height, heightMap);
+        for (int i = 0; i < 256; i++) {
+            if (heightMap[i] < 0) {
+                heightMap[i] = 0;
+            }
+        }
     }
 
     public static int size(int dimension_height) {
@@ -229,23 +269,179 @@ public final class CachedChunk {
     }
 
     private PathingBlockType getType(int index) {
-        return PathingBlockType.fromBits(data.get(index), data.get(index + 1));
+        return FROM_RAW[(int) (data[index >>> 13][(index >>> 6) & (SECTION_WORDS - 1)] >>> (index & 63)) & 3];
+    }
+
+    /**
+     * @param x The x position within this chunk
+     * @param z The z position within this chunk
+     * @return The y of the highest block in that column that isn't air, or 0 if there is none
+     */
+    final int getHeight(int x, int z) {
+        return heightMap[z << 4 | x];
+    }
+
+    final PathingBlockType getType(int x, int y, int z) {
+        return getType(getPositionIndex(x, y, z));
     }
 
-    private void calculateHeightMap() {
-        for (int z = 0; z < 16; z++) {
-            for (int x = 0; x < 16; x++) {
-                int index = z << 4 | x;
-                heightMap[index] = 0;
-                for (int y = height; y >= 0; y--) {
-                    int i = getPositionIndex(x, y, z);
-                    if (data.get(i) || data.get(i + 1)) {
-                        heightMap[index] = y;
-                        break;
+    /**
+     * Finds the highest non air block in every column, top down a layer at a time. Every word of a layer covers
+     * 32 columns, so the columns that become solid at that layer fall out of a single mask.
+     *
+     * @param data      The packed sections
+     * @param height    The height of the chunk
+     * @param heightMap Output, indexed by {@code z << 4 | x}. Columns that are entirely air are set to -1
+     */
+    static void calculateHeightMap(long[][] data, int height, int[] heightMap) {
+        Arrays.fill(heightMap, -1);
+        long[] found = new long[8];
+        int remaining = 256;
+        for (int section = (height >> 4) - 1; section >= 0 && remaining > 0; section--) {
+            long[] words = data[section];
+            if (words == EMPTY_SECTION) {
+                continue;
+            }
+            for (int y1 = 15; y1 >= 0 && remaining > 0; y1--) {
+                for (int w = 0; w < 8; w++) {
+                    long word = words[y1 << 3 | w];
+                    long solid = (word | (word >>> 1)) & PAIR_MASK & ~found[w];
+                    if (solid == 0) {
+                        continue;
                     }
+                    found[w] |= solid;
+                    remaining -= Long.bitCount(solid);
+                    int y = section << 4 | y1;
+                    do {
+                        // word w holds z = 2w and z = 2w + 1, each as 16 pairs of x
+                        int bit = 63 - Long.numberOfLeadingZeros(solid);
+                        solid &= ~(1L << bit);
+                        heightMap[(w << 1 | bit >>> 5) << 4 | (bit >>> 1) & 15] = y;
+                    } while (solid != 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Whether there is a solid block anywhere in this chunk with two blocks of air above it to stand in
+     */
+    final boolean hasPlaceToStand() {
+        for (int y = 0; y + 2 < height; y++) {
+            for (int w = 0; w < 8; w++) {
+                long floor = word(y, w);
+                long feet = word(y + 1, w);
+                long head = word(y + 2, w);
+                if ((floor & (floor >>> 1) & ~(feet | feet >>> 1) & ~(head | head >>> 1) & PAIR_MASK) != 0) {
+                    return true;
                 }
             }
         }
+        return false;
+    }
+
+    /**
+     * @return Whether any block in this chunk is of this type
+     */
+    final boolean contains(PathingBlockType type) {
+        int raw = TO_RAW[type.ordinal()];
+        for (long[] words : data) {
+            for (long word : words) {
+                long low = (raw & 1) != 0 ? word : ~word;
+                long high = (raw & 2) != 0 ? word >>> 1 : ~(word >>> 1);
+                if ((low & high & PAIR_MASK) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Word {@code w} of layer {@code y}, which holds the rows {@code z = 2w} and {@code z = 2w + 1}
+     */
+    private long word(int y, int w) {
+        return data[y >> 4][(y & 15) << 3 | w];
+    }
+
+    /**
+     * Makes a new version of this chunk with some blocks changed. Only the sections and lists of special blocks that
+     * the changes are in are copied, everything else is shared with this version, which is left as it is.
+     * <p>
+     * The overview is a copy of this one's, so it can still be fixed up for the changed columns before the new version
+     * is handed out.
+     *
+     * @param indices   The {@link #getPositionIndex} of each changed block, with y from the bottom of the chunk
+     * @param raw       The raw bits of the new type of each block, see {@link #toRaw}
+     * @param names     The name of each block if it's kept track of, otherwise null
+     * @param minY      The y of the bottom of the chunk, special blocks are stored with their real y
+     * @param timestamp When the changes happened
+     * @return The new version
+     */
+    CachedChunk withBlocks(int[] indices, long[] raw, String[] names, int minY, long timestamp) {
+        long[][] data = this.data.clone();
+        boolean[] copied = new boolean[data.length];
+        for (int i = 0; i < indices.length; i++) {
+            int section = indices[i] >>> 13;
+            if (!copied[section]) {
+                data[section] = data[section].clone();
+                copied[section] = true;
+            }
+            int word = (indices[i] >>> 6) & (SECTION_WORDS - 1);
+            int shift = indices[i] & 63;
+            data[section][word] = data[section][word] & ~(3L << shift) | raw[i] << shift;
+        }
+        for (int section = 0; section < data.length; section++) {
+            if (copied[section]) {
+                data[section] = intern(data[section]);
+            }
+        }
+        Map<String, List<BlockPos>> locations = new HashMap<>(specialBlockLocations);
+        Set<String> copiedLists = new HashSet<>();
+        for (int i = 0; i < indices.length; i++) {
+            BlockPos pos = new BlockPos((indices[i] >>> 1) & 15, (indices[i] >>> 9) + minY, (indices[i] >>> 5) & 15);
+            String previous = special == null ? null : special.get(getPositionIndex(pos.getX(), pos.getY(), pos.getZ()));
+            if (Objects.equals(previous, names[i])) {
+                continue;
+            }
+            if (previous != null) {
+                editableLocations(locations, copiedLists, previous).remove(pos);
+            }
+            if (names[i] != null) {
+                editableLocations(locations, copiedLists, names[i]).add(pos);
+            }
+        }
+        locations.values().removeIf(List::isEmpty);
+        return new CachedChunk(x, z, height, data, overview.clone(), locations, timestamp);
+    }
+
+    private static List<BlockPos> editableLocations(Map<String, List<BlockPos>> locations, Set<String> copied, String name) {
+        if (copied.add(name)) {
+            List<BlockPos> existing = locations.get(name);
+            locations.put(name, existing == null ? new ArrayList<>() : new ArrayList<>(existing));
+        }
+        return locations.get(name);
+    }
+
+    /**
+     * @return Roughly how many bytes of RAM this chunk takes up, counting the sections that aren't shared, the overview,
+     * the height map and the special blocks
+     */
+    final long memoryBytes() {
+        long bytes = 64 + 16 + data.length * 4L + 2 * (16 + 256 * 4);
+        for (long[] section : data) {
+            if (section != EMPTY_SECTION) {
+                bytes += 16 + SECTION_WORDS * 8;
+            }
+        }
+        for (List<BlockPos> positions : specialBlockLocations.values()) {
+            // the list and its array, plus a reference to and an object for every position
+            bytes += 40 + positions.size() * 36L;
+        }
+        if (special != null) {
+            bytes += 64 + special.size() * 16L;
+        }
+        return bytes;
     }
 
     public final BlockState[] getOverview() {
@@ -271,7 +467,60 @@ public final class CachedChunk {
      * @return Returns the raw packed chunk data as a byte array
      */
     public final byte[] toByteArray() {
-        return this.data.toByteArray();
+        // identical to BitSet.toByteArray, little endian words with trailing zero bytes stripped
+        ByteBuffer buffer = ByteBuffer.allocate(sizeInBytes).order(ByteOrder.LITTLE_ENDIAN);
+        LongBuffer words = buffer.asLongBuffer();
+        for (long[] section : data) {
+            words.put(section);
+        }
+        byte[] bytes = buffer.array();
+        int length = bytes.length;
+        while (length > 0 && bytes[length - 1] == 0) {
+            length--;
+        }
+        return length == bytes.length ? bytes : Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * Splits raw packed chunk data, as written by {@link #toByteArray()} or {@link java.util.BitSet#toByteArray()},
+     * into sections. Missing trailing bytes are treated as zero.
+     *
+     * @param bytes  The raw data
+     * @param height The height of the chunk
+     * @return The sections
+     */
+    public static long[][] fromByteArray(byte[] bytes, int height) {
+        long[][] data = new long[height >> 4][];
+        byte[] padded = bytes.length % 8 == 0 ? bytes : Arrays.copyOf(bytes, (bytes.length + 7) & ~7);
+        LongBuffer words = ByteBuffer.wrap(padded).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        for (int i = 0; i < data.length; i++) {
+            int remaining = Math.min(words.remaining(), SECTION_WORDS);
+            long[] section = new long[SECTION_WORDS];
+            words.get(section, 0, remaining);
+            data[i] = intern(section);
+        }
+        return data;
+    }
+
+    /**
+     * @param type The type of a block
+     * @return The two raw bits to store for the type, to be shifted to {@code getPositionIndex & 63}
+     */
+    static long toRaw(PathingBlockType type) {
+        return TO_RAW[type.ordinal()];
+    }
+
+    /**
+     * @param section A freshly filled section
+     * @return {@link #EMPTY_SECTION} if the section is all air, otherwise the section itself
+     */
+    static long[] intern(long[] section) {
+        for (long word : section) {
+            if (word != 0) {
+                return section;
+            }
+        }
+        return EMPTY_SECTION;
     }
 
     /**
@@ -287,16 +536,22 @@ public final class CachedChunk {
     }
 
     /**
-     * Validates the size of an input {@link BitSet} containing the raw
-     * packed chunk data. Sizes that exceed {@link CachedChunk#size} are
-     * considered invalid, and thus, an exception will be thrown.
+     * Validates the shape of the raw packed chunk data. There must be exactly one
+     * section of {@link #SECTION_WORDS} longs for every 16 blocks of height,
+     * otherwise an exception will be thrown.
      *
-     * @param data The raw data
-     * @throws IllegalArgumentException if the bitset size exceeds the maximum size
+     * @param data   The raw data
+     * @param height The height of the chunk
+     * @throws IllegalArgumentException if the data doesn't match the chunk height
      */
-    private void validateSize(BitSet data) {
-        if (data.size() > size) {
-            throw new IllegalArgumentException("BitSet of invalid length provided");
+    private static void validateSize(long[][] data, int height) {
+        if (data.length != height >> 4) {
+            throw new IllegalArgumentException("Chunk data of invalid length provided");
+        }
+        for (long[] section : data) {
+            if (section.length != SECTION_WORDS) {
+                throw new IllegalArgumentException("Chunk section of invalid length provided");
+            }
         }
     }
 }
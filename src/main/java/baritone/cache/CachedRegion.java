@@ -20,17 +20,22 @@ package baritone.cache;
 import baritone.Baritone;
 import baritone.api.cache.ICachedRegion;
 import baritone.api.utils.BlockUtils;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.dimension.DimensionType;
 
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * @author Brady
@@ -43,13 +48,118 @@ public final class CachedRegion implements ICachedRegion {
 
     /**
      * Magic value to detect invalid cache files, or incompatible cache files saved in an old version of Baritone
+     * <p>
+     * This is the old format, where the whole file is gzipped and has to be read in one go. Files in it are still
+     * loaded, and written back in the indexed format the next time they're saved.
      */
     private static final int CACHED_REGION_MAGIC = 456022911;
 
     /**
-     * All of the chunks in this region: A 32x32 array of them.
+     * Magic value of the indexed format, which starts with a table of where each chunk is in the file, followed by
+     * each chunk compressed on its own. That way a chunk is only read and inflated once something actually asks for it.
      */
-    private final CachedChunk[][] chunks = new CachedChunk[32][32];
+    private static final int CACHED_REGION_MAGIC_INDEXED = 456022912;
+
+    /**
+     * Magic value of the indexed format with a table of block names after the index. Chunks refer to names by their
+     * position in the table, instead of each writing out every name they use. Files in the plain indexed format are
+     * still loaded, and written back in this one the next time they're saved.
+     */
+    private static final int CACHED_REGION_MAGIC_NAMES = 456022913;
+
+    /**
+     * Magic value of the indexed format with a table of block names, followed by where every special block in the
+     * region is, see {@link #getLocationsOf}. That's read along with the chunk table, so looking for a block never has
+     * to read any chunks. Files in the older indexed formats build it the first time something looks for a block.
+     */
+    private static final int CACHED_REGION_MAGIC_SPECIAL = 456022914;
+
+    /**
+     * The magic value, then an offset, length and cache timestamp for each chunk
+     */
+    private static final int HEADER_SIZE = 4 + 32 * 32 * 16;
+
+    /**
+     * All of the chunks in this region that are in RAM, indexed by {@code x << 5 | z}.
+     * <p>
+     * This, {@link #offsets} and {@link #compressed} are only written to under the lock, but read without it by
+     * {@link #getChunk} and {@link #isCached}. Whenever a chunk moves from one of them to another, it's put in the new
+     * one before it's taken out of the old one, and readers look in them in an order that can't miss it, see
+     * {@link #isPresent}.
+     */
+    private final AtomicReferenceArray<CachedChunk> chunks = new AtomicReferenceArray<>(1024);
+
+    /**
+     * Where in {@link #file} each chunk that hasn't been read yet starts, indexed by {@code x << 5 | z}. 0 if the chunk
+     * isn't in the file, or has already been read into {@link #chunks}.
+     */
+    private final AtomicIntegerArray offsets = new AtomicIntegerArray(1024);
+
+    private final int[] lengths = new int[1024];
+
+    private final long[] timestamps = new long[1024];
+
+    /**
+     * Chunks that were compressed to save RAM, in the same form that they're saved in, indexed by {@code x << 5 | z}.
+     * They're read back from here like they would be from {@link #file}, and go to disk the next time it's saved.
+     */
+    private final AtomicReferenceArray<byte[]> compressed = new AtomicReferenceArray<>(1024);
+
+    /**
+     * Set whenever this region is used, and cleared by {@link CachedWorld} as it goes around looking for regions to
+     * compress or evict, so that only ones that haven't been used for a whole round go
+     */
+    volatile boolean referenced;
+
+    /**
+     * Every special block in this region by name, see {@link #getLocationsOf}. Read from the region file, or built by
+     * {@link #buildSpecialIndex} if the file is in an older format, then kept up to date as chunks are cached. Null
+     * until then. Replaced rather than modified, so it can be read without locking.
+     */
+    private volatile Map<String, long[]> specialIndex;
+
+    /**
+     * Set while {@link #buildSpecialIndex} is queued or running, so that it's only queued once
+     */
+    final AtomicBoolean indexing = new AtomicBoolean();
+
+    /**
+     * Set once this region has been saved for the last time and is about to be dropped from RAM. Nothing can be cached
+     * in it after that, since it would never be saved.
+     */
+    private boolean detached;
+
+    /**
+     * Counts loads, so that {@link #buildSpecialIndex} can tell that the chunks it read have been replaced
+     */
+    private int loads;
+
+    /**
+     * The file that {@link #offsets} point into
+     */
+    private Path file;
+
+    /**
+     * Kept open to read chunks out of {@link #file} as they're needed, instead of opening it again for every one.
+     * Opened on load, and again by the first read after a save, since saving replaces the file.
+     */
+    private FileChannel channel;
+
+    /**
+     * The magic value of {@link #file}, which decides how the chunks that haven't been read from it yet are read
+     */
+    private int fileMagic;
+
+    /**
+     * The block names that the chunks in {@link #file} refer to. Saving only ever adds to the end, so chunks that
+     * are copied over to the new file without being read still refer to the right names.
+     */
+    private List<String> names = new ArrayList<>();
+
+    /**
+     * The default state of each block in {@link #names}, looked up the first time a chunk uses it
+     */
+    private BlockState[] states = new BlockState[0];
 
     /**
      * The region x coordinate
@@ -78,7 +188,7 @@ public final class CachedRegion implements ICachedRegion {
     @Override
     public final BlockState getBlock(int x, int y, int z) {
         int adjY = y - dimension.minY();
-        CachedChunk chunk = chunks[x >> 4][z >> 4];
+        CachedChunk chunk = getChunk(x >> 4, z >> 4);
         if (chunk != null) {
             return chunk.getBlock(x & 15, adjY, z & 15, dimension);
         }
@@ -87,99 +197,350 @@ public final class CachedRegion implements ICachedRegion {
 
     @Override
     public final boolean isCached(int x, int z) {
-        return chunks[x >> 4][z >> 4] != null;
+        return isPresent((x >> 4) << 5 | z >> 4);
+    }
+
+    /**
+     * Whether a chunk is cached, without locking. A chunk being compressed is put in {@link #compressed} before it's
+     * taken out of {@link #chunks}, so that's looked in second. A chunk being read or unpacked is put in
+     * {@link #chunks} before it's taken out of the others, so that's looked in again last.
+     *
+     * @param index {@code x << 5 | z} of a chunk in this region
+     */
+    private boolean isPresent(int index) {
+        return chunks.get(index) != null || compressed.get(index) != null || offsets.get(index) != 0 || chunks.get(index) != null;
+    }
+
+    /**
+     * @param chunkX The chunk x coordinate within this region
+     * @param chunkZ The chunk z coordinate within this region
+     * @return The cached chunk, or {@code null} if it isn't cached
+     */
+    public final CachedChunk getChunk(int chunkX, int chunkZ) {
+        int index = chunkX << 5 | chunkZ;
+        CachedChunk chunk = chunks.get(index);
+        if (chunk != null) {
+            return chunk;
+        }
+        if (isPresent(index)) {
+            return loadChunk(chunkX, chunkZ); // which looks again under the lock, it might have just been read
+        }
+        return null;
     }
 
-    public final ArrayList<BlockPos> getLocationsOf(String block) {
-        ArrayList<BlockPos> res = new ArrayList<>();
-        for (int chunkX = 0; chunkX < 32; chunkX++) {
-            for (int chunkZ = 0; chunkZ < 32; chunkZ++) {
-                if (chunks[chunkX][chunkZ] == null) {
+    /**
+     * Like {@link #getChunk}, but never reads or unpacks anything, for the main thread
+     *
+     * @param chunkX The chunk x coordinate within this region
+     * @param chunkZ The chunk z coordinate within this region
+     * @return The cached chunk, or {@code null} if it isn't cached or hasn't been read or unpacked yet
+     */
+    final CachedChunk getChunkInMemory(int chunkX, int chunkZ) {
+        return chunks.get(chunkX << 5 | chunkZ);
+    }
+
+    /**
+     * @param block The name of a block that's kept track of
+     * @return Where every one of those blocks in this region is, as sorted {@link BlockPos#asLong} values in world
+     * coordinates, or null if there are none or if the index isn't there yet, see {@link #hasSpecialIndex}. Not to be
+     * modified.
+     */
+    public final long[] getLocationsOf(String block) {
+        Map<String, long[]> index = specialIndex;
+        return index == null ? null : index.get(block);
+    }
+
+    /**
+     * @return Whether {@link #getLocationsOf} can answer yet. If not, something has to call {@link #buildSpecialIndex}.
+     */
+    final boolean hasSpecialIndex() {
+        return specialIndex != null;
+    }
+
+    /**
+     * Builds the index of special blocks for a region whose file is in a format that doesn't have one. Reads every
+     * chunk that isn't in RAM without keeping it, so this should be on a background thread. Only holds the lock for
+     * one chunk at a time, and catches up on whatever changed in the meantime at the end.
+     */
+    void buildSpecialIndex() {
+        int loadsAtStart;
+        synchronized (this) {
+            if (specialIndex != null) {
+                return;
+            }
+            loadsAtStart = loads;
+        }
+        Map<String, LongArrayList> positions = new HashMap<>();
+        CachedChunk[] seen = new CachedChunk[1024];
+        for (int i = 0; i < 1024; i++) {
+            int chunkX = (i >> 5) + 32 * this.x;
+            int chunkZ = (i & 31) + 32 * this.z;
+            Map<String, List<BlockPos>> blocks;
+            synchronized (this) {
+                seen[i] = chunks.get(i);
+                try {
+                    blocks = peekRelativeBlocks(i);
+                } catch (Exception ex) { // same as when the chunk is actually read, it's treated as not cached
+                    ex.printStackTrace();
                     continue;
                 }
-                ArrayList<BlockPos> locs = chunks[chunkX][chunkZ].getAbsoluteBlocks(block);
-                if (locs != null) {
-                    res.addAll(locs);
+            }
+            if (blocks == null) {
+                continue;
+            }
+            for (Map.Entry<String, List<BlockPos>> entry : blocks.entrySet()) {
+                LongArrayList list = positions.computeIfAbsent(entry.getKey(), k -> new LongArrayList());
+                for (BlockPos pos : entry.getValue()) {
+                    list.add(BlockPos.asLong(pos.getX() + chunkX * 16, pos.getY(), pos.getZ() + chunkZ * 16));
+                }
+            }
+        }
+        Map<String, long[]> index = new HashMap<>();
+        for (Map.Entry<String, LongArrayList> entry : positions.entrySet()) {
+            long[] sorted = entry.getValue().toLongArray();
+            Arrays.sort(sorted);
+            index.put(entry.getKey(), sorted);
+        }
+        synchronized (this) {
+            if (specialIndex != null || loads != loadsAtStart) {
+                return; // loaded again, the chunks read above might not be the ones here anymore
+            }
+            specialIndex = index;
+            // chunks that were cached or expired after they were read
+            for (int i = 0; i < 1024; i++) {
+                CachedChunk chunk = chunks.get(i);
+                if (chunk != null && chunk != seen[i]) {
+                    reindex(chunk.x, chunk.z, chunk.getRelativeBlocks());
+                } else if (chunk == null && offsets.get(i) == 0 && compressed.get(i) == null) {
+                    reindex((i >> 5) + 32 * this.x, (i & 31) + 32 * this.z, Collections.emptyMap());
                 }
             }
         }
-        return res;
     }
 
-    public final synchronized void updateCachedChunk(int chunkX, int chunkZ, CachedChunk chunk) {
-        this.chunks[chunkX][chunkZ] = chunk;
+    /**
+     * @param index {@code x << 5 | z} of a chunk in this region
+     * @return The special blocks of the chunk, without reading it into RAM if it isn't already, or null if it isn't
+     * cached
+     */
+    private Map<String, List<BlockPos>> peekRelativeBlocks(int index) throws IOException {
+        CachedChunk chunk = chunks.get(index);
+        if (chunk != null) {
+            return chunk.getRelativeBlocks();
+        }
+        int chunkX = (index >> 5) + 32 * this.x;
+        int chunkZ = (index & 31) + 32 * this.z;
+        if (compressed.get(index) != null) {
+            return readChunk(chunkX, chunkZ, compressed.get(index), timestamps[index], true).getRelativeBlocks();
+        }
+        if (offsets.get(index) != 0) {
+            return readChunk(chunkX, chunkZ, readPayload(index), timestamps[index], fileHasNames()).getRelativeBlocks();
+        }
+        return null;
+    }
+
+    /**
+     * Replaces the positions of the special blocks in one chunk, if the index has been built
+     *
+     * @param chunkX The chunk x coordinate in the world
+     * @param chunkZ The chunk z coordinate in the world
+     * @param blocks The special blocks in the chunk now, relative to it
+     */
+    private void reindex(int chunkX, int chunkZ, Map<String, List<BlockPos>> blocks) {
+        Map<String, long[]> current = specialIndex;
+        if (current == null) {
+            return;
+        }
+        Map<String, long[]> index = new HashMap<>(current);
+        Set<String> names = new HashSet<>(index.keySet());
+        names.addAll(blocks.keySet());
+        for (String name : names) {
+            long[] existing = index.get(name);
+            List<BlockPos> added = blocks.getOrDefault(name, Collections.emptyList());
+            LongArrayList updated = new LongArrayList();
+            if (existing != null) {
+                for (long pos : existing) {
+                    if (BlockPos.getX(pos) >> 4 != chunkX || BlockPos.getZ(pos) >> 4 != chunkZ) {
+                        updated.add(pos);
+                    }
+                }
+                if (updated.size() == existing.length && added.isEmpty()) {
+                    continue; // wasn't in this chunk before and still isn't
+                }
+            }
+            for (BlockPos pos : added) {
+                updated.add(BlockPos.asLong(pos.getX() + chunkX * 16, pos.getY(), pos.getZ() + chunkZ * 16));
+            }
+            if (updated.isEmpty()) {
+                index.remove(name);
+            } else {
+                long[] sorted = updated.toLongArray();
+                Arrays.sort(sorted);
+                index.put(name, sorted);
+            }
+        }
+        specialIndex = index;
+    }
+
+    /**
+     * @return Whether the chunk was cached, which it isn't if this region has been {@link #detach detached}. Then it
+     * belongs in whichever region replaces this one.
+     */
+    public final synchronized boolean updateCachedChunk(int chunkX, int chunkZ, CachedChunk chunk) {
+        if (detached) {
+            return false;
+        }
+        chunks.set(chunkX << 5 | chunkZ, chunk);
+        offsets.set(chunkX << 5 | chunkZ, 0);
+        compressed.set(chunkX << 5 | chunkZ, null);
         hasUnsavedChanges = true;
+        reindex(chunk.x, chunk.z, chunk.getRelativeBlocks());
+        return true;
+    }
+
+    /**
+     * Replaces a chunk with a newer version of itself, unless something else replaced it in the meantime
+     *
+     * @return Whether it was replaced
+     */
+    public final synchronized boolean replaceCachedChunk(int chunkX, int chunkZ, CachedChunk expected, CachedChunk chunk) {
+        if (chunks.get(chunkX << 5 | chunkZ) != expected) {
+            return false;
+        }
+        return updateCachedChunk(chunkX, chunkZ, chunk);
+    }
+
+    /**
+     * Saves this region for the last time, before it's dropped from RAM. From then on nothing more can be cached in
+     * it, so nothing cached while it's on its way out is lost. Whatever tries gets {@code false} back, and caches it
+     * in the region that's loaded from the file in its place.
+     *
+     * @param directory Where to save it, or null to drop it without saving
+     */
+    synchronized void detach(String directory) {
+        detached = true;
+        if (directory != null) {
+            save(directory);
+        }
     }
 
+    public final void save(String directory) {
+        save(directory, Baritone.settings().cachedChunksExpirySeconds.value);
+    }
 
-    public synchronized final void save(String directory) {
+    /**
+     * @param expirySeconds Chunks cached longer ago than this are left out, or -1 to keep them all
+     */
+    synchronized void save(String directory, long expirySeconds) {
         if (!hasUnsavedChanges) {
             return;
         }
-        removeExpired();
+        removeExpired(expirySeconds);
         try {
             Path path = Paths.get(directory);
             if (!Files.exists(path)) {
                 Files.createDirectories(path);
-
             }
             System.out.println("Saving region " + x + "," + z + " to disk " + path);
             Path regionFile = getRegionFile(path, this.x, this.z);
-            if (!Files.exists(regionFile)) {
-                Files.createFile(regionFile);
-            }
-            try (
-                    FileOutputStream fileOut = new FileOutputStream(regionFile.toFile());
-                    GZIPOutputStream gzipOut = new GZIPOutputStream(fileOut, 16384);
-                    DataOutputStream out = new DataOutputStream(gzipOut)
-            ) {
-                out.writeInt(CACHED_REGION_MAGIC);
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        CachedChunk chunk = this.chunks[x][z];
-                        if (chunk == null) {
-                            out.write(CHUNK_NOT_PRESENT);
-                        } else {
-                            out.write(CHUNK_PRESENT);
-                            byte[] chunkBytes = chunk.toByteArray();
-                            out.write(chunkBytes);
-                            // Messy, but fills the empty 0s that should be trailing to fill up the space.
-                            out.write(new byte[chunk.sizeInBytes - chunkBytes.length]);
-                        }
+            if (!fileHasNames()) {
+                // chunks that haven't been read yet name their blocks the old way, so they have to be written again
+                for (int i = 0; i < 1024; i++) {
+                    if (offsets.get(i) != 0) {
+                        loadChunk(i >> 5, i & 31);
                     }
                 }
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        if (chunks[x][z] != null) {
-                            for (int i = 0; i < 256; i++) {
-                                out.writeUTF(BlockUtils.blockToString(chunks[x][z].getOverview()[i].getBlock()));
-                            }
-                        }
+                buildSpecialIndex(); // cheap now that they've all been read
+            }
+            List<String> newNames = new ArrayList<>(names);
+            Map<String, Integer> nameIndices = new HashMap<>();
+            for (int i = 0; i < newNames.size(); i++) {
+                nameIndices.put(newNames.get(i), i);
+            }
+            byte[][] payloads = new byte[1024][];
+            long[] payloadTimestamps = new long[1024];
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    int index = x << 5 | z;
+                    CachedChunk chunk = chunks.get(index);
+                    if (chunk != null) {
+                        payloads[index] = writeChunk(chunk, newNames, nameIndices);
+                        payloadTimestamps[index] = chunk.cacheTimestamp;
+                    } else if (offsets.get(index) != 0) {
+                        // never needed since it was loaded, so just copy it over without inflating it
+                        payloads[index] = readPayload(index);
+                        payloadTimestamps[index] = timestamps[index];
+                    } else if (compressed.get(index) != null) {
+                        payloads[index] = compressed.get(index);
+                        payloadTimestamps[index] = timestamps[index];
                     }
                 }
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        if (chunks[x][z] != null) {
-                            Map<String, List<BlockPos>> locs = chunks[x][z].getRelativeBlocks();
-                            out.writeShort(locs.entrySet().size());
-                            for (Map.Entry<String, List<BlockPos>> entry : locs.entrySet()) {
-                                out.writeUTF(entry.getKey());
-                                out.writeShort(entry.getValue().size());
-                                for (BlockPos pos : entry.getValue()) {
-                                    out.writeByte((byte) (pos.getZ() << 4 | pos.getX()));
-                                    out.writeInt(pos.getY()-dimension.minY());
-                                }
-                            }
-                        }
+            }
+            // left out if it hasn't been built yet, then it's built the first time it's needed after loading instead
+            ByteArrayOutputStream special = new ByteArrayOutputStream();
+            Map<String, long[]> index = specialIndex;
+            if (index != null) {
+                try (DataOutputStream out = new DataOutputStream(special)) {
+                    writeSpecialIndex(out, index, newNames, nameIndices);
+                }
+            }
+            ByteArrayOutputStream table = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(table)) {
+                writeVarInt(out, newNames.size());
+                for (String name : newNames) {
+                    out.writeUTF(name);
+                }
+            }
+            int[] newOffsets = new int[1024];
+            // write next to it and then move it over, so that neither a crash nor a concurrent reader ever sees half a file
+            Path tempFile = Files.createTempFile(path, regionFile.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), 65536))) {
+                out.writeInt(CACHED_REGION_MAGIC_SPECIAL);
+                int offset = HEADER_SIZE + 4 + table.size() + 4 + special.size();
+                for (int i = 0; i < 1024; i++) {
+                    if (payloads[i] == null) {
+                        out.writeInt(0);
+                        out.writeInt(0);
+                        out.writeLong(0);
+                    } else {
+                        newOffsets[i] = offset;
+                        out.writeInt(offset);
+                        out.writeInt(payloads[i].length);
+                        out.writeLong(payloadTimestamps[i]);
+                        offset += payloads[i].length;
                     }
                 }
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        if (chunks[x][z] != null) {
-                            out.writeLong(chunks[x][z].cacheTimestamp);
-                        }
+                out.writeInt(table.size());
+                table.writeTo(out);
+                out.writeInt(special.size());
+                special.writeTo(out);
+                for (byte[] payload : payloads) {
+                    if (payload != null) {
+                        out.write(payload);
                     }
                 }
+                CacheStats.bytesWritten(offset);
+            }
+            closeChannel(); // it's about to be replaced, and an open file can't be on windows
+            try {
+                Files.move(tempFile, regionFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile, regionFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            // chunks that still haven't been read are now somewhere else in the new file
+            this.file = regionFile;
+            this.fileMagic = CACHED_REGION_MAGIC_SPECIAL;
+            this.names = newNames;
+            this.states = Arrays.copyOf(states, newNames.size());
+            for (int i = 0; i < 1024; i++) {
+                if (offsets.get(i) != 0) {
+                    offsets.set(i, newOffsets[i]);
+                } else if (compressed.get(i) != null) {
+                    // it's on disk now, so it doesn't need to take up RAM anymore
+                    lengths[i] = compressed.get(i).length;
+                    offsets.set(i, newOffsets[i]);
+                    compressed.set(i, null);
+                }
             }
             hasUnsavedChanges = false;
             System.out.println("Saved region successfully");
@@ -188,7 +549,14 @@ public final class CachedRegion implements ICachedRegion {
         }
     }
 
-    public synchronized void load(String directory) {
+    public void load(String directory) {
+        load(directory, Baritone.settings().cachedChunksExpirySeconds.value);
+    }
+
+    /**
+     * @param expirySeconds Chunks cached longer ago than this are left out, or -1 to keep them all
+     */
+    synchronized void load(String directory, long expirySeconds) {
         try {
             Path path = Paths.get(directory);
             if (!Files.exists(path)) {
@@ -201,142 +569,626 @@ public final class CachedRegion implements ICachedRegion {
             }
 
             System.out.println("Loading region " + x + "," + z + " from disk " + path);
-            long start = System.nanoTime() / 1000000L;
-
-            try (
-                    FileInputStream fileIn = new FileInputStream(regionFile.toFile());
-                    GZIPInputStream gzipIn = new GZIPInputStream(fileIn, 32768);
-                    DataInputStream in = new DataInputStream(gzipIn)
-            ) {
-                int magic = in.readInt();
-                if (magic != CACHED_REGION_MAGIC) {
-                    // in the future, if we change the format on disk
-                    // we can keep converters for the old format
-                    // by switching on the magic value, and either loading it normally, or loading through a converter.
-                    throw new IOException("Bad magic value " + magic);
+            long start = System.nanoTime();
+            boolean legacy = isLegacy(regionFile);
+            loads++;
+            if (legacy) {
+                loadLegacy(regionFile);
+                specialIndex = null;
+                removeExpired(expirySeconds);
+                buildSpecialIndex(); // every chunk is in RAM already
+            } else {
+                loadIndex(regionFile);
+                removeExpired(expirySeconds);
+            }
+            // a legacy region is written back in the indexed format on the next save
+            hasUnsavedChanges = legacy;
+            long nanos = System.nanoTime() - start;
+            CacheStats.regionLoaded(nanos);
+            System.out.println("Loaded region successfully in " + nanos / 1000000L + "ms" + (legacy ? " (legacy format)" : ""));
+        } catch (Exception ex) { // corrupted files can cause NullPointerExceptions as well as IOExceptions
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Only reads the table at the start of the file, chunks are read as they're needed by {@link #getChunk}
+     */
+    private void loadIndex(Path regionFile) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        long fileSize;
+        List<String> newNames = new ArrayList<>();
+        Map<String, long[]> newIndex = null;
+        int chunksStart = HEADER_SIZE;
+        int magic;
+        FileChannel newChannel = FileChannel.open(regionFile, StandardOpenOption.READ);
+        try {
+            fileSize = newChannel.size();
+            readFully(newChannel, header, 0);
+            header.flip();
+            magic = header.getInt();
+            if (magic != CACHED_REGION_MAGIC_INDEXED && magic != CACHED_REGION_MAGIC_NAMES && magic != CACHED_REGION_MAGIC_SPECIAL) {
+                throw new IOException("Bad magic value " + magic);
+            }
+            if (magic != CACHED_REGION_MAGIC_INDEXED) {
+                byte[] table = readSection(newChannel, chunksStart, fileSize);
+                try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(table))) {
+                    int count = readVarInt(in);
+                    for (int i = 0; i < count; i++) {
+                        newNames.add(in.readUTF());
+                    }
                 }
-                boolean[][] present = new boolean[32][32];
-                BitSet[][] bitSets = new BitSet[32][32];
-                Map<String, List<BlockPos>>[][] location = new Map[32][32];
-                BlockState[][][] overview = new BlockState[32][32][];
-                long[][] cacheTimestamp = new long[32][32];
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        int isChunkPresent = in.read();
-                        switch (isChunkPresent) {
-                            case CHUNK_PRESENT:
-                                byte[] bytes = new byte[CachedChunk.sizeInBytes(CachedChunk.size(dimension.height()))];
-                                in.readFully(bytes);
-                                bitSets[x][z] = BitSet.valueOf(bytes);
-                                location[x][z] = new HashMap<>();
-                                //this is top block in columns
-                                overview[x][z] = new BlockState[256];
-                                present[x][z] = true;
-                                break;
-                            case CHUNK_NOT_PRESENT:
-                                break;
-                            default:
-                                throw new IOException("Malformed stream");
-                        }
+                chunksStart += 4 + table.length;
+            }
+            if (magic == CACHED_REGION_MAGIC_SPECIAL) {
+                byte[] special = readSection(newChannel, chunksStart, fileSize);
+                if (special.length > 0) { // empty if the index hadn't been built when it was saved
+                    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(special))) {
+                        newIndex = readSpecialIndex(in, newNames, special.length);
                     }
                 }
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        if (present[x][z]) {
-                            for (int i = 0; i < 256; i++) {
-                                overview[x][z][i] = BlockUtils.stringToBlockRequired(in.readUTF()).defaultBlockState();
-                            }
+                chunksStart += 4 + special.length;
+            }
+        } catch (IOException | RuntimeException ex) {
+            newChannel.close();
+            throw ex;
+        }
+        CacheStats.bytesRead(chunksStart);
+        int[] newOffsets = new int[1024];
+        int[] newLengths = new int[1024];
+        long[] newTimestamps = new long[1024];
+        for (int i = 0; i < 1024; i++) {
+            newOffsets[i] = header.getInt();
+            newLengths[i] = header.getInt();
+            newTimestamps[i] = header.getLong();
+            if (newOffsets[i] != 0 && (newOffsets[i] < chunksStart || newLengths[i] <= 0 || (long) newOffsets[i] + newLengths[i] > fileSize)) {
+                newChannel.close();
+                throw new IOException("Malformed region index");
+            }
+        }
+        // only if the entire index was uncorrupted do we actually use it
+        for (int i = 0; i < 1024; i++) {
+            if (compressed.get(i) != null) {
+                loadChunk(i >> 5, i & 31); // they refer to the names that are about to be replaced
+            }
+        }
+        closeChannel();
+        this.file = regionFile;
+        this.channel = newChannel;
+        this.fileMagic = magic;
+        this.names = newNames;
+        this.states = new BlockState[newNames.size()];
+        for (int i = 0; i < 1024; i++) {
+            if (newOffsets[i] != 0) {
+                this.lengths[i] = newLengths[i];
+                this.timestamps[i] = newTimestamps[i];
+                offsets.set(i, newOffsets[i]);
+                chunks.set(i, null); // only after the offset is there, so it's never missing
+            }
+        }
+        this.specialIndex = newIndex;
+        // chunks in RAM that the file doesn't have
+        for (int i = 0; i < 1024; i++) {
+            CachedChunk chunk = chunks.get(i);
+            if (chunk != null) {
+                reindex(chunk.x, chunk.z, chunk.getRelativeBlocks());
+            }
+        }
+    }
+
+    /**
+     * Reads a section of the file that's written as its length followed by its contents
+     */
+    private static byte[] readSection(FileChannel channel, int position, long fileSize) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(channel, length, position);
+        length.flip();
+        int size = length.getInt();
+        if (size < 0 || position + 4L + size > fileSize) {
+            throw new IOException("Malformed section at " + position);
+        }
+        byte[] section = new byte[size];
+        readFully(channel, ByteBuffer.wrap(section), position + 4);
+        return section;
+    }
+
+    /**
+     * Writes the index of special blocks, each position packed as {@code y << 18 | x << 9 | z} within the region
+     *
+     * @param names       The name table of the file being written, any names it doesn't have yet are added to the end
+     * @param nameIndices The index of each name in the table
+     */
+    private void writeSpecialIndex(DataOutput out, Map<String, long[]> index, List<String> names, Map<String, Integer> nameIndices) throws IOException {
+        writeVarInt(out, index.size());
+        for (Map.Entry<String, long[]> entry : index.entrySet()) {
+            writeVarInt(out, nameIndex(entry.getKey(), names, nameIndices));
+            long[] positions = entry.getValue();
+            int[] packed = new int[positions.length];
+            for (int i = 0; i < positions.length; i++) {
+                long pos = positions[i];
+                packed[i] = (BlockPos.getY(pos) - dimension.minY()) << 18 | (BlockPos.getX(pos) & 511) << 9 | BlockPos.getZ(pos) & 511;
+            }
+            writePositions(out, packed);
+        }
+    }
+
+    /**
+     * @param size The size of the section, which no count in it can be larger than
+     */
+    private Map<String, long[]> readSpecialIndex(DataInput in, List<String> names, int size) throws IOException {
+        Map<String, long[]> index = new HashMap<>();
+        int count = readVarInt(in);
+        for (int i = 0; i < count; i++) {
+            int name = readVarInt(in);
+            if (name < 0 || name >= names.size()) {
+                throw new IOException("Name " + name + " isn't in the table");
+            }
+            int[] packed = readPositions(in, size);
+            long[] positions = new long[packed.length];
+            for (int j = 0; j < packed.length; j++) {
+                int pos = packed[j];
+                positions[j] = BlockPos.asLong(this.x * 512 + (pos >>> 9 & 511), (pos >>> 18) + dimension.minY(), this.z * 512 + (pos & 511));
+            }
+            Arrays.sort(positions);
+            index.put(names.get(name), positions);
+        }
+        return index;
+    }
+
+    private void loadLegacy(Path regionFile) throws IOException {
+        try (
+                FileInputStream fileIn = new FileInputStream(regionFile.toFile());
+                GZIPInputStream gzipIn = new GZIPInputStream(fileIn, 32768);
+                DataInputStream in = new DataInputStream(gzipIn)
+        ) {
+            int magic = in.readInt();
+            if (magic != CACHED_REGION_MAGIC) {
+                throw new IOException("Bad magic value " + magic);
+            }
+            boolean[][] present = new boolean[32][32];
+            long[][][][] packed = new long[32][32][][];
+            Map<String, List<BlockPos>>[][] location = new Map[32][32];
+            BlockState[][][] overview = new BlockState[32][32][];
+            long[][] cacheTimestamp = new long[32][32];
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    int isChunkPresent = in.read();
+                    switch (isChunkPresent) {
+                        case CHUNK_PRESENT:
+                            byte[] bytes = new byte[CachedChunk.sizeInBytes(CachedChunk.size(dimension.height()))];
+                            in.readFully(bytes);
+                            packed[x][z] = CachedChunk.fromByteArray(bytes, dimension.height());
+                            location[x][z] = new HashMap<>();
+                            //this is top block in columns
+                            overview[x][z] = new BlockState[256];
+                            present[x][z] = true;
+                            break;
+                        case CHUNK_NOT_PRESENT:
+                            break;
+                        default:
+                            throw new IOException("Malformed stream");
+                    }
+                }
+            }
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    if (present[x][z]) {
+                        for (int i = 0; i < 256; i++) {
+                            overview[x][z][i] = BlockUtils.stringToBlockRequired(in.readUTF()).defaultBlockState();
                         }
                     }
                 }
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        if (present[x][z]) {
-                            // 16 * 16 * 256 = 65536 so a short is enough
-                            // ^ haha jokes on leijurv, java doesn't have unsigned types so that isn't correct
-                            //   also why would you have more than 32767 special blocks in a chunk
-                            // haha double jokes on you now it works for 65535 not just 32767
-                            int numSpecialBlockTypes = in.readShort() & 0xffff;
-                            for (int i = 0; i < numSpecialBlockTypes; i++) {
-                                String blockName = in.readUTF();
-                                BlockUtils.stringToBlockRequired(blockName);
-                                List<BlockPos> locs = new ArrayList<>();
-                                location[x][z].put(blockName, locs);
-                                int numLocations = in.readShort() & 0xffff;
-                                if (numLocations == 0) {
-                                    // an entire chunk full of air can happen in the end
-                                    numLocations = 65536;
-                                }
-                                for (int j = 0; j < numLocations; j++) {
-                                    byte xz = in.readByte();
-                                    int X = xz & 0x0f;
-                                    int Z = (xz >>> 4) & 0x0f;
-                                    int Y = in.readInt();
-                                    locs.add(new BlockPos(X, Y+dimension.minY(), Z));
-                                }
+            }
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    if (present[x][z]) {
+                        // 16 * 16 * 256 = 65536 so a short is enough
+                        // ^ haha jokes on leijurv, java doesn't have unsigned types so that isn't correct
+                        //   also why would you have more than 32767 special blocks in a chunk
+                        // haha double jokes on you now it works for 65535 not just 32767
+                        int numSpecialBlockTypes = in.readShort() & 0xffff;
+                        for (int i = 0; i < numSpecialBlockTypes; i++) {
+                            String blockName = in.readUTF();
+                            BlockUtils.stringToBlockRequired(blockName);
+                            List<BlockPos> locs = new ArrayList<>();
+                            location[x][z].put(blockName, locs);
+                            int numLocations = in.readShort() & 0xffff;
+                            if (numLocations == 0) {
+                                // an entire chunk full of air can happen in the end
+                                numLocations = 65536;
+                            }
+                            for (int j = 0; j < numLocations; j++) {
+                                byte xz = in.readByte();
+                                int X = xz & 0x0f;
+                                int Z = (xz >>> 4) & 0x0f;
+                                int Y = in.readInt();
+                                locs.add(new BlockPos(X, Y+dimension.minY(), Z));
                             }
                         }
                     }
                 }
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        if (present[x][z]) {
-                            cacheTimestamp[x][z] = in.readLong();
-                        }
+            }
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    if (present[x][z]) {
+                        cacheTimestamp[x][z] = in.readLong();
                     }
                 }
-                // only if the entire file was uncorrupted do we actually set the chunks
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        if (present[x][z]) {
-                            int regionX = this.x;
-                            int regionZ = this.z;
-                            int chunkX = x + 32 * regionX;
-                            int chunkZ = z + 32 * regionZ;
-                            this.chunks[x][z] = new CachedChunk(chunkX, chunkZ, dimension.height(), bitSets[x][z], overview[x][z], location[x][z], cacheTimestamp[x][z]);
-                        }
+            }
+            // only if the entire file was uncorrupted do we actually set the chunks
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    if (present[x][z]) {
+                        int regionX = this.x;
+                        int regionZ = this.z;
+                        int chunkX = x + 32 * regionX;
+                        int chunkZ = z + 32 * regionZ;
+                        chunks.set(x << 5 | z, new CachedChunk(chunkX, chunkZ, dimension.height(), packed[x][z], overview[x][z], location[x][z], cacheTimestamp[x][z]));
+                        offsets.set(x << 5 | z, 0);
                     }
                 }
             }
-            removeExpired();
-            hasUnsavedChanges = false;
-            long end = System.nanoTime() / 1000000L;
-            System.out.println("Loaded region successfully in " + (end - start) + "ms");
-        } catch (Exception ex) { // corrupted files can cause NullPointerExceptions as well as IOExceptions
+        }
+        CacheStats.bytesRead(Files.size(regionFile));
+    }
+
+    private synchronized CachedChunk loadChunk(int chunkX, int chunkZ) {
+        int index = chunkX << 5 | chunkZ;
+        byte[] payload = compressed.get(index);
+        if (payload != null) {
+            try {
+                chunks.set(index, readChunk(chunkX + 32 * this.x, chunkZ + 32 * this.z, payload, timestamps[index], true));
+                CacheStats.chunkDecompressed();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            } finally {
+                compressed.set(index, null);
+            }
+            return chunks.get(index);
+        }
+        if (offsets.get(index) == 0) {
+            return chunks.get(index); // another thread got here first, or it isn't cached
+        }
+        long start = System.nanoTime();
+        try {
+            chunks.set(index, readChunk(chunkX + 32 * this.x, chunkZ + 32 * this.z, readPayload(index), timestamps[index], fileHasNames()));
+            CacheStats.chunkRead(System.nanoTime() - start);
+        } catch (Exception ex) { // same as a corrupted region file, forget about the chunk
             ex.printStackTrace();
+        } finally {
+            // cleared only after the chunk is set, so that readers without the lock never see it as missing
+            offsets.set(index, 0);
         }
+        return chunks.get(index);
     }
 
-    public synchronized final void removeExpired() {
-        long expiry = Baritone.settings().cachedChunksExpirySeconds.value;
-        if (expiry < 0) {
+    /**
+     * @return Whether the chunks in {@link #file} refer to {@link #names}, rather than having every name written out
+     */
+    private boolean fileHasNames() {
+        return fileMagic == CACHED_REGION_MAGIC_NAMES || fileMagic == CACHED_REGION_MAGIC_SPECIAL;
+    }
+
+    private byte[] readPayload(int index) throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        }
+        byte[] payload = new byte[lengths[index]];
+        readFully(channel, ByteBuffer.wrap(payload), offsets.get(index));
+        CacheStats.bytesRead(payload.length);
+        return payload;
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
             return;
         }
-        long now = System.currentTimeMillis();
-        long oldestAcceptableAge = now - expiry * 1000L;
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        channel = null;
+    }
+
+    /**
+     * Closes the file that chunks are read from, for once this region has been dropped from RAM. It's opened again if
+     * anything still reads a chunk from it anyway.
+     */
+    synchronized void close() {
+        closeChannel();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    /**
+     * @param names       The name table of the file being written, any names it doesn't have yet are added to the end
+     * @param nameIndices The index of each name in the table
+     */
+    private byte[] writeChunk(CachedChunk chunk, List<String> names, Map<String, Integer> nameIndices) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            byte[] chunkBytes = chunk.toByteArray();
+            out.write(chunkBytes);
+            // Messy, but fills the empty 0s that should be trailing to fill up the space.
+            out.write(new byte[chunk.sizeInBytes - chunkBytes.length]);
+            for (int i = 0; i < 256; i++) {
+                writeVarInt(out, nameIndex(BlockUtils.blockToString(chunk.getOverview()[i].getBlock()), names, nameIndices));
+            }
+            Map<String, List<BlockPos>> locs = chunk.getRelativeBlocks();
+            writeVarInt(out, locs.size());
+            for (Map.Entry<String, List<BlockPos>> entry : locs.entrySet()) {
+                writeVarInt(out, nameIndex(entry.getKey(), names, nameIndices));
+                int[] positions = new int[entry.getValue().size()];
+                for (int i = 0; i < positions.length; i++) {
+                    BlockPos pos = entry.getValue().get(i);
+                    positions[i] = (pos.getY() - dimension.minY()) << 8 | pos.getZ() << 4 | pos.getX();
+                }
+                writePositions(out, positions);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int nameIndex(String name, List<String> names, Map<String, Integer> nameIndices) {
+        return nameIndices.computeIfAbsent(name, n -> {
+            names.add(n);
+            return names.size() - 1;
+        });
+    }
+
+    /**
+     * @param withNames Whether the payload refers to {@link #names}, rather than having every name written out
+     */
+    private CachedChunk readChunk(int chunkX, int chunkZ, byte[] payload, long cacheTimestamp, boolean withNames) throws IOException {
+        if (!withNames) {
+            return readChunkWithoutNames(chunkX, chunkZ, payload, cacheTimestamp);
+        }
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(payload)))) {
+            byte[] bytes = new byte[CachedChunk.sizeInBytes(CachedChunk.size(dimension.height()))];
+            in.readFully(bytes);
+            BlockState[] overview = new BlockState[256];
+            for (int i = 0; i < 256; i++) {
+                overview[i] = state(readVarInt(in));
+            }
+            Map<String, List<BlockPos>> location = new HashMap<>();
+            int numSpecialBlockTypes = readVarInt(in);
+            for (int i = 0; i < numSpecialBlockTypes; i++) {
+                int name = readVarInt(in);
+                state(name); // same as looking the name up, it has to be a real block
+                List<BlockPos> locs = new ArrayList<>();
+                location.put(names.get(name), locs);
+                for (int packed : readPositions(in)) {
+                    locs.add(new BlockPos(packed & 15, (packed >>> 8) + dimension.minY(), (packed >>> 4) & 15));
+                }
+            }
+            return new CachedChunk(chunkX, chunkZ, dimension.height(), CachedChunk.fromByteArray(bytes, dimension.height()), overview, location, cacheTimestamp);
+        }
+    }
+
+    private BlockState state(int name) throws IOException {
+        if (name < 0 || name >= names.size()) {
+            throw new IOException("Name " + name + " isn't in the table");
+        }
+        if (name >= states.length) {
+            states = Arrays.copyOf(states, names.size()); // compressing chunks adds names
+        }
+        if (states[name] == null) {
+            states[name] = BlockUtils.stringToBlockRequired(names.get(name)).defaultBlockState();
+        }
+        return states[name];
+    }
+
+    /**
+     * Reads a chunk from a file in the {@link #CACHED_REGION_MAGIC_INDEXED} format, where every name is written out
+     */
+    private CachedChunk readChunkWithoutNames(int chunkX, int chunkZ, byte[] payload, long cacheTimestamp) throws IOException {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(payload)))) {
+            byte[] bytes = new byte[CachedChunk.sizeInBytes(CachedChunk.size(dimension.height()))];
+            in.readFully(bytes);
+            BlockState[] overview = new BlockState[256];
+            for (int i = 0; i < 256; i++) {
+                overview[i] = BlockUtils.stringToBlockRequired(in.readUTF()).defaultBlockState();
+            }
+            Map<String, List<BlockPos>> location = new HashMap<>();
+            int numSpecialBlockTypes = in.readShort() & 0xffff;
+            for (int i = 0; i < numSpecialBlockTypes; i++) {
+                String blockName = in.readUTF();
+                BlockUtils.stringToBlockRequired(blockName);
+                List<BlockPos> locs = new ArrayList<>();
+                location.put(blockName, locs);
+                int numLocations = in.readShort() & 0xffff;
+                if (numLocations == 0) {
+                    // an entire chunk full of air can happen in the end
+                    numLocations = 65536;
+                }
+                for (int j = 0; j < numLocations; j++) {
+                    byte xz = in.readByte();
+                    int X = xz & 0x0f;
+                    int Z = (xz >>> 4) & 0x0f;
+                    int Y = in.readInt();
+                    locs.add(new BlockPos(X, Y + dimension.minY(), Z));
+                }
+            }
+            return new CachedChunk(chunkX, chunkZ, dimension.height(), CachedChunk.fromByteArray(bytes, dimension.height()), overview, location, cacheTimestamp);
+        }
+    }
+
+    /**
+     * Writes block positions within a chunk, each packed as {@code y << 8 | z << 4 | x}, as a count followed by the
+     * differences between them in ascending order. Special blocks tend to come in clusters, so most of those
+     * differences fit in a byte or two.
+     */
+    static void writePositions(DataOutput out, int[] positions) throws IOException {
+        int[] sorted = positions.clone();
+        Arrays.sort(sorted);
+        writeVarInt(out, sorted.length);
+        int previous = 0;
+        for (int position : sorted) {
+            writeVarInt(out, position - previous);
+            previous = position;
+        }
+    }
+
+    static int[] readPositions(DataInput in) throws IOException {
+        return readPositions(in, 16 * 16 * 4096);
+    }
+
+    /**
+     * @param max The most positions there can be
+     */
+    static int[] readPositions(DataInput in, int max) throws IOException {
+        int count = readVarInt(in);
+        if (count < 0 || count > max) {
+            throw new IOException("Malformed position count " + count);
+        }
+        int[] positions = new int[count];
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += readVarInt(in);
+            positions[i] = previous;
+        }
+        return positions;
+    }
+
+    /**
+     * Writes an unsigned int in as few bytes as it needs, 7 bits at a time with the high bit set if there's more
+     */
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte(value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * @return Whether the region file is in the old gzipped format
+     */
+    static boolean isLegacy(Path regionFile) throws IOException {
+        try (InputStream in = Files.newInputStream(regionFile)) {
+            // GZIPInputStream.GZIP_MAGIC, in the order it's written to disk
+            return in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+
+    /**
+     * Compresses every chunk that's in RAM, the same way it would be saved. They're read back as they're needed.
+     *
+     * @return How many bytes of RAM that saved, roughly
+     */
+    synchronized long compress() {
+        Map<String, Integer> nameIndices = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            nameIndices.put(names.get(i), i);
+        }
+        long saved = 0;
         for (int x = 0; x < 32; x++) {
             for (int z = 0; z < 32; z++) {
-                if (this.chunks[x][z] != null && this.chunks[x][z].cacheTimestamp < oldestAcceptableAge) {
-                    System.out.println("Removing chunk " + (x + 32 * this.x) + "," + (z + 32 * this.z) + " because it was cached " + (now - this.chunks[x][z].cacheTimestamp) / 1000L + " seconds ago, and max age is " + expiry);
-                    this.chunks[x][z] = null;
+                int index = x << 5 | z;
+                CachedChunk chunk = chunks.get(index);
+                if (chunk == null) {
+                    continue;
                 }
+                byte[] payload;
+                try {
+                    // appending to the names is fine, the file only refers to the ones it had
+                    payload = writeChunk(chunk, names, nameIndices);
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                    continue;
+                }
+                timestamps[index] = chunk.cacheTimestamp;
+                compressed.set(index, payload);
+                chunks.set(index, null); // only after it's in compressed, so it's never missing
+                saved += chunk.memoryBytes() - payload.length;
             }
         }
+        return saved;
     }
 
-    public synchronized final CachedChunk mostRecentlyModified() {
-        CachedChunk recent = null;
+    /**
+     * @return Roughly how many bytes of RAM this region takes up, not counting chunks that are only on disk
+     */
+    synchronized long residentBytes() {
+        long bytes = 0;
         for (int x = 0; x < 32; x++) {
             for (int z = 0; z < 32; z++) {
-                if (this.chunks[x][z] == null) {
-                    continue;
+                CachedChunk chunk = chunks.get(x << 5 | z);
+                byte[] payload = compressed.get(x << 5 | z);
+                if (chunk != null) {
+                    bytes += chunk.memoryBytes();
+                } else if (payload != null) {
+                    bytes += 16 + payload.length;
+                }
+            }
+        }
+        Map<String, long[]> index = specialIndex;
+        if (index != null) {
+            for (long[] positions : index.values()) {
+                bytes += 16 + positions.length * 8L;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return Whether any chunk is in RAM without being compressed
+     */
+    synchronized boolean hasUncompressedChunks() {
+        for (int i = 0; i < 1024; i++) {
+            if (chunks.get(i) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized final void removeExpired() {
+        removeExpired(Baritone.settings().cachedChunksExpirySeconds.value);
+    }
+
+    private void removeExpired(long expiry) {
+        if (expiry < 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long oldestAcceptableAge = now - expiry * 1000L;
+        for (int x = 0; x < 32; x++) {
+            for (int z = 0; z < 32; z++) {
+                int index = x << 5 | z;
+                CachedChunk chunk = chunks.get(index);
+                if (chunk != null && chunk.cacheTimestamp < oldestAcceptableAge) {
+                    System.out.println("Removing chunk " + (x + 32 * this.x) + "," + (z + 32 * this.z) + " because it was cached " + (now - chunk.cacheTimestamp) / 1000L + " seconds ago, and max age is " + expiry);
+                    chunks.set(index, null);
+                    reindex(x + 32 * this.x, z + 32 * this.z, Collections.emptyMap());
                 }
-                if (recent == null || this.chunks[x][z].cacheTimestamp > recent.cacheTimestamp) {
-                    recent = this.chunks[x][z];
+                if ((offsets.get(index) != 0 || compressed.get(index) != null) && this.timestamps[index] < oldestAcceptableAge) {
+                    System.out.println("Removing chunk " + (x + 32 * this.x) + "," + (z + 32 * this.z) + " because it was cached " + (now - this.timestamps[index]) / 1000L + " seconds ago, and max age is " + expiry);
+                    offsets.set(index, 0);
+                    compressed.set(index, null);
+                    reindex(x + 32 * this.x, z + 32 * this.z, Collections.emptyMap());
                 }
             }
         }
-        return recent;
     }
 
     /**
@@ -18,26 +18,37 @@
 package baritone.cache;
 
 import baritone.Baritone;
-import baritone.api.BaritoneAPI;
-import baritone.api.IBaritone;
 import baritone.api.cache.ICachedWorld;
-import baritone.api.cache.IWorldData;
+import baritone.api.pathing.calc.IPath;
+import baritone.api.pathing.goals.Goal;
+import baritone.api.pathing.goals.GoalXZ;
+import baritone.api.utils.BetterBlockPos;
 import baritone.api.utils.Helper;
-import com.google.common.cache.CacheBuilder;
+import baritone.api.utils.interfaces.IGoalRenderPos;
+import baritone.pathing.movement.CalculationContext;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.chunk.LevelChunk;
 import net.minecraft.world.level.dimension.DimensionType;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author Brady
@@ -51,9 +62,36 @@ public final class CachedWorld implements ICachedWorld, Helper {
     private static final int REGION_MAX = 30_000_000 / 512 + 1;
 
     /**
-     * A map of all of the cached regions.
+     * A map of all of the cached regions. Reading it never locks, so pathing threads don't wait on the packer or saver.
      */
-    private Long2ObjectMap<CachedRegion> cachedRegions = new Long2ObjectOpenHashMap<>();
+    private final RegionMap<CachedRegion> cachedRegions = new RegionMap<>();
+
+    /**
+     * Regions that are being loaded from disk, and aren't in {@link #cachedRegions} yet. Until they're done, they look
+     * exactly like regions that aren't cached at all.
+     */
+    private final Long2ObjectMap<CompletableFuture<CachedRegion>> pendingRegions = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * Loads regions from disk, so that nothing that can't afford to wait (the game thread, mostly) has to
+     */
+    private static final ExecutorService regionLoader = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "Baritone region loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * How far ahead of the player, in blocks, to start loading regions
+     */
+    private static final int PREFETCH_DISTANCE = 384;
+
+    private long lastPrefetched;
+
+    /**
+     * At most how many points along the path that the packer queue measures distance to
+     */
+    private static final int PACK_FOCUS_POINTS = 32;
 
     /**
      * The directory that the cached region files are saved to
@@ -61,19 +99,45 @@ public final class CachedWorld implements ICachedWorld, Helper {
     private final String directory;
 
     /**
-     * Queue of positions to pack. Refers to the toPackMap, in that every element of this queue will be a
-     * key in that map.
+     * Chunks waiting for a packer thread to get to them
+     */
+    private final ChunkPackQueue toPack = new ChunkPackQueue();
+
+    private int lastFocusChunkX = Integer.MIN_VALUE;
+    private int lastFocusChunkZ = Integer.MIN_VALUE;
+    private IPath lastFocusPath;
+    private Goal lastFocusGoal;
+
+    /**
+     * Regions that the player, their path or their goal are in, see {@link #focus}
+     */
+    private volatile LongSet pinnedRegions = new LongOpenHashSet();
+
+    /**
+     * Regions that were dropped from RAM to stay within budget, to count how many have to be loaded again
      */
-    private final LinkedBlockingQueue<ChunkPos> toPackQueue = new LinkedBlockingQueue<>();
+    private final LongSet evictedRegions = new LongOpenHashSet();
+
+    private final Object budgetLock = new Object();
 
     /**
-     * All chunk positions pending packing. This map will be updated in-place if a new update to the chunk occurs
-     * while waiting in the queue for the packer thread to get to it.
+     * Where {@link #enforceMemoryBudget} left off going around the regions
      */
-    private final Map<ChunkPos, LevelChunk> toPackMap = CacheBuilder.newBuilder().softValues().<ChunkPos, LevelChunk>build().asMap();
+    private int clockHand;
 
     private final DimensionType dimension;
 
+    private final ChunkGraph chunkGraph;
+
+    /**
+     * Rebuild the landmarks this often, so that they pick up newly cached chunks
+     */
+    private static final long LANDMARK_MAX_AGE_MS = 300_000;
+
+    private volatile LandmarkHeuristic landmarks;
+
+    private final AtomicBoolean buildingLandmarks = new AtomicBoolean();
+
     CachedWorld(Path directory, DimensionType dimension) {
         if (!Files.exists(directory)) {
             try {
@@ -83,8 +147,22 @@ public final class CachedWorld implements ICachedWorld, Helper {
         }
         this.directory = directory.toString();
         this.dimension = dimension;
+        this.chunkGraph = new ChunkGraph(this, dimension);
         System.out.println("Cached world directory: " + directory);
-        Baritone.getExecutor().execute(new PackerThread());
+        for (int i = 0; i < Math.max(1, Baritone.settings().chunkPackerThreads.value); i++) {
+            Baritone.getExecutor().execute(new PackerThread());
+        }
+        Baritone.getExecutor().execute(this::convertLegacyRegions);
+        Baritone.getExecutor().execute(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(10000);
+                    enforceMemoryBudget();
+                }
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        });
         Baritone.getExecutor().execute(() -> {
             try {
                 Thread.sleep(30000);
@@ -103,9 +181,31 @@ public final class CachedWorld implements ICachedWorld, Helper {
 
     @Override
     public final void queueForPacking(LevelChunk chunk) {
-        if (toPackMap.put(chunk.getPos(), chunk) == null) {
-            toPackQueue.add(chunk.getPos());
+        toPack.add(chunk);
+    }
+
+    /**
+     * Applies block changes straight to the cached version of a chunk. The whole chunk is queued for packing instead
+     * if it isn't cached, its region isn't in RAM, it's already queued anyway, or it would have to be read from disk
+     * or unpacked first, since this is called on the main thread.
+     *
+     * @param chunk     The chunk, with the changes already in it
+     * @param positions Where the blocks changed, in world coordinates
+     */
+    public final void updateBlocks(LevelChunk chunk, Collection<BlockPos> positions) {
+        ChunkPos pos = chunk.getPos();
+        CachedRegion region = getRegion(pos.x >> 5, pos.z >> 5);
+        if (region != null && !toPack.contains(pos)) {
+            CachedChunk cached = region.getChunkInMemory(pos.x & 31, pos.z & 31);
+            if (cached != null) {
+                CachedChunk updated = ChunkPacker.update(cached, chunk, positions);
+                if (region.replaceCachedChunk(pos.x & 31, pos.z & 31, cached, updated)) {
+                    chunkGraph.chunkUpdated(updated);
+                    return;
+                }
+            }
         }
+        queueForPacking(chunk);
     }
 
     @Override
@@ -123,7 +223,7 @@ public final class CachedWorld implements ICachedWorld, Helper {
 
     @Override
     public final ArrayList<BlockPos> getLocationsOf(String block, int maximum, int centerX, int centerZ, int maxRegionDistanceSq) {
-        ArrayList<BlockPos> res = new ArrayList<>();
+        LongArrayList found = new LongArrayList();
         int centerRegionX = centerX >> 9;
         int centerRegionZ = centerZ >> 9;
 
@@ -137,24 +237,112 @@ public final class CachedWorld implements ICachedWorld, Helper {
                     }
                     int regionX = xoff + centerRegionX;
                     int regionZ = zoff + centerRegionZ;
-                    CachedRegion region = getOrCreateRegion(regionX, regionZ);
+                    CachedRegion region = getRegion(regionX, regionZ);
                     if (region != null) {
-                        // TODO: 100% verify if this or addAll is faster.
-                        res.addAll(region.getLocationsOf(block));
+                        if (!region.hasSpecialIndex()) {
+                            // its file is in an older format, left out until it's been read in the background
+                            indexLater(region);
+                        }
+                        long[] positions = region.getLocationsOf(block);
+                        if (positions != null) {
+                            found.addElements(found.size(), positions);
+                        }
+                    } else {
+                        // this used to load the region right here, on whatever thread asked (usually the game thread)
+                        // now it's left out until it's loaded, just like a region that isn't cached
+                        deferLoad(regionX, regionZ);
                     }
                 }
             }
-            if (res.size() >= maximum) {
-                return res;
+            if (found.size() >= maximum) {
+                break;
             }
             searchRadius++;
         }
+        // everything in the regions that were searched is returned like always, since callers filter some of it out,
+        // but nearest first
+        long[] positions = found.toLongArray();
+        LongArrays.quickSort(positions, (a, b) -> Long.compare(distanceSq(a, centerX, centerZ), distanceSq(b, centerX, centerZ)));
+        ArrayList<BlockPos> res = new ArrayList<>(positions.length);
+        for (long pos : positions) {
+            res.add(BlockPos.of(pos));
+        }
         return res;
     }
 
+    /**
+     * Builds the index of special blocks of a region on the region loader, since it reads every chunk in the region
+     */
+    private void indexLater(CachedRegion region) {
+        if (region.indexing.compareAndSet(false, true)) {
+            regionLoader.execute(() -> {
+                try {
+                    region.buildSpecialIndex();
+                } finally {
+                    region.indexing.set(false);
+                }
+            });
+        }
+    }
+
+    private static long distanceSq(long pos, int x, int z) {
+        long dx = BlockPos.getX(pos) - x;
+        long dz = BlockPos.getZ(pos) - z;
+        return dx * dx + dz * dz;
+    }
+
     private void updateCachedChunk(CachedChunk chunk) {
-        CachedRegion region = getOrCreateRegion(chunk.x >> 5, chunk.z >> 5);
-        region.updateCachedChunk(chunk.x & 31, chunk.z & 31, chunk);
+        // a region that's being evicted turns the chunk away, and then it goes in the one loaded in its place
+        while (!getOrCreateRegion(chunk.x >> 5, chunk.z >> 5).updateCachedChunk(chunk.x & 31, chunk.z & 31, chunk)) {
+            Thread.yield(); // it's saved, and about to be taken out of the map
+        }
+        chunkGraph.chunkUpdated(chunk);
+    }
+
+    /**
+     * Returns the cached chunk at the specified chunk coordinates. Reads it from disk, or unpacks it, if it hasn't
+     * been needed since its region was loaded, so this shouldn't be called from the main thread.
+     *
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The cached chunk, or {@code null} if it isn't cached or its region isn't in RAM
+     */
+    final CachedChunk getChunk(int chunkX, int chunkZ) {
+        CachedRegion region = getRegion(chunkX >> 5, chunkZ >> 5);
+        if (region == null) {
+            return null;
+        }
+        return region.getChunk(chunkX & 31, chunkZ & 31);
+    }
+
+    public final ChunkGraph getChunkGraph() {
+        return chunkGraph;
+    }
+
+    /**
+     * Returns the landmark heuristic, if there is one that's a lower bound for this context. Starts building a new
+     * one in the background if there isn't, or if the one there is has gotten old or was built too far away.
+     *
+     * @param blockX  The x of where the search starts
+     * @param blockZ  The z of where the search starts
+     * @param context The context of the search
+     * @return The landmark heuristic, or {@code null} if there isn't a usable one yet
+     */
+    public final LandmarkHeuristic getLandmarks(int blockX, int blockZ, CalculationContext context) {
+        double[] rates = LandmarkHeuristic.rates(context);
+        LandmarkHeuristic current = landmarks;
+        if (current == null || !current.builtWith(rates) || current.offCenter(blockX, blockZ) || System.currentTimeMillis() - current.timestamp > LANDMARK_MAX_AGE_MS) {
+            if (buildingLandmarks.compareAndSet(false, true)) {
+                Baritone.getExecutor().execute(() -> {
+                    try {
+                        landmarks = LandmarkHeuristic.build(this, blockX >> 4, blockZ >> 4, rates);
+                    } finally {
+                        buildingLandmarks.set(false);
+                    }
+                });
+            }
+        }
+        return current != null && current.validFor(rates) ? current : null;
     }
 
     @Override
@@ -166,7 +354,7 @@ public final class CachedWorld implements ICachedWorld, Helper {
                     region.removeExpired();
                 }
             }); // even if we aren't saving to disk, still delete expired old chunks from RAM
-            prune();
+            enforceMemoryBudget();
             return;
         }
         long start = System.nanoTime() / 1000000L;
@@ -177,62 +365,116 @@ public final class CachedWorld implements ICachedWorld, Helper {
         });
         long now = System.nanoTime() / 1000000L;
         System.out.println("World save took " + (now - start) + "ms");
-        prune();
+        System.out.println(CacheStats.summary());
+        enforceMemoryBudget();
     }
 
     /**
-     * Delete regions that are too far from the player
+     * Rewrites every region file in the old gzipped format in the indexed one, so that a big cache directory doesn't
+     * have to wait for each region to be visited again. Regions already in RAM are left alone, they'll be rewritten
+     * the next time they're saved anyway.
+     * <p>
+     * Each region is loaded through {@link #loadRegion}, so that it's the same one the packer threads add to, and
+     * nothing else can save a newer version of the file that this one then overwrites. It's dropped from RAM again
+     * afterwards, unless something started using it in the meantime.
      */
-    private synchronized void prune() {
-        if (!Baritone.settings().pruneRegionsFromRAM.value) {
+    private void convertLegacyRegions() {
+        if (!Baritone.settings().chunkCaching.value) {
             return;
         }
-        BlockPos pruneCenter = guessPosition();
-        for (CachedRegion region : allRegions()) {
-            if (region == null) {
-                continue;
-            }
-            int distX = ((region.getX() << 9) + 256) - pruneCenter.getX();
-            int distZ = ((region.getZ() << 9) + 256) - pruneCenter.getZ();
-            double dist = Math.sqrt(distX * distX + distZ * distZ);
-            if (dist > 1024) {
-                logDebug("Deleting cached region from ram");
-                cachedRegions.remove(getRegionID(region.getX(), region.getZ()));
+        long start = System.nanoTime() / 1000000L;
+        int converted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(directory), "r.*.bcr")) {
+            for (Path file : files) {
+                String[] parts = file.getFileName().toString().split("\\.");
+                int regionX;
+                int regionZ;
+                try {
+                    regionX = Integer.parseInt(parts[1]);
+                    regionZ = Integer.parseInt(parts[2]);
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+                    continue;
+                }
+                if (getRegion(regionX, regionZ) != null || !CachedRegion.isLegacy(file)) {
+                    continue;
+                }
+                CachedRegion region = loadRegion(regionX, regionZ).join();
+                region.save(directory);
+                if (!region.referenced && !pinnedRegions.contains(getRegionID(regionX, regionZ))) {
+                    evict(region);
+                }
+                CacheStats.regionConverted();
+                converted++;
             }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        if (converted > 0) {
+            long now = System.nanoTime() / 1000000L;
+            System.out.println("Converted " + converted + " cached regions to the indexed format in " + (now - start) + "ms");
+            System.out.println(CacheStats.summary());
         }
     }
 
     /**
-     * If we are still in this world and dimension, return player feet, otherwise return most recently modified chunk
+     * Keeps the regions in RAM within {@link baritone.api.Settings#cachedRegionsMemoryBudgetMB}. Goes around the regions
+     * like a clock, and each one that hasn't been used since the last time around is compressed, or if it already was,
+     * saved and dropped from RAM. Regions that the player, their path or their goal are in are left alone.
      */
-    private BlockPos guessPosition() {
-        for (IBaritone ibaritone : BaritoneAPI.getProvider().getAllBaritones()) {
-            IWorldData data = ibaritone.getWorldProvider().getCurrentWorld();
-            if (data != null && data.getCachedWorld() == this && ibaritone.getPlayerContext().player() != null) {
-                return ibaritone.getPlayerContext().playerFeet();
-            }
+    private void enforceMemoryBudget() {
+        if (!Baritone.settings().pruneRegionsFromRAM.value) {
+            return;
         }
-        CachedChunk mostRecentlyModified = null;
-        for (CachedRegion region : allRegions()) {
-            if (region == null) {
-                continue;
+        synchronized (budgetLock) {
+            long budget = Baritone.settings().cachedRegionsMemoryBudgetMB.value * 1024L * 1024L;
+            List<CachedRegion> regions = allRegions();
+            long resident = 0;
+            for (CachedRegion region : regions) {
+                resident += region.residentBytes();
             }
-            CachedChunk ch = region.mostRecentlyModified();
-            if (ch == null) {
-                continue;
-            }
-            if (mostRecentlyModified == null || mostRecentlyModified.cacheTimestamp < ch.cacheTimestamp) {
-                mostRecentlyModified = ch;
+            LongSet pinned = this.pinnedRegions;
+            // the first time around only clears the referenced bits, so two times around is as far as it ever has to go
+            for (int steps = 0; steps < regions.size() * 2 && resident > budget; steps++) {
+                CachedRegion region = regions.get(Math.floorMod(clockHand++, regions.size()));
+                if (pinned.contains(getRegionID(region.getX(), region.getZ()))) {
+                    continue;
+                }
+                if (region.referenced) {
+                    region.referenced = false;
+                    continue;
+                }
+                if (region.hasUncompressedChunks()) {
+                    resident -= region.compress();
+                    CacheStats.regionCompressed();
+                } else {
+                    resident -= region.residentBytes();
+                    evict(region);
+                }
             }
+            CacheStats.residentBytes(resident);
         }
-        if (mostRecentlyModified == null) {
-            return new BlockPos(0, 0, 0);
+    }
+
+    /**
+     * Saves a region and drops it from RAM. It's detached before it's saved, under the same lock that caching a chunk
+     * in it takes, so a chunk is either in the saved file or turned away and cached again in the region that's loaded
+     * from that file in its place. It's only taken out of the map once it's saved, so that region can't be loaded from
+     * an older file.
+     */
+    private void evict(CachedRegion region) {
+        region.detach(Baritone.settings().chunkCaching.value ? this.directory : null);
+        region.close();
+        long id = getRegionID(region.getX(), region.getZ());
+        synchronized (this) {
+            cachedRegions.remove(id);
+            evictedRegions.add(id);
         }
-        return new BlockPos((mostRecentlyModified.x << 4) + 8, 0, (mostRecentlyModified.z << 4) + 8);
+        CacheStats.regionEvicted();
+        logDebug("Deleting cached region " + region.getX() + "," + region.getZ() + " from ram");
     }
 
-    private synchronized List<CachedRegion> allRegions() {
-        return new ArrayList<>(this.cachedRegions.values());
+    private List<CachedRegion> allRegions() {
+        return this.cachedRegions.values();
     }
 
     @Override
@@ -248,8 +490,12 @@ public final class CachedWorld implements ICachedWorld, Helper {
     }
 
     @Override
-    public final synchronized CachedRegion getRegion(int regionX, int regionZ) {
-        return cachedRegions.get(getRegionID(regionX, regionZ));
+    public final CachedRegion getRegion(int regionX, int regionZ) {
+        CachedRegion region = cachedRegions.get(getRegionID(regionX, regionZ));
+        if (region != null && !region.referenced) {
+            region.referenced = true;
+        }
+        return region;
     }
 
     /**
@@ -260,16 +506,128 @@ public final class CachedWorld implements ICachedWorld, Helper {
      * @param regionZ The region Z coordinate
      * @return The region located at the specified coordinates
      */
-    private synchronized CachedRegion getOrCreateRegion(int regionX, int regionZ) {
-        return cachedRegions.computeIfAbsent(getRegionID(regionX, regionZ), id -> {
+    private CachedRegion getOrCreateRegion(int regionX, int regionZ) {
+        CachedRegion region = getRegion(regionX, regionZ);
+        if (region != null) {
+            return region;
+        }
+        // only packer threads get here, and it really does need the region from disk before it can add to it
+        return loadRegion(regionX, regionZ).join();
+    }
+
+    /**
+     * Starts loading the region at the specified region coordinates in the background, if it isn't loaded or
+     * loading already. The region stays invisible to {@link #getRegion} until it's done.
+     *
+     * @param regionX The region X coordinate
+     * @param regionZ The region Z coordinate
+     * @return A future completing with the loaded region
+     */
+    public synchronized CompletableFuture<CachedRegion> loadRegion(int regionX, int regionZ) {
+        long id = getRegionID(regionX, regionZ);
+        CachedRegion existing = cachedRegions.get(id);
+        if (existing != null) {
+            return CompletableFuture.completedFuture(existing);
+        }
+        CompletableFuture<CachedRegion> pending = pendingRegions.get(id);
+        if (pending != null) {
+            return pending;
+        }
+        if (evictedRegions.remove(id)) {
+            CacheStats.regionReloaded();
+        }
+        pending = CompletableFuture.supplyAsync(() -> {
             CachedRegion newRegion = new CachedRegion(regionX, regionZ, dimension);
             newRegion.load(this.directory);
+            synchronized (this) {
+                cachedRegions.put(id, newRegion);
+                pendingRegions.remove(id);
+            }
             return newRegion;
-        });
+        }, regionLoader);
+        pendingRegions.put(id, pending);
+        return pending;
     }
 
     public void tryLoadFromDisk(int regionX, int regionZ) {
-        getOrCreateRegion(regionX, regionZ);
+        if (getRegion(regionX, regionZ) == null) {
+            deferLoad(regionX, regionZ);
+        }
+    }
+
+    private void deferLoad(int regionX, int regionZ) {
+        CacheStats.regionLoadDeferred();
+        loadRegion(regionX, regionZ);
+    }
+
+    /**
+     * Starts loading the regions the player is in and is heading towards, so that they're usually ready by the time
+     * anything needs them.
+     *
+     * @param feet    Where the player is
+     * @param motionX The player's x velocity
+     * @param motionZ The player's z velocity
+     */
+    public void prefetch(BlockPos feet, double motionX, double motionZ) {
+        int aheadX = feet.getX();
+        int aheadZ = feet.getZ();
+        double speed = Math.sqrt(motionX * motionX + motionZ * motionZ);
+        if (speed > 0.01) {
+            aheadX += (int) (motionX / speed * PREFETCH_DISTANCE);
+            aheadZ += (int) (motionZ / speed * PREFETCH_DISTANCE);
+        }
+        long ahead = getRegionID(aheadX >> 9, aheadZ >> 9) ^ getRegionID(feet.getX() >> 9, feet.getZ() >> 9) * 31;
+        if (ahead == lastPrefetched) {
+            return; // nothing changed since last tick
+        }
+        lastPrefetched = ahead;
+        loadRegion(feet.getX() >> 9, feet.getZ() >> 9);
+        loadRegion(aheadX >> 9, aheadZ >> 9);
+    }
+
+    /**
+     * Makes the packer threads get to the chunks nearest the player and their path first, and keeps the regions that
+     * the player, their path and their goal are in from being compressed or dropped from RAM
+     *
+     * @param feet Where the player is
+     * @param path The path being executed, if any
+     * @param goal The goal, if any
+     */
+    public void focus(BlockPos feet, IPath path, Goal goal) {
+        int chunkX = feet.getX() >> 4;
+        int chunkZ = feet.getZ() >> 4;
+        if (chunkX == lastFocusChunkX && chunkZ == lastFocusChunkZ && path == lastFocusPath && goal == lastFocusGoal) {
+            return; // nothing changed since last tick
+        }
+        lastFocusChunkX = chunkX;
+        lastFocusChunkZ = chunkZ;
+        lastFocusPath = path;
+        lastFocusGoal = goal;
+        List<BetterBlockPos> positions = path == null ? new ArrayList<>() : path.positions();
+        LongSet pinned = new LongOpenHashSet();
+        pinned.add(getRegionID(feet.getX() >> 9, feet.getZ() >> 9));
+        for (BetterBlockPos pos : positions) {
+            pinned.add(getRegionID(pos.x >> 9, pos.z >> 9));
+        }
+        if (goal instanceof IGoalRenderPos) {
+            BlockPos pos = ((IGoalRenderPos) goal).getGoalPos();
+            pinned.add(getRegionID(pos.getX() >> 9, pos.getZ() >> 9));
+        } else if (goal instanceof GoalXZ) {
+            pinned.add(getRegionID(((GoalXZ) goal).getX() >> 9, ((GoalXZ) goal).getZ() >> 9));
+        }
+        pinnedRegions = pinned;
+        // one point every few chunks of path is plenty, the queue measures to every one of them for every chunk
+        int step = Math.max(1, positions.size() / PACK_FOCUS_POINTS);
+        int count = 1 + (positions.size() + step - 1) / step;
+        int[] focusX = new int[count];
+        int[] focusZ = new int[count];
+        focusX[0] = chunkX;
+        focusZ[0] = chunkZ;
+        for (int i = 0, j = 1; i < positions.size(); i += step, j++) {
+            focusX[j] = positions.get(i).x >> 4;
+            focusZ[j] = positions.get(i).z >> 4;
+        }
+        toPack.focus(focusX, focusZ);
     }
 
     /**
@@ -304,13 +662,18 @@ public final class CachedWorld implements ICachedWorld, Helper {
         public void run() {
             while (true) {
                 try {
-                    ChunkPos pos = toPackQueue.take();
-                    LevelChunk chunk = toPackMap.remove(pos);
-                    if (toPackQueue.size() > Baritone.settings().chunkPackerQueueMaxSize.value) {
-                        continue;
+                    ChunkPackQueue.Pending pending = toPack.take();
+                    try {
+                        LevelChunk chunk = pending.chunk();
+                        if (chunk == null) {
+                            continue;
+                        }
+                        CachedChunk cached = ChunkPacker.pack(chunk);
+                        CachedWorld.this.updateCachedChunk(cached);
+                        CacheStats.packLag(System.nanoTime() - pending.queuedAt);
+                    } finally {
+                        toPack.done(pending);
                     }
-                    CachedChunk cached = ChunkPacker.pack(chunk);
-                    CachedWorld.this.updateCachedChunk(cached);
                     //System.out.println("Processed chunk at " + chunk.x + "," + chunk.z);
                 } catch (InterruptedException e) {
                     e.printStackTrace();
@@ -0,0 +1,271 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package baritone.cache;
+
+import baritone.api.utils.BetterBlockPos;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.dimension.DimensionType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+
+import static baritone.api.pathing.movement.ActionCosts.COST_INF;
+import static baritone.api.pathing.movement.ActionCosts.WALK_ONE_BLOCK_COST;
+
+/**
+ * Routes across a {@link CachedWorld} a chunk at a time, in the style of hierarchical pathfinding (HPA*)
+ * <p>
+ * The graph is made of the portals of each chunk's {@link ChunkSummary}. Within a chunk, portals are connected by
+ * the costs worked out when the summary was built, and each portal is connected to the portals of the neighboring
+ * chunk that its entrance lines up with. Chunks that aren't cached are assumed to be open ground, the same guess
+ * that a {@link baritone.api.pathing.goals.GoalXZ} makes.
+ * <p>
+ * Summaries are built the first time a route needs them and rebuilt whenever their chunk is packed again. They
+ * outlive the regions they were made from being pruned from RAM. Routes never load regions, but building a summary
+ * can read its chunk from disk or unpack it, so they're planned on the pathing thread rather than the main thread.
+ */
+public final class ChunkGraph {
+
+    /**
+     * Roughly 100MB worth of summaries, start over if there are more than this
+     */
+    private static final int MAX_SUMMARIES = 1 << 16;
+
+    private static final int MAX_EXPANSIONS = 200_000;
+
+    /**
+     * Give up and let the block level search guess, rather than hold up the search waiting on a route
+     */
+    private static final long TIMEOUT_MS = 100;
+
+    private final CachedWorld world;
+    private final DimensionType dimension;
+    private final Long2ObjectOpenHashMap<ChunkSummary> summaries = new Long2ObjectOpenHashMap<>();
+
+    ChunkGraph(CachedWorld world, DimensionType dimension) {
+        this.world = world;
+        this.dimension = dimension;
+    }
+
+    /**
+     * Called from the packer thread whenever a chunk is (re)packed
+     */
+    void chunkUpdated(CachedChunk chunk) {
+        long key = ChunkPos.asLong(chunk.x, chunk.z);
+        synchronized (summaries) {
+            if (!summaries.containsKey(key)) {
+                return; // never needed so far, build it when it is
+            }
+        }
+        ChunkSummary summary = new ChunkSummary(chunk);
+        synchronized (summaries) {
+            summaries.put(key, summary);
+        }
+    }
+
+    private ChunkSummary summary(int chunkX, int chunkZ) {
+        long key = ChunkPos.asLong(chunkX, chunkZ);
+        synchronized (summaries) {
+            ChunkSummary summary = summaries.get(key);
+            if (summary != null) {
+                return summary;
+            }
+        }
+        CachedChunk chunk = world.getChunk(chunkX, chunkZ);
+        if (chunk == null) {
+            return ChunkSummary.UNCACHED; // not remembered, since it could be cached at any time
+        }
+        ChunkSummary summary = new ChunkSummary(chunk);
+        synchronized (summaries) {
+            if (summaries.size() >= MAX_SUMMARIES) {
+                summaries.clear();
+            }
+            summaries.put(key, summary);
+        }
+        return summary;
+    }
+
+    private ChunkSummary.Surface surface(int chunkX, int chunkZ) {
+        CachedChunk chunk = world.getChunk(chunkX, chunkZ);
+        return chunk == null ? ChunkSummary.Surface.unknown() : ChunkSummary.Surface.of(chunk);
+    }
+
+    /**
+     * Finds a coarse route between two columns.
+     *
+     * @param start The position to start from
+     * @param goalX The x coordinate to end at
+     * @param goalZ The z coordinate to end at
+     * @return The portals to walk through in order, ending with the goal column, or empty if there is no route at all
+     */
+    public Optional<List<BetterBlockPos>> route(BetterBlockPos start, int goalX, int goalZ) {
+        if (dimension.hasCeiling()) {
+            return Optional.empty(); // the surface of the nether is the roof
+        }
+        long startTime = System.currentTimeMillis();
+        int startChunkX = start.x >> 4;
+        int startChunkZ = start.z >> 4;
+        int goalChunkX = goalX >> 4;
+        int goalChunkZ = goalZ >> 4;
+        int goalCell = (goalZ & 15) << 4 | (goalX & 15);
+        double[] fromStart = surface(startChunkX, startChunkZ).costsFrom((start.z & 15) << 4 | (start.x & 15));
+        // walking out to the goal is assumed to cost the same as walking in from it
+        double[] toGoal = surface(goalChunkX, goalChunkZ).costsFrom(goalCell);
+
+        Long2ObjectOpenHashMap<Node> nodes = new Long2ObjectOpenHashMap<>();
+        PriorityQueue<Entry> openSet = new PriorityQueue<>((a, b) -> Double.compare(a.combinedCost, b.combinedCost));
+        double bestCost = COST_INF;
+        Node bestEnd = null;
+        if (startChunkX == goalChunkX && startChunkZ == goalChunkZ) {
+            bestCost = fromStart[goalCell];
+        }
+        ChunkSummary startSummary = summary(startChunkX, startChunkZ);
+        for (int p = 0; p < startSummary.numPortals; p++) {
+            double cost = fromStart[startSummary.portalCell(p)];
+            if (cost < COST_INF) {
+                relax(nodes, openSet, startChunkX, startChunkZ, p, startSummary, cost, null, goalX, goalZ);
+            }
+        }
+        int expanded = 0;
+        while (!openSet.isEmpty() && expanded < MAX_EXPANSIONS) {
+            if ((expanded & 1023) == 0 && System.currentTimeMillis() - startTime > TIMEOUT_MS) {
+                break;
+            }
+            Entry entry = openSet.poll();
+            Node current = entry.node;
+            if (current.closed || entry.combinedCost != current.combinedCost) {
+                continue; // stale entry, it was reinserted with a lower cost
+            }
+            if (current.combinedCost >= bestCost) {
+                break;
+            }
+            current.closed = true;
+            expanded++;
+            ChunkSummary summary = current.summary;
+            if (current.chunkX == goalChunkX && current.chunkZ == goalChunkZ) {
+                double cost = current.cost + toGoal[summary.portalCell(current.portal)];
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestEnd = current;
+                }
+            }
+            // across the chunk to its other portals
+            for (int p = 0; p < summary.numPortals; p++) {
+                double cost = summary.portalCosts[current.portal * summary.numPortals + p];
+                if (p != current.portal && cost < COST_INF) {
+                    relax(nodes, openSet, current.chunkX, current.chunkZ, p, summary, current.cost + cost, current, goalX, goalZ);
+                }
+            }
+            // over the border into the neighboring chunk
+            int side = summary.portalSide[current.portal];
+            int neighborX = current.chunkX + (side == ChunkSummary.WEST ? -1 : side == ChunkSummary.EAST ? 1 : 0);
+            int neighborZ = current.chunkZ + (side == ChunkSummary.NORTH ? -1 : side == ChunkSummary.SOUTH ? 1 : 0);
+            ChunkSummary neighbor = summary(neighborX, neighborZ);
+            int neighborSide = ChunkSummary.opposite(side);
+            int along = summary.portalAlong[current.portal];
+            for (int q = 0; q < neighbor.numPortals; q++) {
+                if (neighbor.portalSide[q] != neighborSide) {
+                    continue;
+                }
+                // cross wherever the two entrances overlap, as close to both portals as possible
+                int low = Math.max(summary.segmentStart[current.portal], neighbor.segmentStart[q]);
+                int high = Math.min(summary.segmentEnd[current.portal], neighbor.segmentEnd[q]);
+                if (low > high) {
+                    continue;
+                }
+                int cross = Math.max(low, Math.min(high, along));
+                double step = ChunkSummary.step(summary.borderStandY(side, cross), neighbor.borderStandY(neighborSide, cross), neighbor.borderWater(neighborSide, cross));
+                if (step >= COST_INF) {
+                    continue;
+                }
+                double cost = current.cost + (Math.abs(along - cross) + Math.abs(cross - neighbor.portalAlong[q])) * WALK_ONE_BLOCK_COST + step;
+                relax(nodes, openSet, neighborX, neighborZ, q, neighbor, cost, current, goalX, goalZ);
+            }
+        }
+        if (bestCost >= COST_INF) {
+            return Optional.empty();
+        }
+        List<BetterBlockPos> route = new ArrayList<>();
+        route.add(new BetterBlockPos(goalX, start.y, goalZ));
+        for (Node node = bestEnd; node != null; node = node.previous) {
+            int cell = node.summary.portalCell(node.portal);
+            int standY = node.summary.borderStandY(node.summary.portalSide[node.portal], node.summary.portalAlong[node.portal]);
+            int y = standY == ChunkSummary.UNKNOWN ? start.y : standY + dimension.minY();
+            route.add(new BetterBlockPos(node.chunkX << 4 | (cell & 15), y, node.chunkZ << 4 | (cell >> 4)));
+        }
+        Collections.reverse(route);
+        return Optional.of(route);
+    }
+
+    private static void relax(Long2ObjectOpenHashMap<Node> nodes, PriorityQueue<Entry> openSet, int chunkX, int chunkZ, int portal, ChunkSummary summary, double cost, Node previous, int goalX, int goalZ) {
+        long key = ((long) (chunkX & 0x3FFFFF) << 28) | ((long) (chunkZ & 0x3FFFFF) << 6) | portal;
+        Node node = nodes.get(key);
+        if (node == null) {
+            node = new Node(chunkX, chunkZ, portal, summary);
+            int cell = summary.portalCell(portal);
+            int dx = (chunkX << 4 | (cell & 15)) - goalX;
+            int dz = (chunkZ << 4 | (cell >> 4)) - goalZ;
+            node.estimatedCostToGoal = Math.sqrt((double) dx * dx + (double) dz * dz) * WALK_ONE_BLOCK_COST;
+            nodes.put(key, node);
+        }
+        if (node.closed || cost >= node.cost) {
+            return;
+        }
+        node.cost = cost;
+        node.combinedCost = cost + node.estimatedCostToGoal;
+        node.previous = previous;
+        openSet.add(new Entry(node)); // the old entry, if any, is left behind and skipped once it comes up
+    }
+
+    /**
+     * A node in the open set. Nodes aren't put in directly, since changing their cost would break the heap.
+     */
+    private static final class Entry {
+
+        final Node node;
+        final double combinedCost;
+
+        Entry(Node node) {
+            this.node = node;
+            this.combinedCost = node.combinedCost;
+        }
+    }
+
+    private static final class Node {
+
+        final int chunkX;
+        final int chunkZ;
+        final int portal;
+        final ChunkSummary summary;
+        double estimatedCostToGoal;
+        double cost = COST_INF;
+        double combinedCost;
+        Node previous;
+        boolean closed;
+
+        Node(int chunkX, int chunkZ, int portal, ChunkSummary summary) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.portal = portal;
+            this.summary = summary;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import baritone.Baritone;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.LevelChunk;
+
+import java.lang.ref.SoftReference;
+
+/**
+ * Chunks waiting to be packed, handed out nearest first to the player and the path they're on. A chunk that's queued
+ * again before it's packed keeps its place and just gets its newer contents. Once there are more than
+ * {@code chunkPackerQueueMaxSize}, the farthest ones are dropped.
+ * <p>
+ * Every take looks through the whole queue. It's a couple thousand entries at most, which is nothing next to packing
+ * a chunk, and it means moving doesn't have to reorder anything.
+ * <p>
+ * A chunk that's being packed isn't handed out again until that's {@link #done}, so that two packer threads can't
+ * race and leave the older contents in the cache.
+ */
+final class ChunkPackQueue {
+
+    /**
+     * A chunk that's waiting to be packed
+     */
+    static final class Pending {
+
+        /**
+         * Soft so that a long queue doesn't keep unloaded chunks from being collected, they're skipped if they are
+         */
+        private SoftReference<LevelChunk> chunk;
+
+        /**
+         * When the chunk was first queued, in {@link System#nanoTime}
+         */
+        final long queuedAt;
+
+        private final long order;
+
+        private final int chunkX;
+        private final int chunkZ;
+
+        /**
+         * The squared distance in chunks to the nearest focus
+         */
+        private long distance;
+
+        private Pending(LevelChunk chunk, long order) {
+            this.chunk = new SoftReference<>(chunk);
+            this.queuedAt = System.nanoTime();
+            this.order = order;
+            this.chunkX = chunk.getPos().x;
+            this.chunkZ = chunk.getPos().z;
+        }
+
+        /**
+         * @return The chunk, or null if it's been collected since
+         */
+        LevelChunk chunk() {
+            return chunk.get();
+        }
+
+        private boolean before(Pending other) {
+            return distance < other.distance || (distance == other.distance && order < other.order);
+        }
+    }
+
+    private final Long2ObjectOpenHashMap<Pending> pending = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * Chunks that have been taken but aren't done yet
+     */
+    private final LongOpenHashSet packing = new LongOpenHashSet();
+
+    private long nextOrder;
+
+    /**
+     * The chunk x and z of where the player is and the points along their path, that distance is measured to
+     */
+    private int[] focusX = new int[0];
+    private int[] focusZ = new int[0];
+
+    synchronized void add(LevelChunk chunk) {
+        long key = ChunkPos.asLong(chunk.getPos().x, chunk.getPos().z);
+        Pending existing = pending.get(key);
+        if (existing != null) {
+            existing.chunk = new SoftReference<>(chunk);
+            CacheStats.packCoalesced();
+            return;
+        }
+        Pending entry = new Pending(chunk, nextOrder++);
+        entry.distance = distance(entry.chunkX, entry.chunkZ);
+        pending.put(key, entry);
+        int max = Baritone.settings().chunkPackerQueueMaxSize.value;
+        while (pending.size() > max) {
+            Pending farthest = null;
+            for (Pending p : pending.values()) {
+                if (farthest == null || farthest.before(p)) {
+                    farthest = p;
+                }
+            }
+            pending.remove(ChunkPos.asLong(farthest.chunkX, farthest.chunkZ));
+            CacheStats.packDropped();
+        }
+        CacheStats.packQueueDepth(pending.size());
+        notify();
+    }
+
+    /**
+     * Waits for a chunk to be queued if there are none that aren't already being packed, then removes the nearest one
+     */
+    synchronized Pending take() throws InterruptedException {
+        while (true) {
+            Pending nearest = null;
+            for (Pending p : pending.values()) {
+                if ((nearest == null || p.before(nearest)) && !packing.contains(ChunkPos.asLong(p.chunkX, p.chunkZ))) {
+                    nearest = p;
+                }
+            }
+            if (nearest != null) {
+                long key = ChunkPos.asLong(nearest.chunkX, nearest.chunkZ);
+                pending.remove(key);
+                packing.add(key);
+                CacheStats.packQueueDepth(pending.size());
+                return nearest;
+            }
+            wait();
+        }
+    }
+
+    /**
+     * Must be called once a chunk that was taken is in the cache, or failed to pack
+     */
+    synchronized void done(Pending taken) {
+        packing.remove(ChunkPos.asLong(taken.chunkX, taken.chunkZ));
+        notify(); // in case it was queued again in the meantime
+    }
+
+    /**
+     * @return Whether the chunk is queued or being packed
+     */
+    synchronized boolean contains(ChunkPos pos) {
+        return pending.containsKey(pos.toLong()) || packing.contains(pos.toLong());
+    }
+
+    /**
+     * Changes what distance is measured to
+     *
+     * @param focusX The chunk x of each point
+     * @param focusZ The chunk z of each point
+     */
+    synchronized void focus(int[] focusX, int[] focusZ) {
+        this.focusX = focusX;
+        this.focusZ = focusZ;
+        for (Pending p : pending.values()) {
+            p.distance = distance(p.chunkX, p.chunkZ);
+        }
+    }
+
+    private long distance(int chunkX, int chunkZ) {
+        long best = focusX.length == 0 ? 0 : Long.MAX_VALUE;
+        for (int i = 0; i < focusX.length; i++) {
+            long dx = chunkX - focusX[i];
+            long dz = chunkZ - focusZ[i];
+            best = Math.min(best, dx * dx + dz * dz);
+        }
+        return best;
+    }
+}
@@ -19,8 +19,12 @@ package baritone.cache;
 
 import baritone.api.utils.BlockUtils;
 import baritone.pathing.movement.MovementHelper;
+import baritone.utils.accessor.IPalettedContainer;
 import baritone.utils.pathing.PathingBlockType;
+import it.unimi.dsi.fastutil.ints.IntLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import net.minecraft.core.BlockPos;
+import net.minecraft.util.BitStorage;
 import net.minecraft.world.level.block.AirBlock;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Blocks;
@@ -28,9 +32,12 @@ import net.minecraft.world.level.block.DoublePlantBlock;
 import net.minecraft.world.level.block.FlowerBlock;
 import net.minecraft.world.level.block.TallGrassBlock;
 import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.GlobalPalette;
 import net.minecraft.world.level.chunk.LevelChunk;
 import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.Palette;
 import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.level.chunk.SingleValuePalette;
 import net.minecraft.world.level.dimension.BuiltinDimensionTypes;
 import net.minecraft.world.level.dimension.DimensionType;
 import net.minecraft.world.phys.Vec3;
@@ -48,11 +55,12 @@ public final class ChunkPacker {
     private ChunkPacker() {}
 
     public static CachedChunk pack(LevelChunk chunk) {
-        //long start = System.nanoTime() / 1000000L;
+        long start = System.nanoTime();
 
         Map<String, List<BlockPos>> specialBlocks = new HashMap<>();
         final int height = chunk.getLevel().dimensionType().height();
-        BitSet bitSet = new BitSet(CachedChunk.size(height));
+        long[][] data = new long[height >> 4][];
+        Arrays.fill(data, CachedChunk.EMPTY_SECTION);
         try {
             LevelChunkSection[] chunkInternalStorageArray = chunk.getSections();
             for (int y0 = 0; y0 < height / 16; y0++) {
@@ -63,60 +71,208 @@ public final class ChunkPacker {
                     // the first 4 extended blocks storages will be full
                     // and the remaining 12 will be null
 
-                    // since the index into the bitset is calculated from the x y and z
-                    // and doesn't function as an append, we can entirely skip the scanning
-                    // since a bitset is initialized to all zero, and air is saved as zeros
+                    // since air is saved as zeros, the section can share the empty one
                     continue;
                 }
-                PalettedContainer<BlockState> bsc = extendedblockstorage.getStates();
-                int yReal = y0 << 4;
-                // the mapping of BlockStateContainer.getIndex from xyz to index is y << 8 | z << 4 | x;
-                // for better cache locality, iterate in that order
-                for (int y1 = 0; y1 < 16; y1++) {
-                    int y = y1 | yReal;
-                    for (int z = 0; z < 16; z++) {
-                        for (int x = 0; x < 16; x++) {
-                            int index = CachedChunk.getPositionIndex(x, y, z);
-                            BlockState state = bsc.get(x, y1, z);
-                            boolean[] bits = getPathingBlockType(state, chunk, x, y, z).getBits();
-                            bitSet.set(index, bits[0]);
-                            bitSet.set(index + 1, bits[1]);
-                            Block block = state.getBlock();
-                            if (CachedChunk.BLOCKS_TO_KEEP_TRACK_OF.contains(block)) {
-                                String name = BlockUtils.blockToString(block);
-                                specialBlocks.computeIfAbsent(name, b -> new ArrayList<>()).add(new BlockPos(x, y+chunk.getMinBuildHeight(), z));
-                            }
-                        }
-                    }
-                }
+                long[] words = new long[CachedChunk.SECTION_WORDS];
+                packSection(chunk, extendedblockstorage.getStates(), y0 << 4, words, specialBlocks);
+                data[y0] = CachedChunk.intern(words);
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
-        //long end = System.nanoTime() / 1000000L;
-        //System.out.println("Chunk packing took " + (end - start) + "ms for " + chunk.x + "," + chunk.z);
         BlockState[] blocks = new BlockState[256];
 
         // get top block in columns
-        // @formatter:off
+        int[] heightMap = new int[256];
+        CachedChunk.calculateHeightMap(data, height, heightMap);
         for (int z = 0; z < 16; z++) {
-            https://www.ibm.com/developerworks/library/j-perry-writing-good-java-code/index.html
             for (int x = 0; x < 16; x++) {
-                for (int y = height - 1; y >= 0; y--) {
-                    int index = CachedChunk.getPositionIndex(x, y, z);
-                    if (bitSet.get(index) || bitSet.get(index + 1)) {
-                        blocks[z << 4 | x] = getFromChunk(chunk, x, y, z);
-                        continue https;
+                int y = heightMap[z << 4 | x];
+                blocks[z << 4 | x] = y >= 0 ? getFromChunk(chunk, x, y, z) : Blocks.AIR.defaultBlockState();
+            }
+        }
+        CachedChunk packed = new CachedChunk(chunk.getPos().x, chunk.getPos().z, height, data, blocks, specialBlocks, System.currentTimeMillis());
+        CacheStats.chunkPacked(System.nanoTime() - start);
+        return packed;
+    }
+
+    /**
+     * Applies block changes to the packed version of a chunk, instead of packing the whole chunk again. Only the
+     * changed blocks are looked at, plus the blocks next to them in case they're water that depends on its neighbors.
+     *
+     * @param cached    The current packed version of the chunk
+     * @param chunk     The chunk, with the changes already in it
+     * @param positions Where the blocks changed, in world coordinates
+     * @return The new packed version of the chunk
+     */
+    public static CachedChunk update(CachedChunk cached, LevelChunk chunk, Collection<BlockPos> positions) {
+        long start = System.nanoTime();
+        int minY = chunk.getMinBuildHeight();
+        IntLinkedOpenHashSet indices = new IntLinkedOpenHashSet();
+        IntOpenHashSet columns = new IntOpenHashSet();
+        for (BlockPos pos : positions) {
+            int x = pos.getX() & 15;
+            int y = pos.getY() - minY;
+            int z = pos.getZ() & 15;
+            if (y < 0 || y >= cached.height) {
+                continue;
+            }
+            indices.add(CachedChunk.getPositionIndex(x, y, z));
+            columns.add(z << 4 | x);
+            if (x != 15) {
+                indices.add(CachedChunk.getPositionIndex(x + 1, y, z));
+            }
+            if (x != 0) {
+                indices.add(CachedChunk.getPositionIndex(x - 1, y, z));
+            }
+            if (z != 15) {
+                indices.add(CachedChunk.getPositionIndex(x, y, z + 1));
+            }
+            if (z != 0) {
+                indices.add(CachedChunk.getPositionIndex(x, y, z - 1));
+            }
+        }
+        int[] changed = indices.toIntArray();
+        long[] raw = new long[changed.length];
+        String[] names = new String[changed.length];
+        for (int i = 0; i < changed.length; i++) {
+            int x = (changed[i] >>> 1) & 15;
+            int y = changed[i] >>> 9;
+            int z = (changed[i] >>> 5) & 15;
+            BlockState state = getFromChunk(chunk, x, y, z);
+            raw[i] = CachedChunk.toRaw(getPathingBlockType(state, chunk, x, y, z));
+            names[i] = getTrackedName(state);
+        }
+        CachedChunk updated = cached.withBlocks(changed, raw, names, minY, System.currentTimeMillis());
+        // neighbors only changed if they're water, which doesn't change the top of a column
+        BlockState[] overview = updated.getOverview();
+        for (int column : columns) {
+            int x = column & 15;
+            int z = column >> 4;
+            int y = updated.getHeight(x, z);
+            overview[column] = updated.getType(x, y, z) == PathingBlockType.AIR ? Blocks.AIR.defaultBlockState() : getFromChunk(chunk, x, y, z);
+        }
+        CacheStats.chunkUpdated(positions.size(), System.nanoTime() - start);
+        return updated;
+    }
+
+    /**
+     * Packs one 16x16x16 section into {@code words}. Palette entries are classified once instead of once per block,
+     * only water has to look at its neighbors and is still done per block.
+     */
+    private static void packSection(LevelChunk chunk, PalettedContainer<BlockState> bsc, int yReal, long[] words, Map<String, List<BlockPos>> specialBlocks) {
+        Palette<BlockState> palette = ((IPalettedContainer<BlockState>) bsc).getPalette();
+        BitStorage storage = ((IPalettedContainer<BlockState>) bsc).getStorage();
+        if (palette instanceof SingleValuePalette) {
+            BlockState state = palette.valueFor(0);
+            PathingBlockType type = getPathingBlockType(state);
+            if (type != null) {
+                // every pair of bits in the section is the same
+                Arrays.fill(words, CachedChunk.toRaw(type) * 0x5555555555555555L);
+                String name = getTrackedName(state);
+                if (name != null) {
+                    List<BlockPos> positions = specialBlocks.computeIfAbsent(name, b -> new ArrayList<>());
+                    for (int idx = 0; idx < 4096; idx++) {
+                        positions.add(new BlockPos(idx & 15, (yReal | idx >> 8) + chunk.getMinBuildHeight(), (idx >> 4) & 15));
                     }
                 }
-                blocks[z << 4 | x] = Blocks.AIR.defaultBlockState();
+                CacheStats.sectionPacked(true);
+                return;
+            }
+        } else if (!(palette instanceof GlobalPalette) && storage != null && storage.getBits() > 0 && storage.getSize() == 4096) {
+            // raw bits for each palette entry, or -1 for water that depends on its neighbors
+            int size = palette.getSize();
+            long[] raw = new long[size];
+            String[] tracked = new String[size];
+            for (int i = 0; i < size; i++) {
+                BlockState state = palette.valueFor(i);
+                PathingBlockType type = getPathingBlockType(state);
+                raw[i] = type == null ? -1 : CachedChunk.toRaw(type);
+                tracked[i] = getTrackedName(state);
+            }
+            // pasted from FasterWorldScanner
+            long[] longArray = storage.getRaw();
+            int bitsPerEntry = storage.getBits();
+            long maxEntryValue = (1L << bitsPerEntry) - 1L;
+            for (int i = 0, idx = 0; i < longArray.length && idx < 4096; ++i) {
+                long l = longArray[i];
+                for (int offset = 0; offset <= (64 - bitsPerEntry) && idx < 4096; offset += bitsPerEntry, ++idx) {
+                    int value = (int) ((l >> offset) & maxEntryValue);
+                    long bits = raw[value];
+                    if (bits < 0 || tracked[value] != null) {
+                        int x = idx & 15;
+                        int y = yReal | idx >> 8;
+                        int z = (idx >> 4) & 15;
+                        if (bits < 0) {
+                            bits = CachedChunk.toRaw(getPathingBlockType(palette.valueFor(value), chunk, x, y, z));
+                        }
+                        if (tracked[value] != null) {
+                            specialBlocks.computeIfAbsent(tracked[value], b -> new ArrayList<>()).add(new BlockPos(x, y + chunk.getMinBuildHeight(), z));
+                        }
+                    }
+                    // the container index is y << 8 | z << 4 | x, which is the packed index shifted down by one
+                    words[idx >>> 5] |= bits << ((idx & 31) << 1);
+                }
+            }
+            CacheStats.sectionPacked(true);
+            return;
+        }
+        // the mapping of BlockStateContainer.getIndex from xyz to index is y << 8 | z << 4 | x;
+        // for better cache locality, iterate in that order
+        // this also fills each word of the packed section in order, two rows of x at a time
+        for (int y1 = 0; y1 < 16; y1++) {
+            int y = y1 | yReal;
+            for (int z = 0; z < 16; z++) {
+                long word = 0;
+                for (int x = 0; x < 16; x++) {
+                    BlockState state = bsc.get(x, y1, z);
+                    word |= CachedChunk.toRaw(getPathingBlockType(state, chunk, x, y, z)) << (x << 1);
+                    String name = getTrackedName(state);
+                    if (name != null) {
+                        specialBlocks.computeIfAbsent(name, b -> new ArrayList<>()).add(new BlockPos(x, y + chunk.getMinBuildHeight(), z));
+                    }
+                }
+                words[y1 << 3 | z >> 1] |= word << ((z & 1) << 5);
             }
         }
-        // @formatter:on
-        return new CachedChunk(chunk.getPos().x, chunk.getPos().z, height, bitSet, blocks, specialBlocks, System.currentTimeMillis());
+        CacheStats.sectionPacked(false);
+    }
+
+    private static String getTrackedName(BlockState state) {
+        Block block = state.getBlock();
+        return CachedChunk.BLOCKS_TO_KEEP_TRACK_OF.contains(block) ? BlockUtils.blockToString(block) : null;
     }
 
     private static PathingBlockType getPathingBlockType(BlockState state, LevelChunk chunk, int x, int y, int z) {
+        PathingBlockType type = getPathingBlockType(state);
+        if (type != null) {
+            return type;
+        }
+        // still water, whether it's usable depends on the water around it
+        int adjY = y - chunk.getLevel().dimensionType().minY();
+        if (
+                (x != 15 && MovementHelper.possiblyFlowing(getFromChunk(chunk, x + 1, adjY, z)))
+                        || (x != 0 && MovementHelper.possiblyFlowing(getFromChunk(chunk, x - 1, adjY, z)))
+                        || (z != 15 && MovementHelper.possiblyFlowing(getFromChunk(chunk, x, adjY, z + 1)))
+                        || (z != 0 && MovementHelper.possiblyFlowing(getFromChunk(chunk, x, adjY, z - 1)))
+        ) {
+            return PathingBlockType.AVOID;
+        }
+        if (x == 0 || x == 15 || z == 0 || z == 15) {
+            Vec3 flow = state.getFluidState().getFlow(chunk.getLevel(), new BlockPos(x + (chunk.getPos().x << 4), y, z + (chunk.getPos().z << 4)));
+            if (flow.x != 0.0 || flow.z != 0.0) {
+                return PathingBlockType.WATER;
+            }
+            return PathingBlockType.AVOID;
+        }
+        return PathingBlockType.WATER;
+    }
+
+    /**
+     * @return The type of this state regardless of position, or null if it's water that depends on its neighbors
+     */
+    private static PathingBlockType getPathingBlockType(BlockState state) {
         Block block = state.getBlock();
         if (MovementHelper.isWater(state)) {
             // only water source blocks are plausibly usable, flowing water should be avoid
@@ -124,23 +280,7 @@ public final class ChunkPacker {
             if (MovementHelper.possiblyFlowing(state)) {
                 return PathingBlockType.AVOID;
             }
-            int adjY = y - chunk.getLevel().dimensionType().minY();
-            if (
-                    (x != 15 && MovementHelper.possiblyFlowing(getFromChunk(chunk, x + 1, adjY, z)))
-                            || (x != 0 && MovementHelper.possiblyFlowing(getFromChunk(chunk, x - 1, adjY, z)))
-                            || (z != 15 && MovementHelper.possiblyFlowing(getFromChunk(chunk, x, adjY, z + 1)))
-                            || (z != 0 && MovementHelper.possiblyFlowing(getFromChunk(chunk, x, adjY, z - 1)))
-            ) {
-                return PathingBlockType.AVOID;
-            }
-            if (x == 0 || x == 15 || z == 0 || z == 15) {
-                Vec3 flow = state.getFluidState().getFlow(chunk.getLevel(), new BlockPos(x + (chunk.getPos().x << 4), y, z + (chunk.getPos().z << 4)));
-                if (flow.x != 0.0 || flow.z != 0.0) {
-                    return PathingBlockType.WATER;
-                }
-                return PathingBlockType.AVOID;
-            }
-            return PathingBlockType.WATER;
+            return null;
         }
 
         if (MovementHelper.avoidWalkingInto(state) || MovementHelper.isBottomSlab(state)) {
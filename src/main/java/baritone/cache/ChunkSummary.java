@@ -0,0 +1,272 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package baritone.cache;
+
+import baritone.utils.pathing.PathingBlockType;
+
+import java.util.Arrays;
+
+import static baritone.api.pathing.movement.ActionCosts.*;
+
+/**
+ * A coarse picture of how a {@link CachedChunk} can be walked across, for routing over long distances without
+ * looking at individual blocks.
+ * <p>
+ * Only the surface is considered: each column is either somewhere to stand on top of the highest block, or not.
+ * Along each of the four borders, runs of standable columns that can be walked along form entrances, and the middle
+ * of each entrance is a portal. The cost of walking between every pair of portals within the chunk is worked out
+ * once, up front.
+ *
+ * @see ChunkGraph
+ */
+final class ChunkSummary {
+
+    static final int NORTH = 0;
+    static final int SOUTH = 1;
+    static final int WEST = 2;
+    static final int EAST = 3;
+
+    /**
+     * Stand height of a column that can't be stood on
+     */
+    static final int IMPASSABLE = -1;
+
+    /**
+     * Stand height of a column in a chunk that isn't cached, anything goes
+     */
+    static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private static final int MAX_FALL = 3;
+
+    private static final double DIAGONAL_COST = WALK_ONE_BLOCK_COST * Math.sqrt(2);
+
+    /**
+     * Stands in for chunks that aren't cached. Assumes they can be walked straight across at any height.
+     */
+    static final ChunkSummary UNCACHED = new ChunkSummary(Surface.unknown());
+
+    /**
+     * Stand height of each border column, indexed by {@code side << 4 | along}
+     */
+    private final int[] border = new int[64];
+    private final boolean[] borderWater = new boolean[64];
+
+    final int numPortals;
+    final byte[] portalSide;
+    final byte[] portalAlong;
+    final byte[] segmentStart;
+    final byte[] segmentEnd;
+
+    /**
+     * The cost of walking from one portal to another within this chunk, indexed by {@code from * numPortals + to}
+     */
+    final double[] portalCosts;
+
+    ChunkSummary(CachedChunk chunk) {
+        this(Surface.of(chunk));
+    }
+
+    private ChunkSummary(Surface surface) {
+        byte[] side = new byte[32];
+        byte[] along = new byte[32];
+        byte[] start = new byte[32];
+        byte[] end = new byte[32];
+        int count = 0;
+        for (int s = 0; s < 4; s++) {
+            int segment = -1;
+            for (int a = 0; a < 16; a++) {
+                int cell = cell(s, a);
+                border[s << 4 | a] = surface.standY[cell];
+                borderWater[s << 4 | a] = surface.water[cell];
+                boolean standable = surface.standY[cell] != IMPASSABLE;
+                boolean continues = standable && segment != -1 && step(surface.standY[cell(s, a - 1)], surface.standY[cell], false) < COST_INF && step(surface.standY[cell], surface.standY[cell(s, a - 1)], false) < COST_INF;
+                if (standable && !continues) {
+                    segment = a;
+                }
+                if (!standable) {
+                    segment = -1;
+                }
+                boolean last = a == 15 || surface.standY[cell(s, a + 1)] == IMPASSABLE || step(surface.standY[cell], surface.standY[cell(s, a + 1)], false) >= COST_INF || step(surface.standY[cell(s, a + 1)], surface.standY[cell], false) >= COST_INF;
+                if (standable && last) {
+                    side[count] = (byte) s;
+                    start[count] = (byte) segment;
+                    end[count] = (byte) a;
+                    along[count] = (byte) ((segment + a) / 2);
+                    count++;
+                    segment = -1;
+                }
+            }
+        }
+        this.numPortals = count;
+        this.portalSide = Arrays.copyOf(side, count);
+        this.portalAlong = Arrays.copyOf(along, count);
+        this.segmentStart = Arrays.copyOf(start, count);
+        this.segmentEnd = Arrays.copyOf(end, count);
+        this.portalCosts = new double[count * count];
+        for (int from = 0; from < count; from++) {
+            double[] costs = surface.costsFrom(portalCell(from));
+            for (int to = 0; to < count; to++) {
+                portalCosts[from * count + to] = costs[portalCell(to)];
+            }
+        }
+    }
+
+    static int cell(int side, int along) {
+        switch (side) {
+            case NORTH:
+                return along;
+            case SOUTH:
+                return 15 << 4 | along;
+            case WEST:
+                return along << 4;
+            case EAST:
+                return along << 4 | 15;
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    static int opposite(int side) {
+        return side ^ 1;
+    }
+
+    int portalCell(int portal) {
+        return cell(portalSide[portal], portalAlong[portal]);
+    }
+
+    int borderStandY(int side, int along) {
+        return border[side << 4 | along];
+    }
+
+    boolean borderWater(int side, int along) {
+        return borderWater[side << 4 | along];
+    }
+
+    /**
+     * A rough cost of stepping from a column to a neighboring one, in the same terms as the real movements
+     */
+    static double step(int fromY, int toY, boolean toWater) {
+        if (fromY == IMPASSABLE || toY == IMPASSABLE) {
+            return COST_INF;
+        }
+        double cost;
+        if (fromY == UNKNOWN || toY == UNKNOWN || fromY == toY) {
+            cost = WALK_ONE_BLOCK_COST;
+        } else if (toY == fromY + 1) {
+            cost = WALK_ONE_BLOCK_COST + JUMP_ONE_BLOCK_COST;
+        } else if (toY < fromY && fromY - toY <= MAX_FALL) {
+            cost = WALK_OFF_BLOCK_COST + FALL_N_BLOCKS_COST[fromY - toY] + CENTER_AFTER_FALL_COST;
+        } else {
+            return COST_INF;
+        }
+        return toWater ? Math.max(cost, WALK_ONE_IN_WATER_COST) : cost;
+    }
+
+    /**
+     * Stand heights of every column in a chunk, only kept around while a summary is being built or a route is being
+     * started or finished inside a chunk
+     */
+    static final class Surface {
+
+        final int[] standY = new int[256];
+        final boolean[] water = new boolean[256];
+
+        private Surface() {}
+
+        static Surface of(CachedChunk chunk) {
+            Surface surface = new Surface();
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    int y = chunk.getHeight(x, z);
+                    PathingBlockType type = chunk.getType(x, y, z);
+                    int cell = z << 4 | x;
+                    if (type == PathingBlockType.SOLID || type == PathingBlockType.WATER) {
+                        surface.standY[cell] = y + 1;
+                        surface.water[cell] = type == PathingBlockType.WATER;
+                    } else {
+                        surface.standY[cell] = IMPASSABLE;
+                    }
+                }
+            }
+            return surface;
+        }
+
+        static Surface unknown() {
+            Surface surface = new Surface();
+            Arrays.fill(surface.standY, UNKNOWN);
+            return surface;
+        }
+
+        /**
+         * Dijkstra over the columns of the chunk, in eight directions. The source is allowed to be impassable, since
+         * routes can start or end in odd places (on top of a tree, say).
+         *
+         * @param source The column to start from, as {@code z << 4 | x}
+         * @return The cost to get to every column
+         */
+        double[] costsFrom(int source) {
+            double[] dist = new double[256];
+            boolean[] done = new boolean[256];
+            Arrays.fill(dist, COST_INF);
+            dist[source] = 0;
+            for (int iteration = 0; iteration < 256; iteration++) {
+                int current = -1;
+                for (int i = 0; i < 256; i++) {
+                    if (!done[i] && dist[i] < COST_INF && (current == -1 || dist[i] < dist[current])) {
+                        current = i;
+                    }
+                }
+                if (current == -1) {
+                    break;
+                }
+                done[current] = true;
+                int fromY = current == source && standY[current] == IMPASSABLE ? UNKNOWN : standY[current];
+                int cx = current & 15;
+                int cz = current >> 4;
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dz = -1; dz <= 1; dz++) {
+                        int nx = cx + dx;
+                        int nz = cz + dz;
+                        if ((dx == 0 && dz == 0) || nx < 0 || nx > 15 || nz < 0 || nz > 15) {
+                            continue;
+                        }
+                        int next = nz << 4 | nx;
+                        if (done[next]) {
+                            continue;
+                        }
+                        double cost;
+                        if (dx != 0 && dz != 0) {
+                            // diagonals only on the level, and only if neither corner is in the way
+                            int toY = standY[next];
+                            if (toY == IMPASSABLE || (toY != fromY && toY != UNKNOWN && fromY != UNKNOWN)
+                                    || standY[cz << 4 | nx] == IMPASSABLE || standY[nz << 4 | cx] == IMPASSABLE) {
+                                continue;
+                            }
+                            cost = water[next] ? WALK_ONE_IN_WATER_COST * Math.sqrt(2) : DIAGONAL_COST;
+                        } else {
+                            cost = step(fromY, standY[next], water[next]);
+                        }
+                        if (cost < COST_INF && dist[current] + cost < dist[next]) {
+                            dist[next] = dist[current] + cost;
+                        }
+                    }
+                }
+            }
+            return dist;
+        }
+    }
+}
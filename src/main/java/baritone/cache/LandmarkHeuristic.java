@@ -0,0 +1,294 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import baritone.Baritone;
+import baritone.api.pathing.goals.Goal;
+import baritone.api.utils.Helper;
+import baritone.pathing.movement.CalculationContext;
+import baritone.utils.pathing.PathingBlockType;
+import it.unimi.dsi.fastutil.longs.LongHeapPriorityQueue;
+
+import java.util.Arrays;
+
+import static baritone.api.pathing.movement.ActionCosts.*;
+
+/**
+ * Lower bounds on the cost between two columns, from distances to a few landmarks on a grid of cached chunks (ALT)
+ * <p>
+ * Every chunk gets a cost per block that nothing in it can beat. That's sprinting for any chunk that has somewhere to
+ * stand, or that isn't cached, and swimming, tunneling or bridging for chunks that don't, like open ocean. Distances
+ * from each landmark are worked out over the grid with those costs, and interpolated between chunk centers. Moving a
+ * block never changes the interpolated distance by more than the move costs, so by the triangle inequality the
+ * difference between the distances of two columns to the same landmark is a lower bound on the cost between them.
+ * <p>
+ * The interpolation can only be trusted to within a factor of sqrt 2 along the diagonal, so over open ground this is
+ * looser than the goal's own heuristic. It pays off around water and other chunks with nowhere to stand. Descending
+ * through water moves sideways a lot cheaper than swimming does, so chunks with water are never given more than that.
+ */
+public final class LandmarkHeuristic {
+
+    /**
+     * Chunks along each side of the grid, centered on where it was built for
+     */
+    private static final int SIZE = 256;
+
+    private static final int LANDMARKS = 8;
+
+    /**
+     * Cost per block of a chunk that can't be crossed at all
+     */
+    private static final double IMPASSABLE = 1000;
+
+    private static final int OPEN = 0;
+    private static final int HAS_WATER = 1;
+    private static final int HAS_SOLID = 2;
+    private static final int CLOSED = 4;
+
+    private final int originChunkX;
+    private final int originChunkZ;
+
+    /**
+     * The cost per block of each kind of chunk that this was built with, indexed by the flags above
+     */
+    private final double[] rates;
+
+    /**
+     * Distance from each landmark to the center of every chunk, indexed by {@code z * SIZE + x} within the grid
+     */
+    private final float[][] distances;
+
+    final long timestamp;
+
+    private LandmarkHeuristic(int originChunkX, int originChunkZ, double[] rates, float[][] distances) {
+        this.originChunkX = originChunkX;
+        this.originChunkZ = originChunkZ;
+        this.rates = rates;
+        this.distances = distances;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * @return The cost per block of each kind of chunk, for this context
+     */
+    static double[] rates(CalculationContext context) {
+        // walking off into the block below costs the same in water as anywhere else
+        double descend = WALK_OFF_BLOCK_COST + Math.max(FALL_N_BLOCKS_COST[1], CENTER_AFTER_FALL_COST);
+        double water = context.assumeWalkOnWater || context.frostWalker > 0 ? SPRINT_ONE_BLOCK_COST : Math.min(context.waterWalkSpeed, descend);
+        // every step has to break at least one block. a diagonal step pays for walking sqrt 2 but not for breaking
+        double tunnel = context.allowBreak ? WALK_ONE_BLOCK_COST + context.breakBlockAdditionalCost / Math.sqrt(2) : IMPASSABLE;
+        double bridge = context.hasThrowaway ? WALK_ONE_BLOCK_COST + Baritone.settings().blockPlacementPenalty.value : IMPASSABLE;
+        double[] rates = new double[CLOSED * 2];
+        rates[OPEN] = SPRINT_ONE_BLOCK_COST;
+        for (int flags = 0; flags < CLOSED; flags++) {
+            double rate = bridge;
+            if ((flags & HAS_WATER) != 0) {
+                rate = Math.min(rate, water);
+            }
+            if ((flags & HAS_SOLID) != 0) {
+                rate = Math.min(rate, tunnel);
+            }
+            rates[CLOSED | flags] = Math.max(SPRINT_ONE_BLOCK_COST, Math.min(IMPASSABLE, rate));
+        }
+        return rates;
+    }
+
+    /**
+     * @return Whether this is still a lower bound with these costs per block
+     */
+    boolean validFor(double[] rates) {
+        for (int i = 0; i < rates.length; i++) {
+            if (rates[i] < this.rates[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean builtWith(double[] rates) {
+        return Arrays.equals(this.rates, rates);
+    }
+
+    /**
+     * @return Whether this block position is far enough from the middle of the grid that it should be rebuilt
+     */
+    boolean offCenter(int blockX, int blockZ) {
+        int dx = (blockX >> 4) - originChunkX - SIZE / 2;
+        int dz = (blockZ >> 4) - originChunkZ - SIZE / 2;
+        return Math.max(Math.abs(dx), Math.abs(dz)) > SIZE / 4;
+    }
+
+    /**
+     * Builds the grid around a chunk and picks its landmarks. Takes a while, meant to be run off thread.
+     */
+    static LandmarkHeuristic build(CachedWorld world, int centerChunkX, int centerChunkZ, double[] rates) {
+        long start = System.currentTimeMillis();
+        int originChunkX = centerChunkX - SIZE / 2;
+        int originChunkZ = centerChunkZ - SIZE / 2;
+        double[] rate = new double[SIZE * SIZE];
+        int closed = 0;
+        for (int z = 0; z < SIZE; z++) {
+            for (int x = 0; x < SIZE; x++) {
+                int kind = OPEN;
+                // the outermost ring stays open, since the distances just stop changing past it, whatever is there
+                if (x > 0 && z > 0 && x < SIZE - 1 && z < SIZE - 1) {
+                    CachedChunk chunk = world.getChunk(originChunkX + x, originChunkZ + z);
+                    if (chunk != null && !chunk.hasPlaceToStand()) {
+                        kind = CLOSED | (chunk.contains(PathingBlockType.WATER) ? HAS_WATER : 0) | (chunk.contains(PathingBlockType.SOLID) ? HAS_SOLID : 0);
+                        closed++;
+                    }
+                }
+                rate[z * SIZE + x] = rates[kind];
+            }
+        }
+        // an edge between two chunk centers bounds how steep the interpolation can get on both sides of it, so it can't
+        // cost more than the cheapest of the six chunks that those two cells of the interpolation overlap
+        // and since x and z can both change at their steepest at once, each one only gets 1 / sqrt 2 of that
+        double scale = 16 / Math.sqrt(2);
+        float[] east = new float[SIZE * SIZE];
+        float[] south = new float[SIZE * SIZE];
+        for (int z = 0; z < SIZE; z++) {
+            for (int x = 0; x < SIZE; x++) {
+                double eastRate = COST_INF;
+                double southRate = COST_INF;
+                for (int d = -1; d <= 1; d++) {
+                    int along = Math.max(0, Math.min(SIZE - 1, z + d));
+                    int across = Math.max(0, Math.min(SIZE - 1, x + d));
+                    if (x + 1 < SIZE) {
+                        eastRate = Math.min(eastRate, Math.min(rate[along * SIZE + x], rate[along * SIZE + x + 1]));
+                    }
+                    if (z + 1 < SIZE) {
+                        southRate = Math.min(southRate, Math.min(rate[z * SIZE + across], rate[(z + 1) * SIZE + across]));
+                    }
+                }
+                east[z * SIZE + x] = (float) (eastRate * scale);
+                south[z * SIZE + x] = (float) (southRate * scale);
+            }
+        }
+        // farthest point selection, each landmark is the chunk furthest from all of the ones before it
+        float[][] distances = new float[LANDMARKS][];
+        float[] nearest = dijkstra(SIZE / 2 * SIZE + SIZE / 2, east, south);
+        for (int i = 0; i < LANDMARKS; i++) {
+            int farthest = 0;
+            for (int cell = 1; cell < nearest.length; cell++) {
+                if (nearest[cell] > nearest[farthest]) {
+                    farthest = cell;
+                }
+            }
+            distances[i] = dijkstra(farthest, east, south);
+            for (int cell = 0; cell < nearest.length; cell++) {
+                nearest[cell] = i == 0 ? distances[i][cell] : Math.min(nearest[cell], distances[i][cell]);
+            }
+        }
+        Helper.HELPER.logDebug("Built landmark heuristic around chunk " + centerChunkX + "," + centerChunkZ + " in " + (System.currentTimeMillis() - start) + "ms, " + closed + " chunks with nowhere to stand");
+        return new LandmarkHeuristic(originChunkX, originChunkZ, rates, distances);
+    }
+
+    private static float[] dijkstra(int source, float[] east, float[] south) {
+        float[] dist = new float[SIZE * SIZE];
+        Arrays.fill(dist, Float.POSITIVE_INFINITY);
+        dist[source] = 0;
+        // non negative floats sort the same as their bits, so the distance goes in the high half of the key
+        LongHeapPriorityQueue queue = new LongHeapPriorityQueue();
+        queue.enqueue(source);
+        while (!queue.isEmpty()) {
+            long key = queue.dequeueLong();
+            int cell = (int) key;
+            float d = Float.intBitsToFloat((int) (key >>> 32));
+            if (d > dist[cell]) {
+                continue;
+            }
+            int x = cell % SIZE;
+            int z = cell / SIZE;
+            if (x + 1 < SIZE) {
+                relax(dist, queue, cell + 1, d + east[cell]);
+            }
+            if (x > 0) {
+                relax(dist, queue, cell - 1, d + east[cell - 1]);
+            }
+            if (z + 1 < SIZE) {
+                relax(dist, queue, cell + SIZE, d + south[cell]);
+            }
+            if (z > 0) {
+                relax(dist, queue, cell - SIZE, d + south[cell - SIZE]);
+            }
+        }
+        return dist;
+    }
+
+    private static void relax(float[] dist, LongHeapPriorityQueue queue, int cell, float d) {
+        if (d < dist[cell]) {
+            dist[cell] = d;
+            queue.enqueue((long) Float.floatToIntBits(d) << 32 | cell);
+        }
+    }
+
+    /**
+     * Bilinear interpolation of the distances from one landmark, clamped to the grid
+     */
+    private double potential(float[] dist, int blockX, int blockZ) {
+        double fx = Math.max(0, Math.min(SIZE - 1, (blockX - (originChunkX << 4) - 8) / 16D));
+        double fz = Math.max(0, Math.min(SIZE - 1, (blockZ - (originChunkZ << 4) - 8) / 16D));
+        int x = Math.min(SIZE - 2, (int) fx);
+        int z = Math.min(SIZE - 2, (int) fz);
+        double tx = fx - x;
+        double tz = fz - z;
+        int cell = z * SIZE + x;
+        double top = dist[cell] + (dist[cell + 1] - dist[cell]) * tx;
+        double bottom = dist[cell + SIZE] + (dist[cell + SIZE + 1] - dist[cell + SIZE]) * tx;
+        return top + (bottom - top) * tz;
+    }
+
+    /**
+     * @param goal  The goal to bound the heuristic of
+     * @param goalX The x of the column that the goal is in
+     * @param goalZ The z of the column that the goal is in
+     * @return A goal that's the same, except that its heuristic is at least this lower bound
+     */
+    public Goal bound(Goal goal, int goalX, int goalZ) {
+        double[] atGoal = new double[LANDMARKS];
+        for (int i = 0; i < LANDMARKS; i++) {
+            atGoal[i] = potential(distances[i], goalX, goalZ);
+        }
+        return new Goal() {
+            @Override
+            public boolean isInGoal(int x, int y, int z) {
+                return goal.isInGoal(x, y, z);
+            }
+
+            @Override
+            public double heuristic(int x, int y, int z) {
+                double bound = 0;
+                for (int i = 0; i < LANDMARKS; i++) {
+                    bound = Math.max(bound, Math.abs(potential(distances[i], x, z) - atGoal[i]));
+                }
+                return Math.max(goal.heuristic(x, y, z), bound);
+            }
+
+            @Override
+            public double heuristic() {
+                return goal.heuristic();
+            }
+
+            @Override
+            public String toString() {
+                return goal.toString();
+            }
+        };
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package baritone.cache;
+
+import it.unimi.dsi.fastutil.HashCommon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A long keyed map that can be read from any number of threads without ever locking
+ * <p>
+ * Every write copies the whole table and publishes the copy through a volatile field, so a reader always sees one
+ * complete version of the map. That makes writes expensive, which is fine for regions: there are a few dozen of them
+ * and they're only added or removed when loaded or pruned, while reads happen in the middle of A*.
+ *
+ * @param <V> The type of the values
+ */
+final class RegionMap<V> {
+
+    private volatile Table<V> table = new Table<>(16);
+
+    /**
+     * @param key The key
+     * @return The value for that key, or {@code null} if there is none
+     */
+    public V get(long key) {
+        return table.get(key);
+    }
+
+    /**
+     * @param key   The key
+     * @param value The value, not {@code null}
+     * @return The value previously mapped to that key, or {@code null} if there was none
+     */
+    public synchronized V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        Table<V> old = table;
+        Table<V> copy = new Table<>((old.size + 1) * 2 > old.keys.length ? old.keys.length * 2 : old.keys.length);
+        old.copyInto(copy, key);
+        V previous = old.get(key);
+        copy.insert(key, value);
+        table = copy;
+        return previous;
+    }
+
+    /**
+     * @param key The key
+     * @return The value that was mapped to that key, or {@code null} if there was none
+     */
+    public synchronized V remove(long key) {
+        Table<V> old = table;
+        V previous = old.get(key);
+        if (previous == null) {
+            return null;
+        }
+        Table<V> copy = new Table<>(old.keys.length);
+        old.copyInto(copy, key); // rebuilding rather than deleting in place means no tombstones
+        table = copy;
+        return previous;
+    }
+
+    /**
+     * @return A snapshot of every value in the map
+     */
+    public List<V> values() {
+        Table<V> t = table;
+        List<V> values = new ArrayList<>(t.size);
+        for (V value : t.values) {
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    public int size() {
+        return table.size;
+    }
+
+    private static final class Table<V> {
+
+        final long[] keys;
+        final V[] values;
+        int size;
+
+        @SuppressWarnings("unchecked")
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = (V[]) new Object[capacity];
+        }
+
+        V get(long key) {
+            int mask = keys.length - 1;
+            for (int i = (int) HashCommon.mix(key) & mask; ; i = (i + 1) & mask) {
+                V value = values[i];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[i] == key) {
+                    return value;
+                }
+            }
+        }
+
+        void insert(long key, V value) {
+            int mask = keys.length - 1;
+            int i = (int) HashCommon.mix(key) & mask;
+            while (values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        void copyInto(Table<V> other, long except) {
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != null && keys[i] != except) {
+                    other.insert(keys[i], values[i]);
+                }
+            }
+        }
+    }
+}
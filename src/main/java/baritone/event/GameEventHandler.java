@@ -25,15 +25,20 @@ import baritone.api.event.listener.IGameEventListener;
 import baritone.api.utils.Helper;
 import baritone.api.utils.Pair;
 import baritone.cache.CachedChunk;
+import baritone.cache.CachedWorld;
 import baritone.cache.WorldProvider;
+import baritone.pathing.precompute.PrecomputedData;
 import baritone.utils.BlockStateInterface;
+import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.phys.Vec3;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
 
 /**
  * @author Brady
@@ -58,6 +63,17 @@ public final class GameEventHandler implements IEventBus, Helper {
                 ex.printStackTrace();
                 baritone.bsi = null;
             }
+            try {
+                baritone.getWorldProvider().ifWorldLoaded(worldData -> {
+                    Vec3 motion = baritone.getPlayerContext().player().getDeltaMovement();
+                    CachedWorld cachedWorld = (CachedWorld) worldData.getCachedWorld();
+                    cachedWorld.prefetch(baritone.getPlayerContext().playerFeet(), motion.x, motion.z);
+                    cachedWorld.focus(baritone.getPlayerContext().playerFeet(), baritone.getPathingBehavior().getPath().orElse(null), baritone.getPathingBehavior().getGoal());
+                });
+            } catch (Exception ex) {
+                // only cache bookkeeping, nothing this tick depends on
+                ex.printStackTrace();
+            }
         } else {
             baritone.bsi = null;
         }
@@ -120,7 +136,8 @@ public final class GameEventHandler implements IEventBus, Helper {
                 baritone.getWorldProvider().ifWorldLoaded(worldData -> {
                     final Level world = baritone.getPlayerContext().world();
                     ChunkPos pos = event.getChunkPos();
-                    worldData.getCachedWorld().queueForPacking(world.getChunk(pos.x, pos.z));
+                    List<BlockPos> positions = event.getBlocks().stream().map(Pair::first).collect(Collectors.toList());
+                    ((CachedWorld) worldData.getCachedWorld()).updateBlocks(world.getChunk(pos.x, pos.z), positions);
                 });
             }
         }
@@ -141,6 +158,7 @@ public final class GameEventHandler implements IEventBus, Helper {
             cache.closeWorld();
             if (event.getWorld() != null) {
                 cache.initWorld(event.getWorld());
+                Baritone.getExecutor().execute(PrecomputedData::precomputeFeatures);
             }
         }
 
@@ -17,17 +17,21 @@
 
 package baritone.pathing.calc;
 
-import baritone.Baritone;
+import baritone.api.Settings;
 import baritone.api.pathing.calc.IPath;
 import baritone.api.pathing.goals.Goal;
 import baritone.api.pathing.movement.ActionCosts;
 import baritone.api.utils.BetterBlockPos;
-import baritone.pathing.calc.openset.BinaryHeapOpenSet;
+import baritone.pathing.calc.openset.IOpenSet;
 import baritone.pathing.movement.CalculationContext;
+import baritone.pathing.movement.MovementHelper;
 import baritone.pathing.movement.Moves;
+import baritone.pathing.precompute.PrecomputedData;
 import baritone.utils.pathing.BetterWorldBorder;
 import baritone.utils.pathing.Favoring;
 import baritone.utils.pathing.MutableMoveResult;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
 
 import java.util.Optional;
 
@@ -38,46 +42,65 @@ import java.util.Optional;
  */
 public final class AStarPathFinder extends AbstractNodeCostSearch {
 
+    /**
+     * Anything about a floor block that makes walking over it cost something different, or lets another movement apply
+     */
+    private static final int NOT_PLAIN_FLOOR = PrecomputedData.FLUID | PrecomputedData.LIQUID_BLOCK | PrecomputedData.AVOID_WALKING_INTO
+            | PrecomputedData.HALF_SLAB | PrecomputedData.STAIRS | PrecomputedData.CLIMBABLE;
+
+    /**
+     * How many nodes can be jumped over in one go, so that the open set keeps making progress
+     */
+    private static final int MAX_JUMP = 64;
+
     private final Favoring favoring;
     private final CalculationContext calcContext;
 
     public AStarPathFinder(BetterBlockPos realStart, int startX, int startY, int startZ, Goal goal, Favoring favoring, CalculationContext context) {
-        super(realStart, startX, startY, startZ, goal, context);
+        this(realStart, startX, startY, startZ, goal, favoring, context, SearchArena.unpooled());
+    }
+
+    public AStarPathFinder(BetterBlockPos realStart, int startX, int startY, int startZ, Goal goal, Favoring favoring, CalculationContext context, SearchArena searchArena) {
+        super(realStart, startX, startY, startZ, goal, context, searchArena);
         this.favoring = favoring;
         this.calcContext = context;
     }
 
     @Override
     protected Optional<IPath> calculate0(long primaryTimeout, long failureTimeout) {
-        int minY = calcContext.world.dimensionType().minY();
-        int height = calcContext.world.dimensionType().height();
+        int minY = calcContext.dimension.minY();
+        int height = calcContext.dimension.height();
         startNode = getNodeAtPosition(startX, startY, startZ, BetterBlockPos.longHash(startX, startY, startZ));
         startNode.cost = 0;
         startNode.combinedCost = startNode.estimatedCostToGoal;
-        BinaryHeapOpenSet openSet = new BinaryHeapOpenSet();
+        IOpenSet openSet = searchArena.openSet(calcContext.settings);
         openSet.insert(startNode);
-        double[] bestHeuristicSoFar = new double[COEFFICIENTS.length];//keep track of the best node by the metric of (estimatedCostToGoal + cost / COEFFICIENTS[i])
+        double[] bestHeuristicSoFar = searchArena.bestHeuristicSoFar();//keep track of the best node by the metric of (estimatedCostToGoal + cost / COEFFICIENTS[i])
         for (int i = 0; i < bestHeuristicSoFar.length; i++) {
             bestHeuristicSoFar[i] = startNode.estimatedCostToGoal;
             bestSoFar[i] = startNode;
         }
         MutableMoveResult res = new MutableMoveResult();
-        BetterWorldBorder worldBorder = new BetterWorldBorder(calcContext.world.getWorldBorder());
+        BetterWorldBorder worldBorder = calcContext.worldBorder;
         long startTime = System.currentTimeMillis();
-        boolean slowPath = Baritone.settings().slowPath.value;
+        long startAllocated = allocatedBytes();
+        Settings settings = calcContext.settings;
+        boolean slowPath = settings.slowPath.value;
         if (slowPath) {
-            logDebug("slowPath is on, path timeout will be " + Baritone.settings().slowPathTimeoutMS.value + "ms instead of " + primaryTimeout + "ms");
+            logDebug("slowPath is on, path timeout will be " + settings.slowPathTimeoutMS.value + "ms instead of " + primaryTimeout + "ms");
         }
-        long primaryTimeoutTime = startTime + (slowPath ? Baritone.settings().slowPathTimeoutMS.value : primaryTimeout);
-        long failureTimeoutTime = startTime + (slowPath ? Baritone.settings().slowPathTimeoutMS.value : failureTimeout);
+        long primaryTimeoutTime = startTime + (slowPath ? settings.slowPathTimeoutMS.value : primaryTimeout);
+        long failureTimeoutTime = startTime + (slowPath ? settings.slowPathTimeoutMS.value : failureTimeout);
         boolean failing = true;
         int numNodes = 0;
         int numMovementsConsidered = 0;
         int numEmptyChunk = 0;
         boolean isFavoring = !favoring.isEmpty();
+        boolean jumpPoints = settings.pathingJumpPoints.value && !isFavoring; // favoring makes every position cost something different
+        int numJumped = 0;
         int timeCheckInterval = 1 << 6;
-        int pathingMaxChunkBorderFetch = Baritone.settings().pathingMaxChunkBorderFetch.value; // grab all settings beforehand so that changing settings during pathing doesn't cause a crash or unpredictable behavior
-        double minimumImprovement = Baritone.settings().minimumImprovementRepropagation.value ? MIN_IMPROVEMENT : 0;
+        int pathingMaxChunkBorderFetch = settings.pathingMaxChunkBorderFetch.value; // grab all settings beforehand so that changing settings during pathing doesn't cause a crash or unpredictable behavior
+        double minimumImprovement = settings.minimumImprovementRepropagation.value ? MIN_IMPROVEMENT : 0;
         Moves[] allMoves = Moves.values();
         while (!openSet.isEmpty() && numEmptyChunk < pathingMaxChunkBorderFetch && !cancelRequested) {
             if ((numNodes & (timeCheckInterval - 1)) == 0) { // only call this once every 64 nodes (about half a millisecond)
@@ -85,10 +108,11 @@ public final class AStarPathFinder extends AbstractNodeCostSearch {
                 if (now - failureTimeoutTime >= 0 || (!failing && now - primaryTimeoutTime >= 0)) {
                     break;
                 }
+                checkStablePrefix(numNodes);
             }
             if (slowPath) {
                 try {
-                    Thread.sleep(Baritone.settings().slowPathTimeDelayMS.value);
+                    Thread.sleep(settings.slowPathTimeDelayMS.value);
                 } catch (InterruptedException ignored) {}
             }
             PathNode currentNode = openSet.removeLowest();
@@ -143,22 +167,63 @@ public final class AStarPathFinder extends AbstractNodeCostSearch {
                 double tentativeCost = currentNode.cost + actionCost;
                 if (neighbor.cost - tentativeCost > minimumImprovement) {
                     neighbor.previous = currentNode;
+                    neighbor.previousMove = (byte) moves.ordinal();
                     neighbor.cost = tentativeCost;
                     neighbor.combinedCost = tentativeCost + neighbor.estimatedCostToGoal;
+                    if (updateBestSoFar(neighbor, bestHeuristicSoFar, minimumImprovement)) {
+                        failing = false;
+                    }
                     if (neighbor.isOpen()) {
                         openSet.update(neighbor);
-                    } else {
-                        openSet.insert(neighbor);//dont double count, dont insert into open set if it's already there
-                    }
-                    for (int i = 0; i < COEFFICIENTS.length; i++) {
-                        double heuristic = neighbor.estimatedCostToGoal + neighbor.cost / COEFFICIENTS[i];
-                        if (bestHeuristicSoFar[i] - heuristic > minimumImprovement) {
-                            bestHeuristicSoFar[i] = heuristic;
-                            bestSoFar[i] = neighbor;
-                            if (failing && getDistFromStartSq(neighbor) > MIN_DIST_PATH * MIN_DIST_PATH) {
+                    } else if (jumpPoints && isTraverse(moves) && isPlainFloor(neighbor.x, neighbor.y, neighbor.z, 1, 1)) {
+                        // in the middle of plain floor, every neighbor except the next one straight ahead can be reached at
+                        // least as cheaply without going through this node, so keep walking straight instead of putting
+                        // each of them in the open set. only the node where that stops being true needs to be expanded.
+                        // moves that break or place blocks are skipped for the nodes in between, they're still considered
+                        // at both ends
+                        PathNode node = neighbor;
+                        for (int i = 0; ; i++) {
+                            if (goal.isInGoal(node.x, node.y, node.z)) {
+                                openSet.insert(node);
+                                break;
+                            }
+                            int nextX = node.x + moves.xOffset;
+                            int nextZ = node.z + moves.zOffset;
+                            if (i == MAX_JUMP || !worldBorder.entirelyContains(nextX, nextZ)) {
+                                openSet.insert(node);
+                                break;
+                            }
+                            numJumped++;
+                            long nextHash = BetterBlockPos.longHash(nextX, node.y, nextZ);
+                            PathNode next = getNodeAtPosition(nextX, node.y, nextZ, nextHash);
+                            double nextCost = node.cost + actionCost; // plain floor all costs the same to walk over
+                            if (next.cost - nextCost <= minimumImprovement) {
+                                // node just got cheaper, and next doesn't get anything from it, so node is where this
+                                // stops. it still needs expanding, since next might be jumped over itself
+                                openSet.insert(node);
+                                break;
+                            }
+                            next.previous = node;
+                            next.previousMove = (byte) moves.ordinal();
+                            next.cost = nextCost;
+                            next.combinedCost = nextCost + next.estimatedCostToGoal;
+                            if (updateBestSoFar(next, bestHeuristicSoFar, minimumImprovement)) {
                                 failing = false;
                             }
+                            if (next.isOpen()) {
+                                openSet.update(next);
+                                break;
+                            }
+                            // also stop where going further stops getting closer to the goal, so that leaving the plane
+                            // towards a goal above or below can start right there
+                            if (next.estimatedCostToGoal >= node.estimatedCostToGoal || !isPlainFloor(nextX + moves.xOffset, node.y, nextZ + moves.zOffset, Math.abs(moves.zOffset), Math.abs(moves.xOffset))) {
+                                openSet.insert(next);
+                                break;
+                            }
+                            node = next;
                         }
+                    } else {
+                        openSet.insert(neighbor);//dont double count, dont insert into open set if it's already there
                     }
                 }
             }
@@ -170,10 +235,61 @@ public final class AStarPathFinder extends AbstractNodeCostSearch {
         System.out.println("Open set size: " + openSet.size());
         System.out.println("PathNode map size: " + mapSize());
         System.out.println((int) (numNodes * 1.0 / ((System.currentTimeMillis() - startTime) / 1000F)) + " nodes per second");
+        if (jumpPoints) {
+            logDebug(numNodes + " nodes expanded, " + numJumped + " nodes jumped over");
+        }
+        if (startAllocated != -1) {
+            logDebug((allocatedBytes() - startAllocated) / 1024 + " KiB allocated");
+        }
         Optional<IPath> result = bestSoFar(true, numNodes);
         if (result.isPresent()) {
             logDebug("Took " + (System.currentTimeMillis() - startTime) + "ms, " + numMovementsConsidered + " movements considered");
         }
         return result;
     }
+
+    /**
+     * @return Whether this node was good enough to replace one of {@link #bestSoFar} and is far enough from the start
+     * to be worth returning
+     */
+    private boolean updateBestSoFar(PathNode node, double[] bestHeuristicSoFar, double minimumImprovement) {
+        boolean farEnough = false;
+        for (int i = 0; i < COEFFICIENTS.length; i++) {
+            double heuristic = node.estimatedCostToGoal + node.cost / COEFFICIENTS[i];
+            if (bestHeuristicSoFar[i] - heuristic > minimumImprovement) {
+                bestHeuristicSoFar[i] = heuristic;
+                bestSoFar[i] = node;
+                if (getDistFromStartSq(node) > MIN_DIST_PATH * MIN_DIST_PATH) {
+                    farEnough = true;
+                }
+            }
+        }
+        return farEnough;
+    }
+
+    private static boolean isTraverse(Moves moves) {
+        return moves == Moves.TRAVERSE_NORTH || moves == Moves.TRAVERSE_SOUTH || moves == Moves.TRAVERSE_EAST || moves == Moves.TRAVERSE_WEST;
+    }
+
+    /**
+     * Whether every column from {@code x - rangeX, z - rangeZ} to {@code x + rangeX, z + rangeZ} is a plain block to
+     * stand on with air above it. Walking or moving diagonally between any of them costs the same, and nothing but
+     * breaking or placing blocks could get anywhere else from them.
+     */
+    private boolean isPlainFloor(int x, int y, int z, int rangeX, int rangeZ) {
+        for (int dx = -rangeX; dx <= rangeX; dx++) {
+            for (int dz = -rangeZ; dz <= rangeZ; dz++) {
+                if ((PrecomputedData.features(calcContext.get(x + dx, y, z + dz)) & PrecomputedData.AIR) == 0
+                        || (PrecomputedData.features(calcContext.get(x + dx, y + 1, z + dz)) & PrecomputedData.AIR) == 0) {
+                    return false;
+                }
+                BlockState floor = calcContext.get(x + dx, y - 1, z + dz);
+                if ((PrecomputedData.features(floor) & NOT_PLAIN_FLOOR) != 0 || floor.getBlock() == Blocks.SOUL_SAND
+                        || !MovementHelper.canWalkOn(calcContext, x + dx, y - 1, z + dz, floor)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
 }
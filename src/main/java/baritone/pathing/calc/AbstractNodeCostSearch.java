@@ -17,7 +17,6 @@
 
 package baritone.pathing.calc;
 
-import baritone.Baritone;
 import baritone.api.pathing.calc.IPath;
 import baritone.api.pathing.calc.IPathFinder;
 import baritone.api.pathing.goals.Goal;
@@ -27,7 +26,12 @@ import baritone.api.utils.PathCalculationResult;
 import baritone.pathing.movement.CalculationContext;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Any pathfinding algorithm that keeps track of nodes recursively by their cost (e.g. A*, dijkstra)
@@ -41,14 +45,20 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
     protected final int startY;
     protected final int startZ;
 
-    protected final Goal goal;
+    protected Goal goal;
+
+    /**
+     * What the estimated cost to the goal of each node is worked out with. The goal itself, unless it was given a
+     * tighter lower bound with {@link #setHeuristic}
+     */
+    protected Goal heuristic;
 
     private final CalculationContext context;
 
     /**
-     * @see <a href="https://github.com/cabaletta/baritone/issues/107">Issue #107</a>
+     * Where the nodes, open set etc of this search are stored. Handed back to its pool once the search is done.
      */
-    private final Long2ObjectOpenHashMap<PathNode> map;
+    protected final SearchArena searchArena;
 
     protected PathNode startNode;
 
@@ -60,6 +70,20 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
 
     protected boolean cancelRequested;
 
+    /**
+     * Given the start of the path once it's settled, see {@link #onStablePrefix}
+     */
+    private Consumer<IPath> prefixListener;
+
+    private int prefixStableNodes;
+
+    /**
+     * The deepest node that every path to {@code bestSoFar[0]} has gone through since {@link #prefixSince}
+     */
+    private PathNode prefixCandidate;
+
+    private int prefixSince;
+
     /**
      * This is really complicated and hard to explain. I wrote a comment in the old version of MineBot but it was so
      * long it was easier as a Google Doc (because I could insert charts).
@@ -83,13 +107,51 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
     protected static final double MIN_IMPROVEMENT = 0.01;
 
     AbstractNodeCostSearch(BetterBlockPos realStart, int startX, int startY, int startZ, Goal goal, CalculationContext context) {
+        this(realStart, startX, startY, startZ, goal, context, SearchArena.unpooled());
+    }
+
+    AbstractNodeCostSearch(BetterBlockPos realStart, int startX, int startY, int startZ, Goal goal, CalculationContext context, SearchArena searchArena) {
         this.realStart = realStart;
         this.startX = startX;
         this.startY = startY;
         this.startZ = startZ;
         this.goal = goal;
+        this.heuristic = goal;
         this.context = context;
-        this.map = new Long2ObjectOpenHashMap<>(Baritone.settings().pathingMapDefaultSize.value, Baritone.settings().pathingMapLoadFactor.value);
+        this.searchArena = searchArena;
+    }
+
+    /**
+     * Searches for this goal instead, for when the goal is only worked out once the search is about to start. Must be
+     * set before the search starts, and replaces any heuristic set with {@link #setHeuristic}.
+     *
+     * @param goal The goal to search for
+     */
+    public void setGoal(Goal goal) {
+        this.goal = goal;
+        this.heuristic = goal;
+    }
+
+    /**
+     * Estimates the cost of each node to the goal with this instead. Only the heuristic of it is used, and it has to be
+     * for the same goal. Must be set before the search starts.
+     *
+     * @param heuristic The goal to take the heuristic from
+     */
+    public void setHeuristic(Goal heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Hands out the start of the path before the search is done, once every path to the best node so far for the
+     * lowest coefficient has gone the same way for this many nodes. Must be set before the search starts.
+     *
+     * @param stableNodes How many nodes the start of the path has to stay the same for
+     * @param listener    Called once from the search thread, with a path from the start that can be executed already
+     */
+    public void onStablePrefix(int stableNodes, Consumer<IPath> listener) {
+        this.prefixStableNodes = stableNodes;
+        this.prefixListener = listener;
     }
 
     public void cancel() {
@@ -102,6 +164,7 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
             throw new IllegalStateException("Path finder cannot be reused!");
         }
         cancelRequested = false;
+        context.startSearch();
         try {
             IPath path = calculate0(primaryTimeout, failureTimeout).map(IPath::postProcess).orElse(null);
             if (cancelRequested) {
@@ -135,6 +198,9 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
         } finally {
             // this is run regardless of what exception may or may not be raised by calculate0
             isFinished = true;
+            context.endSearch();
+            // nothing that was returned refers to the arena, paths are made of their own PathNodes
+            searchArena.release();
         }
     }
 
@@ -169,9 +235,10 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
      */
 
     protected PathNode getNodeAtPosition(int x, int y, int z, long hashCode) {
+        Long2ObjectOpenHashMap<PathNode> map = searchArena.map(context.settings);
         PathNode node = map.get(hashCode);
         if (node == null) {
-            node = new PathNode(x, y, z, goal);
+            node = new PathNode(x, y, z, heuristic);
             map.put(hashCode, node);
         }
         return node;
@@ -188,15 +255,15 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
     }
 
     protected Optional<IPath> bestSoFar(boolean logInfo, int numNodes) {
-        if (startNode == null) {
+        if (!hasStarted()) {
             return Optional.empty();
         }
         double bestDist = 0;
         for (int i = 0; i < COEFFICIENTS.length; i++) {
-            if (bestSoFar[i] == null) {
+            if (!hasBestSoFar(i)) {
                 continue;
             }
-            double dist = getDistFromStartSq(bestSoFar[i]);
+            double dist = bestSoFarDistFromStartSq(i);
             if (dist > bestDist) {
                 bestDist = dist;
             }
@@ -210,7 +277,10 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
                     System.out.println("Path goes for " + Math.sqrt(dist) + " blocks");
                     logDebug("A* cost coefficient " + COEFFICIENTS[i]);
                 }
-                return Optional.of(new Path(realStart, startNode, bestSoFar[i], numNodes, goal, context));
+                Path path = pathToBestSoFar(i, numNodes);
+                if (path != null) {
+                    return Optional.of(path);
+                }
             }
         }
         // instead of returning bestSoFar[0], be less misleading
@@ -223,6 +293,113 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
         return Optional.empty();
     }
 
+    /**
+     * @return Whether the start node has been created yet, i.e. whether there is anything to build a path out of
+     */
+    protected boolean hasStarted() {
+        return startNode != null;
+    }
+
+    /**
+     * @param i The index into {@link #COEFFICIENTS}
+     * @return Whether there is a best node so far for that coefficient
+     */
+    protected boolean hasBestSoFar(int i) {
+        return bestSoFar[i] != null;
+    }
+
+    /**
+     * @param i The index into {@link #COEFFICIENTS}
+     * @return The squared distance from the start to the best node so far for that coefficient
+     */
+    protected double bestSoFarDistFromStartSq(int i) {
+        return getDistFromStartSq(bestSoFar[i]);
+    }
+
+    /**
+     * @param i        The index into {@link #COEFFICIENTS}
+     * @param numNodes The number of nodes considered so far
+     * @return The path to the best node so far for that coefficient, or {@code null} if it can't be built right now
+     */
+    protected Path pathToBestSoFar(int i, int numNodes) {
+        return new Path(realStart, startNode, bestSoFar[i], numNodes, goal, context);
+    }
+
+    /**
+     * Narrows down the part of the path that the best node so far for the lowest coefficient keeps going through, and
+     * hands it to the listener once it's been the same for long enough. Only needs to be called every so often.
+     *
+     * @param numNodes The number of nodes considered so far
+     */
+    protected void checkStablePrefix(int numNodes) {
+        if (prefixListener == null || bestSoFar[0] == null || cancelRequested) {
+            return;
+        }
+        if (prefixCandidate != null) {
+            prefixCandidate = commonAncestor(prefixCandidate, bestSoFar[0]);
+        }
+        if (prefixCandidate == null || getDistFromStartSq(prefixCandidate) <= MIN_DIST_PATH * MIN_DIST_PATH) {
+            // the best path went a different way right from the start, begin again from where it goes now
+            prefixCandidate = bestSoFar[0];
+            prefixSince = numNodes;
+            return;
+        }
+        if (numNodes - prefixSince < prefixStableNodes) {
+            return;
+        }
+        Consumer<IPath> listener = prefixListener;
+        prefixListener = null;
+        IPath prefix = new Path(realStart, startNode, prefixCandidate, numNodes, goal, context).postProcess().cutoffAtLoadedChunks(context.bsi);
+        if (prefix.length() > 1) {
+            logDebug("Executing the first " + (prefix.length() - 1) + " movements while the rest is calculated, settled after " + numNodes + " nodes");
+            listener.accept(prefix);
+        }
+    }
+
+    /**
+     * @return The deepest node that both of these nodes are reached through, or null if that's only the start
+     */
+    private PathNode commonAncestor(PathNode a, PathNode b) {
+        for (PathNode n = b; n != null; n = n.previous) {
+            if (n == a) {
+                return a; // the usual case, the best node is still further along the same way
+            }
+        }
+        Set<PathNode> ancestors = new HashSet<>();
+        for (PathNode n = b; n != null; n = n.previous) {
+            ancestors.add(n);
+        }
+        for (PathNode n = a; n != null; n = n.previous) {
+            if (ancestors.contains(n)) {
+                return n == startNode ? null : n;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Used to report how much garbage a search created, so different node storage strategies can be compared.
+     *
+     * @return The number of bytes allocated by the current thread so far, or -1 if the JVM doesn't tell us
+     */
+    protected static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * Goes by the chatDebug of the settings this search was given, like everything else it reads
+     */
+    @Override
+    public void logDebug(String message) {
+        if (context.settings.chatDebug.value) {
+            logDirect(message, false);
+        }
+    }
+
     @Override
     public final boolean isFinished() {
         return isFinished;
@@ -238,6 +415,6 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
     }
 
     protected int mapSize() {
-        return map.size();
+        return searchArena.size();
     }
 }
@@ -0,0 +1,257 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc;
+
+import baritone.api.Settings;
+import baritone.api.pathing.calc.IPath;
+import baritone.api.pathing.goals.Goal;
+import baritone.api.pathing.movement.ActionCosts;
+import baritone.api.utils.BetterBlockPos;
+import baritone.pathing.calc.openset.ArenaBinaryHeapOpenSet;
+import baritone.pathing.movement.CalculationContext;
+import baritone.pathing.movement.Moves;
+import baritone.utils.pathing.BetterWorldBorder;
+import baritone.utils.pathing.Favoring;
+import baritone.utils.pathing.MutableMoveResult;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * The same A* as {@link AStarPathFinder}, but nodes live in a {@link NodeArena} as primitive arrays instead of being
+ * {@link PathNode} objects. {@link PathNode}s are only created for the nodes of a path that is actually returned.
+ */
+public final class ArenaAStarPathFinder extends AbstractNodeCostSearch {
+
+    private final Favoring favoring;
+    private final CalculationContext calcContext;
+    private final NodeArena arena;
+
+    private int startIndex = NodeArena.NONE;
+    private int mostRecentIndex = NodeArena.NONE;
+    private final int[] bestSoFarIndex = new int[COEFFICIENTS.length];
+
+    public ArenaAStarPathFinder(BetterBlockPos realStart, int startX, int startY, int startZ, Goal goal, Favoring favoring, CalculationContext context) {
+        this(realStart, startX, startY, startZ, goal, favoring, context, SearchArena.unpooled());
+    }
+
+    public ArenaAStarPathFinder(BetterBlockPos realStart, int startX, int startY, int startZ, Goal goal, Favoring favoring, CalculationContext context, SearchArena searchArena) {
+        super(realStart, startX, startY, startZ, goal, context, searchArena);
+        this.favoring = favoring;
+        this.calcContext = context;
+        this.arena = searchArena.nodeArena(context.settings);
+        Arrays.fill(bestSoFarIndex, NodeArena.NONE);
+    }
+
+    @Override
+    protected Optional<IPath> calculate0(long primaryTimeout, long failureTimeout) {
+        int minY = calcContext.dimension.minY();
+        int height = calcContext.dimension.height();
+        NodeArena arena = this.arena;
+        int start = arena.getOrCreate(startX, startY, startZ, BetterBlockPos.longHash(startX, startY, startZ), heuristic);
+        arena.relax(start, NodeArena.NONE, (byte) -1, 0);
+        startIndex = start;
+        ArenaBinaryHeapOpenSet openSet = searchArena.arenaOpenSet(calcContext.settings);
+        openSet.insert(start);
+        double[] bestHeuristicSoFar = searchArena.bestHeuristicSoFar();//keep track of the best node by the metric of (estimatedCostToGoal + cost / COEFFICIENTS[i])
+        for (int i = 0; i < bestHeuristicSoFar.length; i++) {
+            bestHeuristicSoFar[i] = arena.estimatedCostToGoal(start);
+            bestSoFarIndex[i] = start;
+        }
+        MutableMoveResult res = new MutableMoveResult();
+        BetterWorldBorder worldBorder = calcContext.worldBorder;
+        long startTime = System.currentTimeMillis();
+        long startAllocated = allocatedBytes();
+        Settings settings = calcContext.settings;
+        boolean slowPath = settings.slowPath.value;
+        if (slowPath) {
+            logDebug("slowPath is on, path timeout will be " + settings.slowPathTimeoutMS.value + "ms instead of " + primaryTimeout + "ms");
+        }
+        long primaryTimeoutTime = startTime + (slowPath ? settings.slowPathTimeoutMS.value : primaryTimeout);
+        long failureTimeoutTime = startTime + (slowPath ? settings.slowPathTimeoutMS.value : failureTimeout);
+        boolean failing = true;
+        int numNodes = 0;
+        int numMovementsConsidered = 0;
+        int numEmptyChunk = 0;
+        boolean isFavoring = !favoring.isEmpty();
+        int timeCheckInterval = 1 << 6;
+        int pathingMaxChunkBorderFetch = settings.pathingMaxChunkBorderFetch.value; // grab all settings beforehand so that changing settings during pathing doesn't cause a crash or unpredictable behavior
+        double minimumImprovement = settings.minimumImprovementRepropagation.value ? MIN_IMPROVEMENT : 0;
+        Moves[] allMoves = Moves.values();
+        while (!openSet.isEmpty() && numEmptyChunk < pathingMaxChunkBorderFetch && !cancelRequested) {
+            if ((numNodes & (timeCheckInterval - 1)) == 0) { // only call this once every 64 nodes (about half a millisecond)
+                long now = System.currentTimeMillis(); // since nanoTime is slow on windows (takes many microseconds)
+                if (now - failureTimeoutTime >= 0 || (!failing && now - primaryTimeoutTime >= 0)) {
+                    break;
+                }
+            }
+            if (slowPath) {
+                try {
+                    Thread.sleep(settings.slowPathTimeDelayMS.value);
+                } catch (InterruptedException ignored) {}
+            }
+            int currentNode = openSet.removeLowest();
+            mostRecentIndex = currentNode;
+            numNodes++;
+            int currentX = arena.x(currentNode);
+            int currentY = arena.y(currentNode);
+            int currentZ = arena.z(currentNode);
+            double currentCost = arena.cost(currentNode);
+            if (goal.isInGoal(currentX, currentY, currentZ)) {
+                logDebug("Took " + (System.currentTimeMillis() - startTime) + "ms, " + numMovementsConsidered + " movements considered");
+                return Optional.ofNullable(pathTo(currentNode, numNodes));
+            }
+            for (Moves moves : allMoves) {
+                int newX = currentX + moves.xOffset;
+                int newZ = currentZ + moves.zOffset;
+                if ((newX >> 4 != currentX >> 4 || newZ >> 4 != currentZ >> 4) && !calcContext.isLoaded(newX, newZ)) {
+                    // only need to check if the destination is a loaded chunk if it's in a different chunk than the start of the movement
+                    if (!moves.dynamicXZ) { // only increment the counter if the movement would have gone out of bounds guaranteed
+                        numEmptyChunk++;
+                    }
+                    continue;
+                }
+                if (!moves.dynamicXZ && !worldBorder.entirelyContains(newX, newZ)) {
+                    continue;
+                }
+                if (currentY + moves.yOffset > height || currentY + moves.yOffset < minY) {
+                    continue;
+                }
+                res.reset();
+                moves.apply(calcContext, currentX, currentY, currentZ, res);
+                numMovementsConsidered++;
+                double actionCost = res.cost;
+                if (actionCost >= ActionCosts.COST_INF) {
+                    continue;
+                }
+                if (actionCost <= 0 || Double.isNaN(actionCost)) {
+                    throw new IllegalStateException(moves + " calculated implausible cost " + actionCost);
+                }
+                // check destination after verifying it's not COST_INF -- some movements return a static IMPOSSIBLE object with COST_INF and destination being 0,0,0 to avoid allocating a new result for every failed calculation
+                if (moves.dynamicXZ && !worldBorder.entirelyContains(res.x, res.z)) { // see issue #218
+                    continue;
+                }
+                if (!moves.dynamicXZ && (res.x != newX || res.z != newZ)) {
+                    throw new IllegalStateException(moves + " " + res.x + " " + newX + " " + res.z + " " + newZ);
+                }
+                if (!moves.dynamicY && res.y != currentY + moves.yOffset) {
+                    throw new IllegalStateException(moves + " " + res.y + " " + (currentY + moves.yOffset));
+                }
+                long hashCode = BetterBlockPos.longHash(res.x, res.y, res.z);
+                if (isFavoring) {
+                    // see issue #18
+                    actionCost *= favoring.calculate(hashCode);
+                }
+                int neighbor = arena.getOrCreate(res.x, res.y, res.z, hashCode, heuristic);
+                double tentativeCost = currentCost + actionCost;
+                if (arena.cost(neighbor) - tentativeCost > minimumImprovement) {
+                    arena.relax(neighbor, currentNode, (byte) moves.ordinal(), tentativeCost);
+                    if (arena.isOpen(neighbor)) {
+                        openSet.update(neighbor);
+                    } else {
+                        openSet.insert(neighbor);//dont double count, dont insert into open set if it's already there
+                    }
+                    double estimatedCostToGoal = arena.estimatedCostToGoal(neighbor);
+                    for (int i = 0; i < COEFFICIENTS.length; i++) {
+                        double heuristic = estimatedCostToGoal + tentativeCost / COEFFICIENTS[i];
+                        if (bestHeuristicSoFar[i] - heuristic > minimumImprovement) {
+                            bestHeuristicSoFar[i] = heuristic;
+                            bestSoFarIndex[i] = neighbor;
+                            if (failing && getDistFromStartSq(res.x, res.y, res.z) > MIN_DIST_PATH * MIN_DIST_PATH) {
+                                failing = false;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        if (cancelRequested) {
+            return Optional.empty();
+        }
+        System.out.println(numMovementsConsidered + " movements considered");
+        System.out.println("Open set size: " + openSet.size());
+        System.out.println("Node arena size: " + arena.size() + " (capacity " + arena.capacity() + ")");
+        System.out.println((int) (numNodes * 1.0 / ((System.currentTimeMillis() - startTime) / 1000F)) + " nodes per second");
+        if (startAllocated != -1) {
+            logDebug((allocatedBytes() - startAllocated) / 1024 + " KiB allocated");
+        }
+        Optional<IPath> result = bestSoFar(true, numNodes);
+        if (result.isPresent()) {
+            logDebug("Took " + (System.currentTimeMillis() - startTime) + "ms, " + numMovementsConsidered + " movements considered");
+        }
+        return result;
+    }
+
+    private double getDistFromStartSq(int x, int y, int z) {
+        int xDiff = x - startX;
+        int yDiff = y - startY;
+        int zDiff = z - startZ;
+        return xDiff * xDiff + yDiff * yDiff + zDiff * zDiff;
+    }
+
+    private Path pathTo(int node, int numNodes) {
+        PathNode start = arena.toPathNode(startIndex);
+        PathNode end = arena.toPathNode(node);
+        if (start == null || end == null) {
+            return null;
+        }
+        return new Path(realStart, start, end, numNodes, goal, calcContext);
+    }
+
+    @Override
+    public Optional<IPath> pathToMostRecentNodeConsidered() {
+        int node = mostRecentIndex;
+        if (node == NodeArena.NONE || isFinished()) { // once finished, the arena belongs to the next search
+            return Optional.empty();
+        }
+        return Optional.ofNullable(pathTo(node, 0));
+    }
+
+    @Override
+    public Optional<IPath> bestPathSoFar() {
+        if (isFinished()) {
+            return Optional.empty();
+        }
+        return super.bestPathSoFar();
+    }
+
+    @Override
+    protected boolean hasStarted() {
+        return startIndex != NodeArena.NONE;
+    }
+
+    @Override
+    protected boolean hasBestSoFar(int i) {
+        return bestSoFarIndex[i] != NodeArena.NONE;
+    }
+
+    @Override
+    protected double bestSoFarDistFromStartSq(int i) {
+        return arena.distSq(bestSoFarIndex[i], startX, startY, startZ);
+    }
+
+    @Override
+    protected Path pathToBestSoFar(int i, int numNodes) {
+        return pathTo(bestSoFarIndex[i], numNodes);
+    }
+
+    @Override
+    protected int mapSize() {
+        return arena.size();
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package baritone.pathing.calc;
+
+import baritone.api.pathing.calc.IPath;
+import baritone.api.pathing.goals.Goal;
+import baritone.api.pathing.goals.GoalBlock;
+import baritone.api.pathing.goals.GoalGetToBlock;
+import baritone.api.pathing.goals.GoalTwoBlocks;
+import baritone.api.pathing.movement.ActionCosts;
+import baritone.api.utils.BetterBlockPos;
+import baritone.api.utils.interfaces.IGoalRenderPos;
+import baritone.pathing.calc.openset.IOpenSet;
+import baritone.pathing.movement.CalculationContext;
+import baritone.pathing.movement.Moves;
+import baritone.utils.pathing.BetterWorldBorder;
+import baritone.utils.pathing.Favoring;
+import baritone.utils.pathing.MutableMoveResult;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+
+import java.util.Optional;
+
+/**
+ * A* from both ends at once, for goals that are a single concrete place
+ * <p>
+ * The forward half is the same as {@link AStarPathFinder}. The backward half starts from every position in the goal
+ * and works towards the start, by asking for each node which positions could have moved into it. Movements aren't
+ * symmetric (falling down is not climbing up), so instead of reversing them, each candidate predecessor is evaluated
+ * forwards like usual and only kept if it really lands on the node. That rules out parkour, which can land anywhere
+ * along its line, and long falls are only considered up to {@link CalculationContext#maxFallHeightNoWater}. The forward
+ * half still has every movement available, so this only changes how quickly the two halves meet.
+ * <p>
+ * Backward nodes store their cost to the goal in {@link PathNode#cost} and the next node towards the goal in
+ * {@link PathNode#previous}. The search ends once neither half can improve on the cheapest meeting point found.
+ *
+ * @see #supports(Goal)
+ */
+public final class BidirectionalAStarPathFinder extends AbstractNodeCostSearch {
+
+    private final Favoring favoring;
+    private final CalculationContext calcContext;
+    private final Goal towardsStart;
+    private final Long2ObjectOpenHashMap<PathNode> backwardMap;
+    private final IOpenSet backwardOpenSet;
+
+    private PathNode meetForward;
+    private PathNode meetBackward;
+    private double bestMeetingCost = ActionCosts.COST_INF;
+
+    public BidirectionalAStarPathFinder(BetterBlockPos realStart, int startX, int startY, int startZ, Goal goal, Favoring favoring, CalculationContext context, SearchArena searchArena) {
+        super(realStart, startX, startY, startZ, goal, context, searchArena);
+        if (!supports(goal)) {
+            throw new IllegalArgumentException("Bidirectional search needs a point goal, not " + goal);
+        }
+        this.favoring = favoring;
+        this.calcContext = context;
+        this.towardsStart = new GoalBlock(startX, startY, startZ);
+        this.backwardMap = searchArena.extra(0).map(context.settings);
+        this.backwardOpenSet = searchArena.extra(0).openSet(context.settings);
+    }
+
+    @Override
+    public void setGoal(Goal goal) {
+        if (!supports(goal)) {
+            throw new IllegalArgumentException("Bidirectional search needs a point goal, not " + goal);
+        }
+        super.setGoal(goal);
+    }
+
+    /**
+     * @param goal A goal
+     * @return Whether every position in that goal is within a block of its {@link IGoalRenderPos#getGoalPos()}, which
+     * is what the backward half is seeded with
+     */
+    public static boolean supports(Goal goal) {
+        return goal instanceof GoalBlock || goal instanceof GoalTwoBlocks || goal instanceof GoalGetToBlock;
+    }
+
+    @Override
+    protected Optional<IPath> calculate0(long primaryTimeout, long failureTimeout) {
+        int minY = calcContext.dimension.minY();
+        int height = calcContext.dimension.height();
+        startNode = getNodeAtPosition(startX, startY, startZ, BetterBlockPos.longHash(startX, startY, startZ));
+        startNode.cost = 0;
+        startNode.combinedCost = startNode.estimatedCostToGoal;
+        IOpenSet openSet = searchArena.openSet(calcContext.settings);
+        openSet.insert(startNode);
+        double[] bestHeuristicSoFar = searchArena.bestHeuristicSoFar();//keep track of the best node by the metric of (estimatedCostToGoal + cost / COEFFICIENTS[i])
+        for (int i = 0; i < bestHeuristicSoFar.length; i++) {
+            bestHeuristicSoFar[i] = startNode.estimatedCostToGoal;
+            bestSoFar[i] = startNode;
+        }
+        seedBackward();
+        MutableMoveResult res = new MutableMoveResult();
+        BetterWorldBorder worldBorder = calcContext.worldBorder;
+        long startTime = System.currentTimeMillis();
+        long primaryTimeoutTime = startTime + primaryTimeout;
+        long failureTimeoutTime = startTime + failureTimeout;
+        boolean failing = true;
+        int numNodes = 0;
+        int numForwardNodes = 0;
+        int numBackwardNodes = 0;
+        int numMovementsConsidered = 0;
+        int numEmptyChunk = 0;
+        boolean isFavoring = !favoring.isEmpty();
+        int timeCheckInterval = 1 << 6;
+        int pathingMaxChunkBorderFetch = calcContext.settings.pathingMaxChunkBorderFetch.value; // grab all settings beforehand so that changing settings during pathing doesn't cause a crash or unpredictable behavior
+        double minimumImprovement = calcContext.settings.minimumImprovementRepropagation.value ? MIN_IMPROVEMENT : 0;
+        int maxFall = calcContext.maxFallHeightNoWater;
+        Moves[] allMoves = Moves.values();
+        while (!openSet.isEmpty() && numEmptyChunk < pathingMaxChunkBorderFetch && !cancelRequested) {
+            if ((numNodes & (timeCheckInterval - 1)) == 0) { // only call this once every 64 nodes (about half a millisecond)
+                long now = System.currentTimeMillis(); // since nanoTime is slow on windows (takes many microseconds)
+                if (now - failureTimeoutTime >= 0 || (!failing && now - primaryTimeoutTime >= 0)) {
+                    break;
+                }
+            }
+            numNodes++;
+            // expand whichever half has the smaller frontier, the backward half may run dry if the goal is walled in
+            if (!backwardOpenSet.isEmpty() && backwardOpenSet.size() < openSet.size()) {
+                PathNode currentNode = backwardOpenSet.removeLowest();
+                if (currentNode.combinedCost >= bestMeetingCost) {
+                    break;
+                }
+                numBackwardNodes++;
+                for (Moves moves : allMoves) {
+                    if (moves.dynamicXZ) {
+                        continue;
+                    }
+                    int fromX = currentNode.x - moves.xOffset;
+                    int fromZ = currentNode.z - moves.zOffset;
+                    if (!worldBorder.entirelyContains(fromX, fromZ) || !calcContext.isLoaded(fromX, fromZ)) {
+                        continue;
+                    }
+                    int lowestY;
+                    int highestY;
+                    if (!moves.dynamicY) {
+                        lowestY = highestY = currentNode.y - moves.yOffset;
+                    } else if (moves.yOffset < 0) { // descend, possibly turning into a fall
+                        lowestY = currentNode.y + 1;
+                        highestY = currentNode.y + maxFall;
+                    } else { // diagonal, which may also go up or down a block
+                        lowestY = currentNode.y - 1;
+                        highestY = currentNode.y + 1;
+                    }
+                    for (int fromY = Math.max(lowestY, minY); fromY <= highestY && fromY < minY + height; fromY++) {
+                        res.reset();
+                        moves.apply(calcContext, fromX, fromY, fromZ, res);
+                        numMovementsConsidered++;
+                        double actionCost = res.cost;
+                        if (actionCost >= ActionCosts.COST_INF || res.x != currentNode.x || res.y != currentNode.y || res.z != currentNode.z) {
+                            continue;
+                        }
+                        if (actionCost <= 0 || Double.isNaN(actionCost)) {
+                            throw new IllegalStateException(moves + " calculated implausible cost " + actionCost);
+                        }
+                        if (isFavoring) {
+                            // favoring is applied on the destination, same as going forwards
+                            actionCost *= favoring.calculate(BetterBlockPos.longHash(currentNode.x, currentNode.y, currentNode.z));
+                        }
+                        long hashCode = BetterBlockPos.longHash(fromX, fromY, fromZ);
+                        PathNode neighbor = getBackwardNode(fromX, fromY, fromZ, hashCode);
+                        double tentativeCost = currentNode.cost + actionCost;
+                        if (neighbor.cost - tentativeCost > minimumImprovement) {
+                            neighbor.previous = currentNode;
+                            neighbor.previousMove = (byte) moves.ordinal(); // backwards, the move from neighbor to previous
+                            neighbor.cost = tentativeCost;
+                            neighbor.combinedCost = tentativeCost + neighbor.estimatedCostToGoal;
+                            if (neighbor.isOpen()) {
+                                backwardOpenSet.update(neighbor);
+                            } else {
+                                backwardOpenSet.insert(neighbor);
+                            }
+                            PathNode forward = searchArena.map(calcContext.settings).get(hashCode);
+                            if (forward != null) {
+                                offerMeeting(forward, neighbor);
+                            }
+                        }
+                    }
+                }
+                continue;
+            }
+            PathNode currentNode = openSet.removeLowest();
+            if (currentNode.combinedCost >= bestMeetingCost) {
+                break;
+            }
+            mostRecentConsidered = currentNode;
+            numForwardNodes++;
+            if (goal.isInGoal(currentNode.x, currentNode.y, currentNode.z)) {
+                logDebug("Took " + (System.currentTimeMillis() - startTime) + "ms, " + numMovementsConsidered + " movements considered");
+                logDebug(numForwardNodes + " nodes expanded forward, " + numBackwardNodes + " backward");
+                return Optional.of(new Path(realStart, startNode, currentNode, numNodes, goal, calcContext));
+            }
+            for (Moves moves : allMoves) {
+                int newX = currentNode.x + moves.xOffset;
+                int newZ = currentNode.z + moves.zOffset;
+                if ((newX >> 4 != currentNode.x >> 4 || newZ >> 4 != currentNode.z >> 4) && !calcContext.isLoaded(newX, newZ)) {
+                    // only need to check if the destination is a loaded chunk if it's in a different chunk than the start of the movement
+                    if (!moves.dynamicXZ) { // only increment the counter if the movement would have gone out of bounds guaranteed
+                        numEmptyChunk++;
+                    }
+                    continue;
+                }
+                if (!moves.dynamicXZ && !worldBorder.entirelyContains(newX, newZ)) {
+                    continue;
+                }
+                if (currentNode.y + moves.yOffset > height || currentNode.y + moves.yOffset < minY) {
+                    continue;
+                }
+                res.reset();
+                moves.apply(calcContext, currentNode.x, currentNode.y, currentNode.z, res);
+                numMovementsConsidered++;
+                double actionCost = res.cost;
+                if (actionCost >= ActionCosts.COST_INF) {
+                    continue;
+                }
+                if (actionCost <= 0 || Double.isNaN(actionCost)) {
+                    throw new IllegalStateException(moves + " calculated implausible cost " + actionCost);
+                }
+                // check destination after verifying it's not COST_INF -- some movements return a static IMPOSSIBLE object with COST_INF and destination being 0,0,0 to avoid allocating a new result for every failed calculation
+                if (moves.dynamicXZ && !worldBorder.entirelyContains(res.x, res.z)) { // see issue #218
+                    continue;
+                }
+                if (!moves.dynamicXZ && (res.x != newX || res.z != newZ)) {
+                    throw new IllegalStateException(moves + " " + res.x + " " + newX + " " + res.z + " " + newZ);
+                }
+                if (!moves.dynamicY && res.y != currentNode.y + moves.yOffset) {
+                    throw new IllegalStateException(moves + " " + res.y + " " + (currentNode.y + moves.yOffset));
+                }
+                long hashCode = BetterBlockPos.longHash(res.x, res.y, res.z);
+                if (isFavoring) {
+                    // see issue #18
+                    actionCost *= favoring.calculate(hashCode);
+                }
+                PathNode neighbor = getNodeAtPosition(res.x, res.y, res.z, hashCode);
+                double tentativeCost = currentNode.cost + actionCost;
+                if (neighbor.cost - tentativeCost > minimumImprovement) {
+                    neighbor.previous = currentNode;
+                    neighbor.previousMove = (byte) moves.ordinal();
+                    neighbor.cost = tentativeCost;
+                    neighbor.combinedCost = tentativeCost + neighbor.estimatedCostToGoal;
+                    if (neighbor.isOpen()) {
+                        openSet.update(neighbor);
+                    } else {
+                        openSet.insert(neighbor);//dont double count, dont insert into open set if it's already there
+                    }
+                    PathNode backward = backwardMap.get(hashCode);
+                    if (backward != null) {
+                        offerMeeting(neighbor, backward);
+                    }
+                    for (int i = 0; i < COEFFICIENTS.length; i++) {
+                        double heuristic = neighbor.estimatedCostToGoal + neighbor.cost / COEFFICIENTS[i];
+                        if (bestHeuristicSoFar[i] - heuristic > minimumImprovement) {
+                            bestHeuristicSoFar[i] = heuristic;
+                            bestSoFar[i] = neighbor;
+                            if (failing && getDistFromStartSq(neighbor) > MIN_DIST_PATH * MIN_DIST_PATH) {
+                                failing = false;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        if (cancelRequested) {
+            return Optional.empty();
+        }
+        System.out.println(numMovementsConsidered + " movements considered");
+        System.out.println("Open set size: " + (openSet.size() + backwardOpenSet.size()));
+        System.out.println("PathNode map size: " + mapSize());
+        System.out.println((int) (numNodes * 1.0 / ((System.currentTimeMillis() - startTime) / 1000F)) + " nodes per second");
+        logDebug(numForwardNodes + " nodes expanded forward, " + numBackwardNodes + " backward, open set size " + openSet.size() + " forward, " + backwardOpenSet.size() + " backward");
+        if (meetForward != null) {
+            logDebug("Took " + (System.currentTimeMillis() - startTime) + "ms, " + numMovementsConsidered + " movements considered, both halves met at " + new BetterBlockPos(meetForward.x, meetForward.y, meetForward.z));
+            return Optional.of(pathThroughMeeting(numNodes));
+        }
+        Optional<IPath> result = bestSoFar(true, numNodes);
+        if (result.isPresent()) {
+            logDebug("Took " + (System.currentTimeMillis() - startTime) + "ms, " + numMovementsConsidered + " movements considered");
+        }
+        return result;
+    }
+
+    private void seedBackward() {
+        BlockPos center = ((IGoalRenderPos) goal).getGoalPos();
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -2; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    int x = center.getX() + dx;
+                    int y = center.getY() + dy;
+                    int z = center.getZ() + dz;
+                    if (!goal.isInGoal(x, y, z)) {
+                        continue;
+                    }
+                    long hashCode = BetterBlockPos.longHash(x, y, z);
+                    PathNode node = getBackwardNode(x, y, z, hashCode);
+                    node.cost = 0;
+                    node.combinedCost = node.estimatedCostToGoal;
+                    backwardOpenSet.insert(node);
+                    PathNode forward = searchArena.map(calcContext.settings).get(hashCode);
+                    if (forward != null) {
+                        offerMeeting(forward, node); // the start is already in the goal
+                    }
+                }
+            }
+        }
+    }
+
+    private PathNode getBackwardNode(int x, int y, int z, long hashCode) {
+        PathNode node = backwardMap.get(hashCode);
+        if (node == null) {
+            node = new PathNode(x, y, z, towardsStart);
+            backwardMap.put(hashCode, node);
+        }
+        return node;
+    }
+
+    private void offerMeeting(PathNode forward, PathNode backward) {
+        double cost = forward.cost + backward.cost;
+        if (cost < bestMeetingCost) {
+            bestMeetingCost = cost;
+            meetForward = forward;
+            meetBackward = backward;
+        }
+    }
+
+    /**
+     * Continues the forward chain ending at the meeting point with fresh nodes for the backward chain, so that it can
+     * be handed to {@link Path} like any other.
+     */
+    private Path pathThroughMeeting(int numNodes) {
+        PathNode end = meetForward;
+        for (PathNode backward = meetBackward; backward.previous != null; backward = backward.previous) {
+            PathNode next = backward.previous;
+            PathNode node = new PathNode(next.x, next.y, next.z, 0);
+            node.previous = end;
+            node.previousMove = backward.previousMove;
+            node.cost = end.cost + (backward.cost - next.cost);
+            end = node;
+        }
+        return new Path(realStart, startNode, end, numNodes, goal, calcContext);
+    }
+}
@@ -0,0 +1,503 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc;
+
+import baritone.api.pathing.calc.IPath;
+import baritone.api.pathing.goals.Goal;
+import baritone.api.pathing.goals.GoalBlock;
+import baritone.api.pathing.movement.ActionCosts;
+import baritone.api.utils.BetterBlockPos;
+import baritone.api.utils.Helper;
+import baritone.api.utils.interfaces.IGoalRenderPos;
+import baritone.pathing.calc.openset.BinaryHeapOpenSet;
+import baritone.pathing.calc.openset.IOpenSet;
+import baritone.pathing.movement.CalculationContext;
+import baritone.pathing.movement.Moves;
+import baritone.utils.ToolSet;
+import baritone.utils.pathing.BetterWorldBorder;
+import baritone.utils.pathing.MutableMoveResult;
+import it.unimi.dsi.fastutil.longs.Long2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The graph of a D* Lite search, kept alive between path calculations towards the same goal, so that when blocks
+ * change only the nodes next to them have to be repaired instead of searching everything again.
+ * <p>
+ * The search goes from the goal towards the start, the same way as the backward half of
+ * {@link BidirectionalAStarPathFinder}, which is what lets the start move between calculations. {@link PathNode#cost}
+ * is the cost to the goal as of the node's last expansion, {@link PathNode#combinedCost} is its key in the open set,
+ * and the one step lookahead (rhs) is kept in a map of its own. Parkour is left out, since it can't be searched
+ * backwards, and so are falls further than {@link CalculationContext#maxFallHeightNoWater}.
+ * <p>
+ * Only block changes and chunks loading or unloading are tracked. If anything else that goes into the costs changes,
+ * like the hotbar or whether we have blocks to place, {@link #isFor} says so and the graph has to be thrown away.
+ */
+public final class DStarLite implements Helper {
+
+    /**
+     * Past this many nodes, starting over is cheaper than keeping all of them around
+     */
+    private static final int MAX_NODES = 1 << 19;
+
+    /**
+     * Anything closer than this many blocks to a changed block could have read it when its cost was calculated.
+     * Movements look up to two blocks to the side (placing against the neighbor of the destination), and breaking a
+     * block looks at the blocks next to it.
+     */
+    private static final int CHANGE_RADIUS = 3;
+
+    private final Goal goal;
+    private final Level world;
+    private final ToolSet toolSet;
+    private final boolean hasThrowaway;
+    private final boolean hasWaterBucket;
+    private final boolean canSprint;
+    private final int maxFall;
+
+    private final Long2ObjectOpenHashMap<PathNode> nodes;
+    private final Long2DoubleOpenHashMap rhs;
+    private final LongOpenHashSet goalNodes = new LongOpenHashSet();
+    /**
+     * Always a heap, knowing when to stop needs the exact lowest key, which the bucket queue only approximates
+     */
+    private final IOpenSet openSet = new BinaryHeapOpenSet();
+    private final ConcurrentLinkedQueue<BlockPos> changes = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> chunkChanges = new ConcurrentLinkedQueue<>();
+    private final MutableMoveResult res = new MutableMoveResult();
+    private final Moves[] allMoves = Moves.values();
+
+    private BetterWorldBorder worldBorder;
+    private CalculationContext context;
+    private BetterBlockPos lastStart;
+    private double km;
+
+    /**
+     * How many nodes it took to find the first path, which is what a fresh search would have to expand again
+     */
+    private int freshExpansions;
+    private boolean foundFirstPath;
+
+    public DStarLite(Goal goal, CalculationContext context) {
+        if (!supports(goal)) {
+            throw new IllegalArgumentException("D* Lite needs a point goal, not " + goal);
+        }
+        this.goal = goal;
+        this.world = context.world;
+        this.toolSet = context.toolSet;
+        this.hasThrowaway = context.hasThrowaway;
+        this.hasWaterBucket = context.hasWaterBucket;
+        this.canSprint = context.canSprint;
+        this.maxFall = context.maxFallHeightNoWater;
+        this.nodes = new Long2ObjectOpenHashMap<>(context.settings.pathingMapDefaultSize.value, context.settings.pathingMapLoadFactor.value);
+        this.rhs = new Long2DoubleOpenHashMap();
+        this.rhs.defaultReturnValue(ActionCosts.COST_INF);
+    }
+
+    /**
+     * @param goal A goal
+     * @return Whether the goal is made of a few positions that the search can start from
+     */
+    public static boolean supports(Goal goal) {
+        return BidirectionalAStarPathFinder.supports(goal);
+    }
+
+    /**
+     * @return Whether this graph can be used to path to this goal with the costs of this context. Must be called on the
+     * main thread, since it looks at the hotbar.
+     */
+    public boolean isFor(Goal goal, CalculationContext context) {
+        return this.goal.equals(goal)
+                && this.world == context.world
+                && this.toolSet.isCurrent(context.baritone.getPlayerContext().player())
+                && this.hasThrowaway == context.hasThrowaway
+                && this.hasWaterBucket == context.hasWaterBucket
+                && this.canSprint == context.canSprint
+                && this.maxFall == context.maxFallHeightNoWater
+                && nodes.size() < MAX_NODES;
+    }
+
+    /**
+     * Remembers that a block changed, the nodes around it are repaired at the start of the next calculation. Can be
+     * called from any thread.
+     */
+    public void blockChanged(BlockPos pos) {
+        changes.add(pos.immutable());
+    }
+
+    /**
+     * Remembers that a whole chunk was loaded or unloaded, like {@link #blockChanged} for every block in it. Can be
+     * called from any thread.
+     */
+    public void chunkChanged(int chunkX, int chunkZ) {
+        chunkChanges.add(ChunkPos.asLong(chunkX, chunkZ));
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Brings the graph up to date with the block changes since the last call and the new start, then finishes the
+     * search from wherever the last one left it.
+     *
+     * @return The path from the start to the goal, or empty if there is none or it couldn't be found in time
+     */
+    synchronized Optional<IPath> calculate(CalculationContext context, BetterBlockPos realStart, int startX, int startY, int startZ, long timeout, BooleanSupplier cancelled) {
+        long startTime = System.currentTimeMillis();
+        this.context = context;
+        this.worldBorder = context.worldBorder;
+        GoalBlock towardsStart = new GoalBlock(startX, startY, startZ);
+        if (lastStart == null) {
+            seed(towardsStart);
+        } else if (lastStart.x != startX || lastStart.y != startY || lastStart.z != startZ) {
+            // every key that was already in the open set can be lower than the new ones by at most this much
+            km += new GoalBlock(lastStart).heuristic(startX, startY, startZ);
+        }
+        lastStart = new BetterBlockPos(startX, startY, startZ);
+        int repaired = applyChanges(towardsStart);
+        PathNode start = getNode(startX, startY, startZ, BetterBlockPos.longHash(startX, startY, startZ));
+        int expanded = 0;
+        int iterations = 0;
+        long timeoutTime = startTime + timeout;
+        boolean timedOut = false;
+        while (!openSet.isEmpty()) {
+            if ((iterations++ & 63) == 0 && (cancelled.getAsBoolean() || System.currentTimeMillis() - timeoutTime >= 0)) {
+                timedOut = true; // the next calculation picks up from here
+                break;
+            }
+            PathNode node = openSet.removeLowest();
+            double nodeRhs = rhs.get(BetterBlockPos.longHash(node.x, node.y, node.z));
+            if (node.cost == nodeRhs) {
+                continue; // became consistent while waiting in the open set
+            }
+            double oldKey = node.combinedCost;
+            // keys that are equal up to rounding have to be expanded too, or the start can keep a cost that's too low
+            if (oldKey - key(start, towardsStart) > 1e-6 && start.cost == rhs.get(BetterBlockPos.longHash(startX, startY, startZ))) {
+                openSet.insert(node);
+                break;
+            }
+            double newKey = key(node, towardsStart);
+            if (oldKey < newKey) {
+                // the key was from an older start, or went up while waiting, so it isn't this node's turn yet
+                node.combinedCost = newKey;
+                openSet.insert(node);
+                continue;
+            }
+            expanded++;
+            if (node.cost > nodeRhs) {
+                node.cost = nodeRhs;
+                expandPredecessors(node, ActionCosts.COST_INF, towardsStart);
+            } else {
+                double oldCost = node.cost;
+                node.cost = ActionCosts.COST_INF;
+                updateNode(node, towardsStart);
+                expandPredecessors(node, oldCost, towardsStart);
+            }
+        }
+        if (!foundFirstPath) {
+            freshExpansions += expanded;
+        }
+        // nodes can be inconsistent anywhere until the loop ends on its own, so the start's cost can't be trusted before
+        if (timedOut || cancelled.getAsBoolean() || start.cost >= ActionCosts.COST_INF || start.cost != rhs.get(BetterBlockPos.longHash(startX, startY, startZ))) {
+            return Optional.empty();
+        }
+        logDebug("Took " + (System.currentTimeMillis() - startTime) + "ms, repaired " + repaired + " nodes and expanded " + expanded);
+        if (foundFirstPath) {
+            logDebug("Expanded " + expanded + " nodes again, a fresh search expanded " + freshExpansions + " to find the first path");
+        }
+        foundFirstPath = true;
+        return Optional.ofNullable(extractPath(realStart, start, expanded));
+    }
+
+    private void seed(GoalBlock towardsStart) {
+        BlockPos center = ((IGoalRenderPos) goal).getGoalPos();
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -2; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    int x = center.getX() + dx;
+                    int y = center.getY() + dy;
+                    int z = center.getZ() + dz;
+                    if (!goal.isInGoal(x, y, z)) {
+                        continue;
+                    }
+                    long hashCode = BetterBlockPos.longHash(x, y, z);
+                    PathNode node = getNode(x, y, z, hashCode);
+                    goalNodes.add(hashCode);
+                    rhs.put(hashCode, 0);
+                    node.combinedCost = key(node, towardsStart);
+                    openSet.insert(node);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recalculates the lookahead of every node whose outgoing movements could have read one of the changed blocks
+     *
+     * @return The number of nodes whose lookahead changed
+     */
+    private int applyChanges(GoalBlock towardsStart) {
+        if (changes.isEmpty() && chunkChanges.isEmpty()) {
+            return 0;
+        }
+        LongOpenHashSet checked = new LongOpenHashSet();
+        int repaired = 0;
+        BlockPos pos;
+        while ((pos = changes.poll()) != null) {
+            // a movement reads from three blocks above where it starts, down to the bottom of the longest fall
+            for (int y = pos.getY() - 3; y <= pos.getY() + maxFall + 2; y++) {
+                for (int x = pos.getX() - CHANGE_RADIUS; x <= pos.getX() + CHANGE_RADIUS; x++) {
+                    for (int z = pos.getZ() - CHANGE_RADIUS; z <= pos.getZ() + CHANGE_RADIUS; z++) {
+                        long hashCode = BetterBlockPos.longHash(x, y, z);
+                        PathNode node = nodes.get(hashCode);
+                        if (node != null && repair(node, hashCode, checked, towardsStart)) {
+                            repaired++;
+                        }
+                    }
+                }
+            }
+        }
+        if (chunkChanges.isEmpty()) {
+            return repaired;
+        }
+        LongOpenHashSet chunks = new LongOpenHashSet();
+        Long chunk;
+        while ((chunk = chunkChanges.poll()) != null) {
+            chunks.add((long) chunk);
+        }
+        // every node is looked at once, rather than every block of every chunk. repairing doesn't add any nodes, so
+        // they can be repaired while going through them
+        for (PathNode node : nodes.values()) {
+            if (nearChunk(chunks, node.x, node.z) && repair(node, BetterBlockPos.longHash(node.x, node.y, node.z), checked, towardsStart)) {
+                repaired++;
+            }
+        }
+        return repaired;
+    }
+
+    /**
+     * @return Whether the lookahead of this node changed
+     */
+    private boolean repair(PathNode node, long hashCode, LongOpenHashSet checked, GoalBlock towardsStart) {
+        if (goalNodes.contains(hashCode) || !checked.add(hashCode)) {
+            return false;
+        }
+        double lookahead = lookahead(node);
+        if (lookahead == rhs.get(hashCode)) {
+            return false;
+        }
+        rhs.put(hashCode, lookahead);
+        updateNode(node, towardsStart);
+        return true;
+    }
+
+    /**
+     * @return Whether a movement from this column could read a block in one of these chunks
+     */
+    private static boolean nearChunk(LongOpenHashSet chunks, int x, int z) {
+        for (int chunkX = (x - CHANGE_RADIUS) >> 4; chunkX <= (x + CHANGE_RADIUS) >> 4; chunkX++) {
+            for (int chunkZ = (z - CHANGE_RADIUS) >> 4; chunkZ <= (z + CHANGE_RADIUS) >> 4; chunkZ++) {
+                if (chunks.contains(ChunkPos.asLong(chunkX, chunkZ))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells every node that can move into this one that its cost to the goal changed
+     *
+     * @param oldCost What the cost of this node used to be if it went up, or {@link ActionCosts#COST_INF} if it went down
+     */
+    private void expandPredecessors(PathNode node, double oldCost, GoalBlock towardsStart) {
+        if (!inBounds(node.x, node.z)) {
+            return; // same as successor, a movement is only part of the graph if both ends are
+        }
+        int minY = context.dimension.minY();
+        int height = context.dimension.height();
+        for (Moves moves : allMoves) {
+            if (moves.dynamicXZ) {
+                continue;
+            }
+            int fromX = node.x - moves.xOffset;
+            int fromZ = node.z - moves.zOffset;
+            if (!inBounds(fromX, fromZ)) {
+                continue;
+            }
+            int lowestY;
+            int highestY;
+            if (!moves.dynamicY) {
+                lowestY = highestY = node.y - moves.yOffset;
+            } else if (moves.yOffset < 0) { // descend, possibly turning into a fall
+                lowestY = node.y + 1;
+                highestY = node.y + maxFall;
+            } else { // diagonal, which may also go up or down a block
+                lowestY = node.y - 1;
+                highestY = node.y + 1;
+            }
+            for (int fromY = Math.max(lowestY, minY); fromY <= highestY && fromY < minY + height; fromY++) {
+                res.reset();
+                moves.apply(context, fromX, fromY, fromZ, res);
+                double actionCost = res.cost;
+                if (actionCost >= ActionCosts.COST_INF || res.x != node.x || res.y != node.y || res.z != node.z) {
+                    continue;
+                }
+                if (actionCost <= 0 || Double.isNaN(actionCost)) {
+                    throw new IllegalStateException(moves + " calculated implausible cost " + actionCost);
+                }
+                long hashCode = BetterBlockPos.longHash(fromX, fromY, fromZ);
+                if (goalNodes.contains(hashCode)) {
+                    continue;
+                }
+                PathNode neighbor = getNode(fromX, fromY, fromZ, hashCode);
+                double neighborRhs = rhs.get(hashCode);
+                if (oldCost >= ActionCosts.COST_INF) {
+                    if (actionCost + node.cost >= neighborRhs) {
+                        continue;
+                    }
+                    rhs.put(hashCode, actionCost + node.cost);
+                } else if (actionCost + oldCost - neighborRhs < 1e-6) {
+                    // this node was (one of) the cheapest ways onwards, so find the next best
+                    rhs.put(hashCode, lookahead(neighbor));
+                } else {
+                    continue;
+                }
+                updateNode(neighbor, towardsStart);
+            }
+        }
+    }
+
+    /**
+     * @return The cheapest way to the goal through one of the movements out of this node, as far as the graph knows
+     */
+    private double lookahead(PathNode node) {
+        double best = ActionCosts.COST_INF;
+        if (!inBounds(node.x, node.z)) {
+            return best;
+        }
+        for (int i = 0; i < allMoves.length; i++) {
+            Moves moves = allMoves[i];
+            PathNode next = successor(node, moves);
+            if (next != null && res.cost + next.cost < best) {
+                best = res.cost + next.cost;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Applies the movement to the node, leaving its cost in {@link #res}
+     *
+     * @return The node it ends up in, or null if it's impossible, not part of the graph or not allowed in it
+     */
+    private PathNode successor(PathNode node, Moves moves) {
+        if (moves.dynamicXZ) {
+            return null;
+        }
+        int newX = node.x + moves.xOffset;
+        int newZ = node.z + moves.zOffset;
+        if (!inBounds(newX, newZ)) {
+            return null;
+        }
+        res.reset();
+        moves.apply(context, node.x, node.y, node.z, res);
+        if (res.cost >= ActionCosts.COST_INF || node.y - res.y > maxFall) {
+            return null;
+        }
+        return nodes.get(BetterBlockPos.longHash(res.x, res.y, res.z));
+    }
+
+    private boolean inBounds(int x, int z) {
+        return worldBorder.entirelyContains(x, z) && context.isLoaded(x, z);
+    }
+
+    private void updateNode(PathNode node, GoalBlock towardsStart) {
+        if (node.cost == rhs.get(BetterBlockPos.longHash(node.x, node.y, node.z))) {
+            return; // consistent nodes are skipped once they come out of the open set
+        }
+        double key = key(node, towardsStart);
+        if (!node.isOpen()) {
+            node.combinedCost = key;
+            openSet.insert(node);
+        } else if (key < node.combinedCost) {
+            node.combinedCost = key;
+            openSet.update(node);
+        }
+        // a higher key is picked up once the node comes out of the open set with the old one
+    }
+
+    private double key(PathNode node, GoalBlock towardsStart) {
+        return Math.min(node.cost, rhs.get(BetterBlockPos.longHash(node.x, node.y, node.z))) + towardsStart.heuristic(node.x, node.y, node.z) + km;
+    }
+
+    private PathNode getNode(int x, int y, int z, long hashCode) {
+        PathNode node = nodes.get(hashCode);
+        if (node == null) {
+            node = new PathNode(x, y, z, 0);
+            nodes.put(hashCode, node);
+        }
+        return node;
+    }
+
+    /**
+     * Walks from the start to the goal, each step taking the movement that's cheapest according to the graph
+     */
+    private Path extractPath(BetterBlockPos realStart, PathNode start, int numNodes) {
+        PathNode first = new PathNode(start.x, start.y, start.z, 0);
+        first.cost = 0;
+        PathNode end = first;
+        PathNode current = start;
+        for (int steps = 0; !goalNodes.contains(BetterBlockPos.longHash(current.x, current.y, current.z)); steps++) {
+            if (steps > nodes.size()) {
+                throw new IllegalStateException("D* Lite path doesn't reach the goal");
+            }
+            PathNode best = null;
+            double bestCost = ActionCosts.COST_INF;
+            double bestActionCost = 0;
+            int bestMove = -1;
+            for (int i = 0; i < allMoves.length; i++) {
+                PathNode next = successor(current, allMoves[i]);
+                if (next != null && res.cost + next.cost < bestCost) {
+                    best = next;
+                    bestCost = res.cost + next.cost;
+                    bestActionCost = res.cost;
+                    bestMove = i;
+                }
+            }
+            if (best == null) {
+                return null; // the world changed since the search, it'll be repaired next time
+            }
+            PathNode node = new PathNode(best.x, best.y, best.z, 0);
+            node.previous = end;
+            node.previousMove = (byte) bestMove;
+            node.cost = end.cost + bestActionCost;
+            end = node;
+            current = best;
+        }
+        return new Path(realStart, first, end, numNodes, goal, context);
+    }
+}
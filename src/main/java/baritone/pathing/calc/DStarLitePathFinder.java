@@ -0,0 +1,65 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc;
+
+import baritone.api.pathing.calc.IPath;
+import baritone.api.pathing.goals.Goal;
+import baritone.api.utils.BetterBlockPos;
+import baritone.pathing.movement.CalculationContext;
+
+import java.util.Optional;
+
+/**
+ * Runs one path calculation on a {@link DStarLite} graph that outlives it. The first calculation towards a goal is a
+ * full search, the ones after that only repair what changed since.
+ */
+public final class DStarLitePathFinder extends AbstractNodeCostSearch {
+
+    private final DStarLite graph;
+    private final CalculationContext calcContext;
+
+    public DStarLitePathFinder(BetterBlockPos realStart, int startX, int startY, int startZ, Goal goal, CalculationContext context, DStarLite graph) {
+        super(realStart, startX, startY, startZ, goal, context);
+        this.graph = graph;
+        this.calcContext = context;
+    }
+
+    /**
+     * The graph is kept between searches for the goal it was built for, so that's the only goal this search can have.
+     * That's why {@link baritone.behavior.PathingBehavior} only uses it for goals that aren't swapped for a route leg.
+     *
+     * @throws IllegalArgumentException If the goal isn't the one the graph was built for
+     */
+    @Override
+    public void setGoal(Goal goal) {
+        if (!this.goal.equals(goal)) {
+            throw new IllegalArgumentException("D* Lite graph is for " + this.goal + ", not " + goal);
+        }
+    }
+
+    @Override
+    protected Optional<IPath> calculate0(long primaryTimeout, long failureTimeout) {
+        // there is no best path so far to fall back on, the start either has a cost to the goal or it doesn't
+        return graph.calculate(calcContext, realStart, startX, startY, startZ, failureTimeout, () -> cancelRequested);
+    }
+
+    @Override
+    protected int mapSize() {
+        return graph.size();
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc;
+
+import baritone.api.pathing.goals.Goal;
+import baritone.api.pathing.movement.ActionCosts;
+import baritone.api.utils.BetterBlockPos;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays storage for A* nodes. Instead of allocating a {@link PathNode} per visited position, a node is
+ * an int index into parallel primitive arrays, so a long search allocates a handful of growing arrays instead of
+ * millions of tiny objects.
+ * <p>
+ * An arena can be {@link #clear() cleared} and reused for another search, keeping its capacity.
+ */
+public final class NodeArena {
+
+    /**
+     * Returned by lookups when there is no node, and used as the "previous" of the start node
+     */
+    public static final int NONE = -1;
+
+    private final Long2IntOpenHashMap indices;
+
+    private int[] x;
+    private int[] y;
+    private int[] z;
+
+    /**
+     * Cached, should always be equal to goal.heuristic(pos)
+     */
+    private double[] estimatedCostToGoal;
+
+    /**
+     * Total cost of getting from start to here
+     */
+    private double[] cost;
+
+    /**
+     * Should always be equal to estimatedCostToGoal + cost
+     */
+    private double[] combinedCost;
+
+    /**
+     * The index of the node that contributed to the cost, or {@link #NONE}
+     */
+    private int[] previous;
+
+    /**
+     * The ordinal of the move from {@link #previous} to the node, or -1
+     */
+    private byte[] previousMove;
+
+    /**
+     * Where is this node in the open set? -1 if it isn't in it.
+     */
+    private int[] heapPosition;
+
+    private int size;
+
+    public NodeArena(int initialCapacity, float loadFactor) {
+        this.indices = new Long2IntOpenHashMap(initialCapacity, loadFactor);
+        this.indices.defaultReturnValue(NONE);
+        allocate(Math.max(initialCapacity, 16));
+    }
+
+    private void allocate(int capacity) {
+        x = new int[capacity];
+        y = new int[capacity];
+        z = new int[capacity];
+        estimatedCostToGoal = new double[capacity];
+        cost = new double[capacity];
+        combinedCost = new double[capacity];
+        previous = new int[capacity];
+        previousMove = new byte[capacity];
+        heapPosition = new int[capacity];
+    }
+
+    private void grow() {
+        int capacity = x.length << 1;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+        estimatedCostToGoal = Arrays.copyOf(estimatedCostToGoal, capacity);
+        cost = Arrays.copyOf(cost, capacity);
+        combinedCost = Arrays.copyOf(combinedCost, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        previousMove = Arrays.copyOf(previousMove, capacity);
+        heapPosition = Arrays.copyOf(heapPosition, capacity);
+    }
+
+    /**
+     * Returns the node at the specified position, creating it if it doesn't exist yet.
+     *
+     * @param x        The x position of the node
+     * @param y        The y position of the node
+     * @param z        The z position of the node
+     * @param hashCode The hash code of the node, provided by {@link BetterBlockPos#longHash(int, int, int)}
+     * @param goal     The goal, used to calculate the heuristic of a new node
+     * @return The index of the node
+     */
+    public int getOrCreate(int x, int y, int z, long hashCode, Goal goal) {
+        int index = indices.get(hashCode);
+        if (index != NONE) {
+            return index;
+        }
+        double heuristic = goal.heuristic(x, y, z);
+        if (Double.isNaN(heuristic)) {
+            throw new IllegalStateException(goal + " calculated implausible heuristic");
+        }
+        index = size;
+        if (index == this.x.length) {
+            grow();
+        }
+        this.x[index] = x;
+        this.y[index] = y;
+        this.z[index] = z;
+        this.estimatedCostToGoal[index] = heuristic;
+        this.cost[index] = ActionCosts.COST_INF;
+        this.combinedCost[index] = 0;
+        this.previous[index] = NONE;
+        this.previousMove[index] = -1;
+        this.heapPosition[index] = -1;
+        size++;
+        indices.put(hashCode, index);
+        return index;
+    }
+
+    public int x(int node) {
+        return x[node];
+    }
+
+    public int y(int node) {
+        return y[node];
+    }
+
+    public int z(int node) {
+        return z[node];
+    }
+
+    public double estimatedCostToGoal(int node) {
+        return estimatedCostToGoal[node];
+    }
+
+    public double cost(int node) {
+        return cost[node];
+    }
+
+    public double combinedCost(int node) {
+        return combinedCost[node];
+    }
+
+    public int previous(int node) {
+        return previous[node];
+    }
+
+    public int heapPosition(int node) {
+        return heapPosition[node];
+    }
+
+    public boolean isOpen(int node) {
+        return heapPosition[node] != -1;
+    }
+
+    /**
+     * A cheaper way to this node has been found, update its cost and parent.
+     *
+     * @param node     The node
+     * @param previous     The node it is now reached from
+     * @param previousMove The ordinal of the move from previous to this node
+     * @param cost         The new cost from the start
+     */
+    public void relax(int node, int previous, byte previousMove, double cost) {
+        this.previous[node] = previous;
+        this.previousMove[node] = previousMove;
+        this.cost[node] = cost;
+        this.combinedCost[node] = cost + estimatedCostToGoal[node];
+    }
+
+    public void setHeapPosition(int node, int heapPosition) {
+        this.heapPosition[node] = heapPosition;
+    }
+
+    /**
+     * @return The number of nodes in this arena
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of nodes this arena can hold before its arrays need to grow
+     */
+    public int capacity() {
+        return x.length;
+    }
+
+    /**
+     * Removes every node, keeping the allocated arrays for the next search
+     */
+    public void clear() {
+        indices.clear();
+        size = 0;
+    }
+
+    /**
+     * Like the rest of the read-only methods, but safe to call from another thread while the search is running.
+     *
+     * @return The squared distance from the node to the specified position, or -1 if the node can't be read right now
+     */
+    public double distSq(int node, int fromX, int fromY, int fromZ) {
+        int[] x = this.x;
+        int[] y = this.y;
+        int[] z = this.z;
+        if (node < 0 || node >= x.length || node >= y.length || node >= z.length) {
+            return -1;
+        }
+        int xDiff = x[node] - fromX;
+        int yDiff = y[node] - fromY;
+        int zDiff = z[node] - fromZ;
+        return xDiff * xDiff + yDiff * yDiff + zDiff * zDiff;
+    }
+
+    /**
+     * Rebuilds the chain of nodes ending in the specified node as linked {@link PathNode}s, so that it can be turned
+     * into a {@link Path}. Only the nodes actually on the chain are allocated.
+     * <p>
+     * This can be called from another thread while the search is still running (e.g. to render the best path so
+     * far), so it tolerates arrays being swapped out from underneath it and returns {@code null} if it sees an
+     * inconsistent state.
+     *
+     * @param node The last node of the chain
+     * @return The last node of the chain, with {@link PathNode#previous} set all the way back to the start
+     */
+    public PathNode toPathNode(int node) {
+        int[] x = this.x;
+        int[] y = this.y;
+        int[] z = this.z;
+        double[] estimatedCostToGoal = this.estimatedCostToGoal;
+        double[] cost = this.cost;
+        int[] previous = this.previous;
+        byte[] previousMove = this.previousMove;
+        int length = Math.min(Math.min(x.length, y.length), Math.min(z.length, previous.length));
+        length = Math.min(length, Math.min(Math.min(estimatedCostToGoal.length, cost.length), previousMove.length));
+        PathNode end = null;
+        PathNode last = null;
+        int remaining = size;
+        while (node != NONE) {
+            if (node < 0 || node >= length || remaining-- < 0) {
+                return null;
+            }
+            PathNode pathNode = new PathNode(x[node], y[node], z[node], estimatedCostToGoal[node]);
+            pathNode.cost = cost[node];
+            pathNode.combinedCost = cost[node] + estimatedCostToGoal[node];
+            pathNode.previousMove = previousMove[node];
+            if (last == null) {
+                end = pathNode;
+            } else {
+                last.previous = pathNode;
+            }
+            last = pathNode;
+            node = previous[node];
+        }
+        return end;
+    }
+}
@@ -0,0 +1,444 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package baritone.pathing.calc;
+
+import baritone.Baritone;
+import baritone.api.pathing.calc.IPath;
+import baritone.api.pathing.goals.Goal;
+import baritone.api.pathing.movement.ActionCosts;
+import baritone.api.utils.BetterBlockPos;
+import baritone.pathing.calc.openset.IOpenSet;
+import baritone.pathing.movement.CalculationContext;
+import baritone.pathing.movement.Moves;
+import baritone.utils.pathing.BetterWorldBorder;
+import baritone.utils.pathing.Favoring;
+import baritone.utils.pathing.MutableMoveResult;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A* spread over several threads, in the style of hash distributed A* (HDA*)
+ * <p>
+ * Every position is owned by exactly one worker, decided by a hash of the position. Each worker has its own node map
+ * and open set, and only ever touches nodes it owns. When a worker finds a successor owned by someone else, it posts
+ * it to that worker's lock-free inbox instead. Since nothing is shared but the inboxes, the workers never wait on
+ * each other.
+ * <p>
+ * The search is over when every open set and every inbox is empty. That's tracked with a single counter of pending
+ * work: it goes up before a node is opened or a message is posted, and down only once that node has been expanded
+ * or that message has been handled, so it can't read zero while anything is still in flight.
+ * <p>
+ * Unlike the sequential search, finding the goal doesn't end it, since another worker might still have a cheaper way
+ * there in its open set. The cheapest goal node so far is kept, and nodes that can't beat it are dropped.
+ *
+ * @see AStarPathFinder
+ */
+public final class ParallelAStarPathFinder extends AbstractNodeCostSearch {
+
+    /**
+     * Positions are hashed in 4x4x4 groups, so that most movements stay within one worker and don't need a message
+     */
+    private static final int PARTITION_SHIFT = 2;
+
+    /**
+     * How many times an idle worker spins waiting for messages before it starts parking between checks instead
+     */
+    private static final int IDLE_SPINS = 1000;
+
+    private static final long IDLE_PARK_NANOS = 50_000;
+
+    private final Favoring favoring;
+    private final Worker[] workers;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicInteger numEmptyChunk = new AtomicInteger();
+    private final Object incumbentLock = new Object();
+    private volatile PathNode incumbent;
+    private volatile boolean failing;
+    private volatile boolean stop;
+    private volatile Throwable failure;
+
+    /**
+     * The best node so far for each coefficient across all workers. Workers replace it rather than modify it, so that
+     * {@link #bestPathSoFar} can read it from the render thread without ever seeing one worker's node paired with
+     * another's heuristic.
+     */
+    private final AtomicReference<BestSoFar> published = new AtomicReference<>();
+
+    public ParallelAStarPathFinder(BetterBlockPos realStart, int startX, int startY, int startZ, Goal goal, Favoring favoring, CalculationContext context, SearchArena searchArena, int threads) {
+        super(realStart, startX, startY, startZ, goal, context, searchArena);
+        this.favoring = favoring;
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            // the copies have to be made here, on the main thread, since they need their own ToolSet
+            workers[i] = new Worker(i, i == 0 ? context : new CalculationContext(context));
+        }
+    }
+
+    @Override
+    protected Optional<IPath> calculate0(long primaryTimeout, long failureTimeout) {
+        int startOwner = owner(startX, startY, startZ);
+        startNode = workers[startOwner].getNodeAtPosition(startX, startY, startZ, BetterBlockPos.longHash(startX, startY, startZ));
+        startNode.cost = 0;
+        startNode.combinedCost = startNode.estimatedCostToGoal;
+        PathNode[] startNodes = new PathNode[COEFFICIENTS.length];
+        double[] startHeuristics = new double[COEFFICIENTS.length];
+        Arrays.fill(startNodes, startNode);
+        Arrays.fill(startHeuristics, startNode.estimatedCostToGoal);
+        published.set(new BestSoFar(startNodes, startHeuristics));
+        for (Worker worker : workers) {
+            Arrays.fill(worker.bestHeuristicSoFar, startNode.estimatedCostToGoal);
+        }
+        pending.set(1);
+        workers[startOwner].openSet.insert(startNode);
+        failing = true;
+        long startTime = System.currentTimeMillis();
+        long primaryTimeoutTime = startTime + primaryTimeout;
+        long failureTimeoutTime = startTime + failureTimeout;
+
+        CountDownLatch done = new CountDownLatch(workers.length - 1);
+        for (int i = 1; i < workers.length; i++) {
+            Worker worker = workers[i];
+            Baritone.getExecutor().execute(() -> {
+                try {
+                    worker.run(primaryTimeoutTime, failureTimeoutTime);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        workers[0].run(primaryTimeoutTime, failureTimeoutTime);
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stop = true;
+            return Optional.empty();
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Pathing worker failed", failure);
+        }
+        if (cancelRequested) {
+            return Optional.empty();
+        }
+        int numNodes = 0;
+        int numMovementsConsidered = 0;
+        int openSetSize = 0;
+        long totalTime = System.currentTimeMillis() - startTime;
+        for (Worker worker : workers) {
+            numNodes += worker.numNodes;
+            numMovementsConsidered += worker.numMovementsConsidered;
+            openSetSize += worker.openSet.size();
+            logDebug("Worker " + worker.id + ": " + worker.numNodes + " nodes, " + (int) (worker.numNodes * 1.0 / (worker.runTime / 1000F)) + " nodes per second, " + worker.messagesSent + " successors sent to other workers");
+        }
+        System.out.println(numMovementsConsidered + " movements considered");
+        System.out.println("Open set size: " + openSetSize);
+        System.out.println("PathNode map size: " + mapSize());
+        System.out.println((int) (numNodes * 1.0 / (totalTime / 1000F)) + " nodes per second");
+        PathNode best = incumbent;
+        if (best != null) {
+            logDebug("Took " + totalTime + "ms, " + numMovementsConsidered + " movements considered");
+            return Optional.of(new Path(realStart, startNode, best, numNodes, goal, workers[0].context));
+        }
+        Optional<IPath> result = bestSoFar(true, numNodes);
+        if (result.isPresent()) {
+            logDebug("Took " + totalTime + "ms, " + numMovementsConsidered + " movements considered");
+        }
+        return result;
+    }
+
+    @Override
+    protected boolean hasBestSoFar(int i) {
+        BestSoFar best = published.get();
+        return best != null && best.nodes[i] != null;
+    }
+
+    @Override
+    protected double bestSoFarDistFromStartSq(int i) {
+        return getDistFromStartSq(published.get().nodes[i]);
+    }
+
+    @Override
+    protected Path pathToBestSoFar(int i, int numNodes) {
+        return new Path(realStart, startNode, published.get().nodes[i], numNodes, goal, workers[0].context);
+    }
+
+    /**
+     * Replaces the best node so far for a coefficient, unless another worker has already published a better one
+     */
+    private void publishBestSoFar(int i, PathNode node, double heuristic) {
+        while (true) {
+            BestSoFar current = published.get();
+            if (current.heuristics[i] <= heuristic) {
+                return;
+            }
+            PathNode[] nodes = current.nodes.clone();
+            double[] heuristics = current.heuristics.clone();
+            nodes[i] = node;
+            heuristics[i] = heuristic;
+            if (published.compareAndSet(current, new BestSoFar(nodes, heuristics))) {
+                return;
+            }
+        }
+    }
+
+    private int owner(int x, int y, int z) {
+        long hash = BetterBlockPos.longHash(x >> PARTITION_SHIFT, y >> PARTITION_SHIFT, z >> PARTITION_SHIFT) * 0x9E3779B97F4A7C15L;
+        return (int) (((hash >>> 32) * workers.length) >>> 32);
+    }
+
+    private void offerIncumbent(PathNode node) {
+        synchronized (incumbentLock) {
+            if (incumbent == null || node.cost < incumbent.cost) {
+                incumbent = node;
+            }
+        }
+    }
+
+    /**
+     * The best node for each coefficient and its heuristic, never modified once it's been published
+     */
+    private static final class BestSoFar {
+
+        final PathNode[] nodes;
+        final double[] heuristics;
+
+        BestSoFar(PathNode[] nodes, double[] heuristics) {
+            this.nodes = nodes;
+            this.heuristics = heuristics;
+        }
+    }
+
+    /**
+     * A successor found by one worker for a position owned by another
+     */
+    private static final class Message {
+
+        final int x;
+        final int y;
+        final int z;
+        final long hashCode;
+        final double cost;
+        final PathNode previous;
+        final byte previousMove;
+
+        Message(int x, int y, int z, long hashCode, double cost, PathNode previous, byte previousMove) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.hashCode = hashCode;
+            this.cost = cost;
+            this.previous = previous;
+            this.previousMove = previousMove;
+        }
+    }
+
+    private final class Worker {
+
+        final int id;
+        final CalculationContext context;
+        final Long2ObjectOpenHashMap<PathNode> map;
+        final IOpenSet openSet;
+        final ConcurrentLinkedQueue<Message> inbox = new ConcurrentLinkedQueue<>();
+        /**
+         * This worker's own best heuristic for each coefficient, so that it only has to publish actual improvements
+         */
+        final double[] bestHeuristicSoFar = new double[COEFFICIENTS.length];
+        double minimumImprovement;
+        int numNodes;
+        int numMovementsConsidered;
+        int messagesSent;
+        long runTime;
+
+        Worker(int id, CalculationContext context) {
+            this.id = id;
+            this.context = context;
+            SearchArena arena = id == 0 ? searchArena : searchArena.extra(id - 1);
+            this.map = arena.map(context.settings);
+            this.openSet = arena.openSet(context.settings);
+        }
+
+        PathNode getNodeAtPosition(int x, int y, int z, long hashCode) {
+            PathNode node = map.get(hashCode);
+            if (node == null) {
+                node = new PathNode(x, y, z, heuristic);
+                map.put(hashCode, node);
+            }
+            return node;
+        }
+
+        void run(long primaryTimeoutTime, long failureTimeoutTime) {
+            long startTime = System.currentTimeMillis();
+            if (id != 0) {
+                context.startSearch(); // worker 0 shares the context that calculate already started
+            }
+            try {
+                search(primaryTimeoutTime, failureTimeoutTime);
+            } catch (Throwable t) {
+                failure = t;
+                stop = true;
+            } finally {
+                runTime = System.currentTimeMillis() - startTime;
+                if (id != 0) {
+                    context.endSearch();
+                }
+            }
+        }
+
+        private void search(long primaryTimeoutTime, long failureTimeoutTime) {
+            int minY = context.dimension.minY();
+            int height = context.dimension.height();
+            MutableMoveResult res = new MutableMoveResult();
+            BetterWorldBorder worldBorder = context.worldBorder;
+            boolean isFavoring = !favoring.isEmpty();
+            int timeCheckInterval = 1 << 6;
+            int pathingMaxChunkBorderFetch = context.settings.pathingMaxChunkBorderFetch.value; // grab all settings beforehand so that changing settings during pathing doesn't cause a crash or unpredictable behavior
+            minimumImprovement = context.settings.minimumImprovementRepropagation.value ? MIN_IMPROVEMENT : 0;
+            Moves[] allMoves = Moves.values();
+            int iterations = 0;
+            int idle = 0;
+            while (!stop) {
+                if ((iterations++ & (timeCheckInterval - 1)) == 0) {
+                    long now = System.currentTimeMillis();
+                    if (cancelRequested || numEmptyChunk.get() >= pathingMaxChunkBorderFetch || now - failureTimeoutTime >= 0 || (!failing && now - primaryTimeoutTime >= 0)) {
+                        stop = true;
+                        break;
+                    }
+                }
+                Message message;
+                while ((message = inbox.poll()) != null) {
+                    relax(message.x, message.y, message.z, message.hashCode, message.cost, message.previous, message.previousMove);
+                    pending.decrementAndGet(); // only after relax, which may have opened a node of its own
+                }
+                if (openSet.isEmpty()) {
+                    if (pending.get() == 0) {
+                        stop = true; // no open nodes and no messages in flight anywhere
+                        break;
+                    }
+                    if (idle++ < IDLE_SPINS) {
+                        Thread.onSpinWait();
+                    } else {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS); // the others are busy, don't take a core away from them
+                    }
+                    continue;
+                }
+                idle = 0;
+                PathNode currentNode = openSet.removeLowest();
+                if (id == 0) {
+                    mostRecentConsidered = currentNode;
+                }
+                PathNode best = incumbent;
+                if (best != null && currentNode.combinedCost >= best.cost) {
+                    pending.decrementAndGet(); // can't lead anywhere cheaper than what we already have
+                    continue;
+                }
+                numNodes++;
+                if (goal.isInGoal(currentNode.x, currentNode.y, currentNode.z)) {
+                    offerIncumbent(currentNode);
+                    pending.decrementAndGet();
+                    continue;
+                }
+                for (Moves moves : allMoves) {
+                    int newX = currentNode.x + moves.xOffset;
+                    int newZ = currentNode.z + moves.zOffset;
+                    if ((newX >> 4 != currentNode.x >> 4 || newZ >> 4 != currentNode.z >> 4) && !context.isLoaded(newX, newZ)) {
+                        // only need to check if the destination is a loaded chunk if it's in a different chunk than the start of the movement
+                        if (!moves.dynamicXZ) { // only increment the counter if the movement would have gone out of bounds guaranteed
+                            numEmptyChunk.incrementAndGet();
+                        }
+                        continue;
+                    }
+                    if (!moves.dynamicXZ && !worldBorder.entirelyContains(newX, newZ)) {
+                        continue;
+                    }
+                    if (currentNode.y + moves.yOffset > height || currentNode.y + moves.yOffset < minY) {
+                        continue;
+                    }
+                    res.reset();
+                    moves.apply(context, currentNode.x, currentNode.y, currentNode.z, res);
+                    numMovementsConsidered++;
+                    double actionCost = res.cost;
+                    if (actionCost >= ActionCosts.COST_INF) {
+                        continue;
+                    }
+                    if (actionCost <= 0 || Double.isNaN(actionCost)) {
+                        throw new IllegalStateException(moves + " calculated implausible cost " + actionCost);
+                    }
+                    if (moves.dynamicXZ && !worldBorder.entirelyContains(res.x, res.z)) { // see issue #218
+                        continue;
+                    }
+                    if (!moves.dynamicXZ && (res.x != newX || res.z != newZ)) {
+                        throw new IllegalStateException(moves + " " + res.x + " " + newX + " " + res.z + " " + newZ);
+                    }
+                    if (!moves.dynamicY && res.y != currentNode.y + moves.yOffset) {
+                        throw new IllegalStateException(moves + " " + res.y + " " + (currentNode.y + moves.yOffset));
+                    }
+                    long hashCode = BetterBlockPos.longHash(res.x, res.y, res.z);
+                    if (isFavoring) {
+                        // see issue #18
+                        actionCost *= favoring.calculate(hashCode);
+                    }
+                    double tentativeCost = currentNode.cost + actionCost;
+                    int owner = owner(res.x, res.y, res.z);
+                    if (owner == id) {
+                        relax(res.x, res.y, res.z, hashCode, tentativeCost, currentNode, (byte) moves.ordinal());
+                    } else {
+                        pending.incrementAndGet(); // before it's visible to the other worker
+                        workers[owner].inbox.add(new Message(res.x, res.y, res.z, hashCode, tentativeCost, currentNode, (byte) moves.ordinal()));
+                        messagesSent++;
+                    }
+                }
+                pending.decrementAndGet();
+            }
+        }
+
+        private void relax(int x, int y, int z, long hashCode, double tentativeCost, PathNode previous, byte previousMove) {
+            PathNode neighbor = getNodeAtPosition(x, y, z, hashCode);
+            if (neighbor.cost - tentativeCost <= minimumImprovement) {
+                return;
+            }
+            neighbor.previous = previous;
+            neighbor.previousMove = previousMove;
+            neighbor.cost = tentativeCost;
+            neighbor.combinedCost = tentativeCost + neighbor.estimatedCostToGoal;
+            if (neighbor.isOpen()) {
+                openSet.update(neighbor);
+            } else {
+                pending.incrementAndGet();
+                openSet.insert(neighbor);//dont double count, dont insert into open set if it's already there
+            }
+            for (int i = 0; i < COEFFICIENTS.length; i++) {
+                double heuristic = neighbor.estimatedCostToGoal + neighbor.cost / COEFFICIENTS[i];
+                if (bestHeuristicSoFar[i] - heuristic > minimumImprovement) {
+                    bestHeuristicSoFar[i] = heuristic;
+                    publishBestSoFar(i, neighbor, heuristic);
+                    if (failing && getDistFromStartSq(neighbor) > MIN_DIST_PATH * MIN_DIST_PATH) {
+                        failing = false;
+                    }
+                }
+            }
+        }
+    }
+}
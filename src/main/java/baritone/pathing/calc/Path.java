@@ -115,8 +115,9 @@ class Path extends PathBase {
             throw new IllegalStateException();
         }
         for (int i = 0; i < path.size() - 1; i++) {
-            double cost = nodes.get(i + 1).cost - nodes.get(i).cost;
-            Movement move = runBackwards(path.get(i), path.get(i + 1), cost);
+            PathNode next = nodes.get(i + 1);
+            double cost = next.cost - nodes.get(i).cost;
+            Movement move = runBackwards(path.get(i), path.get(i + 1), cost, next.previousMove);
             if (move == null) {
                 return true;
             } else {
@@ -126,15 +127,19 @@ class Path extends PathBase {
         return false;
     }
 
-    private Movement runBackwards(BetterBlockPos src, BetterBlockPos dest, double cost) {
-        for (Moves moves : Moves.values()) {
+    private Movement runBackwards(BetterBlockPos src, BetterBlockPos dest, double cost, byte previousMove) {
+        Moves[] allMoves = Moves.values();
+        if (previousMove >= 0) {
+            // A* already knows which move it took, so only that one has to be built
+            Movement move = allMoves[previousMove].apply0(context, src);
+            if (move.getDest().equals(dest)) {
+                return withCost(move, cost);
+            }
+        }
+        for (Moves moves : allMoves) {
             Movement move = moves.apply0(context, src);
             if (move.getDest().equals(dest)) {
-                // have to calculate the cost at calculation time so we can accurately judge whether a cost increase happened between cached calculation and real execution
-                // however, taking into account possible favoring that could skew the node cost, we really want the stricter limit of the two
-                // so we take the minimum of the path node cost difference, and the calculated cost
-                move.override(Math.min(move.calculateCost(context), cost));
-                return move;
+                return withCost(move, cost);
             }
         }
         // this is no longer called from bestPathSoFar, now it's in postprocessing
@@ -142,6 +147,14 @@ class Path extends PathBase {
         return null;
     }
 
+    private Movement withCost(Movement move, double cost) {
+        // have to calculate the cost at calculation time so we can accurately judge whether a cost increase happened between cached calculation and real execution
+        // however, taking into account possible favoring that could skew the node cost, we really want the stricter limit of the two
+        // so we take the minimum of the path node cost difference, and the calculated cost
+        move.override(Math.min(move.calculateCost(context), cost));
+        return move;
+    }
+
     @Override
     public IPath postProcess() {
         if (verified) {
@@ -58,6 +58,13 @@ public final class PathNode {
      */
     public PathNode previous;
 
+    /**
+     * The ordinal of the {@link baritone.pathing.movement.Moves} that goes from previous to this node, or -1 if it
+     * isn't known. Lets {@link Path} build exactly one movement per step instead of trying all of them.
+     * Mutable and changed by PathFinder
+     */
+    public byte previousMove;
+
     /**
      * Where is this node in the array flattenization of the binary heap? Needed for decrease-key operations.
      */
@@ -65,6 +72,7 @@ public final class PathNode {
 
     public PathNode(int x, int y, int z, Goal goal) {
         this.previous = null;
+        this.previousMove = -1;
         this.cost = ActionCosts.COST_INF;
         this.estimatedCostToGoal = goal.heuristic(x, y, z);
         if (Double.isNaN(estimatedCostToGoal)) {
@@ -76,6 +84,21 @@ public final class PathNode {
         this.z = z;
     }
 
+    /**
+     * Creates a node whose heuristic has already been computed, for example when rebuilding a path out of a
+     * {@link NodeArena} that stores nodes as primitives.
+     */
+    PathNode(int x, int y, int z, double estimatedCostToGoal) {
+        this.previous = null;
+        this.previousMove = -1;
+        this.cost = ActionCosts.COST_INF;
+        this.estimatedCostToGoal = estimatedCostToGoal;
+        this.heapPosition = -1;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
     public boolean isOpen() {
         return heapPosition != -1;
     }
@@ -0,0 +1,162 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc;
+
+import baritone.api.Settings;
+import baritone.pathing.calc.openset.ArenaBinaryHeapOpenSet;
+import baritone.pathing.calc.openset.IOpenSet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The reusable storage behind one search: the node map, the open set and the best-so-far buffers.
+ * <p>
+ * A path finder can only be used once, but the storage it needs is expensive to grow from scratch, so it's borrowed
+ * from a {@link SearchArenaPool} and handed back, cleared but still sized, once the search is over. Each piece is
+ * only created once a search actually asks for it, so an arena only holds what the node storage mode in use needs.
+ */
+public final class SearchArena {
+
+    /**
+     * The pool this arena goes back to, or {@code null} if it's a one-off
+     */
+    private final SearchArenaPool pool;
+
+    /**
+     * @see <a href="https://github.com/cabaletta/baritone/issues/107">Issue #107</a>
+     */
+    private Long2ObjectOpenHashMap<PathNode> map;
+
+    private IOpenSet openSet;
+
+    /**
+     * The {@link baritone.api.Settings#pathingOpenSet} that {@link #openSet} was created for
+     */
+    private String openSetType;
+
+    private NodeArena nodeArena;
+
+    private ArenaBinaryHeapOpenSet arenaOpenSet;
+
+    private final double[] bestHeuristicSoFar = new double[AbstractNodeCostSearch.COEFFICIENTS.length];
+
+    /**
+     * More arenas for searches that need more than one node map, see {@link #extra}
+     */
+    private final List<SearchArena> extras = new ArrayList<>();
+
+    SearchArena(SearchArenaPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @return A new arena that isn't part of any pool
+     */
+    public static SearchArena unpooled() {
+        return new SearchArena(null);
+    }
+
+    Long2ObjectOpenHashMap<PathNode> map(Settings settings) {
+        if (map == null) {
+            map = new Long2ObjectOpenHashMap<>(settings.pathingMapDefaultSize.value, settings.pathingMapLoadFactor.value);
+        }
+        return map;
+    }
+
+    IOpenSet openSet(Settings settings) {
+        String type = settings.pathingOpenSet.value;
+        if (openSet == null || !type.equals(openSetType)) {
+            openSet = IOpenSet.create(type);
+            openSetType = type;
+        }
+        return openSet;
+    }
+
+    NodeArena nodeArena(Settings settings) {
+        if (nodeArena == null) {
+            nodeArena = new NodeArena(settings.pathingMapDefaultSize.value, settings.pathingMapLoadFactor.value);
+        }
+        return nodeArena;
+    }
+
+    ArenaBinaryHeapOpenSet arenaOpenSet(Settings settings) {
+        if (arenaOpenSet == null) {
+            arenaOpenSet = new ArenaBinaryHeapOpenSet(nodeArena(settings));
+        }
+        return arenaOpenSet;
+    }
+
+    /**
+     * @param index Which one, starting from 0
+     * @return Another arena for a search that needs more than one node map, like the other workers of a parallel
+     * search. It stays with this one, so it goes back to the pool and gets reused along with it.
+     */
+    SearchArena extra(int index) {
+        while (extras.size() <= index) {
+            extras.add(unpooled());
+        }
+        return extras.get(index);
+    }
+
+    double[] bestHeuristicSoFar() {
+        return bestHeuristicSoFar;
+    }
+
+    /**
+     * @return The number of nodes currently stored, in whichever storage is in use, including the extra arenas
+     */
+    int size() {
+        int size = Math.max(map == null ? 0 : map.size(), nodeArena == null ? 0 : nodeArena.size());
+        for (SearchArena extra : extras) {
+            size += extra.size();
+        }
+        return size;
+    }
+
+    /**
+     * Empties everything, keeping the allocated capacity
+     */
+    void clear() {
+        if (map != null) {
+            map.clear();
+        }
+        if (openSet != null) {
+            openSet.clear();
+        }
+        if (nodeArena != null) {
+            nodeArena.clear();
+        }
+        if (arenaOpenSet != null) {
+            arenaOpenSet.clear();
+        }
+        for (SearchArena extra : extras) {
+            extra.clear();
+        }
+    }
+
+    /**
+     * Hands this arena back to its pool. Must only be called once the search using it is completely done with it.
+     */
+    void release() {
+        if (pool != null) {
+            pool.release(this);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc;
+
+import baritone.Baritone;
+import baritone.api.utils.Helper;
+
+import java.util.ArrayDeque;
+
+/**
+ * A pool of {@link SearchArena}s, so that successive path segments reuse the same already-grown storage instead of
+ * allocating and discarding a multi-megabyte node map every few seconds.
+ */
+public final class SearchArenaPool {
+
+    private final ArrayDeque<SearchArena> free = new ArrayDeque<>();
+
+    private long hits;
+    private long misses;
+    private int peakSize;
+
+    /**
+     * @return A cleared arena, reused from the pool if one is available
+     */
+    public synchronized SearchArena borrow() {
+        SearchArena arena = free.pollFirst();
+        if (arena != null) {
+            hits++;
+            return arena;
+        }
+        misses++;
+        return new SearchArena(this);
+    }
+
+    synchronized void release(SearchArena arena) {
+        int size = arena.size();
+        if (size > peakSize) {
+            peakSize = size;
+        }
+        arena.clear();
+        if (free.size() < Baritone.settings().pathingArenaPoolSize.value) {
+            free.addFirst(arena);
+        }
+        Helper.HELPER.logDebug("Search arena pool: " + hits + " hits, " + misses + " misses, peak of " + peakSize + " nodes");
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SearchArenaPool{hits=" + hits + ",misses=" + misses + ",peakSize=" + peakSize + ",free=" + free.size() + "}";
+    }
+}
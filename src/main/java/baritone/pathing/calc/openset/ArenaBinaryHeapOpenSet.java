@@ -0,0 +1,147 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc.openset;
+
+import baritone.pathing.calc.NodeArena;
+
+import java.util.Arrays;
+
+/**
+ * The same binary heap as {@link BinaryHeapOpenSet}, but over node indices into a {@link NodeArena}.
+ * <p>
+ * The combined cost of each entry is stored inline next to its index, so sifting never has to look into the arena.
+ */
+public final class ArenaBinaryHeapOpenSet {
+
+    /**
+     * The initial capacity of the heap (2^10)
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final NodeArena arena;
+
+    /**
+     * The node indices backing the heap
+     */
+    private int[] nodes;
+
+    /**
+     * The combined cost of the node at the same position in {@link #nodes}
+     */
+    private double[] costs;
+
+    /**
+     * The size of the heap
+     */
+    private int size;
+
+    public ArenaBinaryHeapOpenSet(NodeArena arena) {
+        this(arena, INITIAL_CAPACITY);
+    }
+
+    public ArenaBinaryHeapOpenSet(NodeArena arena, int size) {
+        this.arena = arena;
+        this.size = 0;
+        this.nodes = new int[size];
+        this.costs = new double[size];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every node, keeping the backing arrays
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public void insert(int node) {
+        if (size >= nodes.length - 1) {
+            nodes = Arrays.copyOf(nodes, nodes.length << 1);
+            costs = Arrays.copyOf(costs, costs.length << 1);
+        }
+        size++;
+        arena.setHeapPosition(node, size);
+        nodes[size] = node;
+        update(node);
+    }
+
+    /**
+     * A faster path has been found to this node, decreasing its cost. Perform a decrease-key operation.
+     *
+     * @param node The node
+     */
+    public void update(int node) {
+        int index = arena.heapPosition(node);
+        double cost = arena.combinedCost(node);
+        int parentInd = index >>> 1;
+        while (index > 1 && costs[parentInd] > cost) {
+            int parentNode = nodes[parentInd];
+            nodes[index] = parentNode;
+            costs[index] = costs[parentInd];
+            arena.setHeapPosition(parentNode, index);
+            index = parentInd;
+            parentInd = index >>> 1;
+        }
+        nodes[index] = node;
+        costs[index] = cost;
+        arena.setHeapPosition(node, index);
+    }
+
+    public int removeLowest() {
+        if (size == 0) {
+            throw new IllegalStateException();
+        }
+        int result = nodes[1];
+        int val = nodes[size];
+        double cost = costs[size];
+        size--;
+        arena.setHeapPosition(result, -1);
+        if (size == 0) {
+            return result;
+        }
+        int index = 1;
+        int smallerChild = 2;
+        while (smallerChild <= size) {
+            double smallerChildCost = costs[smallerChild];
+            if (smallerChild < size && smallerChildCost > costs[smallerChild + 1]) {
+                smallerChild++;
+                smallerChildCost = costs[smallerChild];
+            }
+            if (cost <= smallerChildCost) {
+                break;
+            }
+            int smallerChildNode = nodes[smallerChild];
+            nodes[index] = smallerChildNode;
+            costs[index] = smallerChildCost;
+            arena.setHeapPosition(smallerChildNode, index);
+            index = smallerChild;
+            smallerChild <<= 1;
+        }
+        nodes[index] = val;
+        costs[index] = cost;
+        arena.setHeapPosition(val, index);
+        return result;
+    }
+}
@@ -52,10 +52,20 @@ public final class BinaryHeapOpenSet implements IOpenSet {
         this.array = new PathNode[size];
     }
 
+    @Override
     public int size() {
         return size;
     }
 
+    /**
+     * Removes every node, keeping the backing array so it doesn't have to grow again
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(array, 1, size + 1, null);
+        size = 0;
+    }
+
     @Override
     public final void insert(PathNode value) {
         if (size >= array.length - 1) {
@@ -0,0 +1,341 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc.openset;
+
+import baritone.pathing.calc.PathNode;
+
+import java.util.Arrays;
+
+/**
+ * A bucket queue keyed on {@code floor(combinedCost / width)}. Movement costs are positive and bounded, so the open
+ * set of an A* search only spans a limited range of costs at any time, and each bucket only ever holds a small slice
+ * of it. Each bucket is a binary heap, so removing still hands back exactly the cheapest node.
+ * <p>
+ * Buckets form a ring covering {@link #RING} keys from the cursor. Nodes beyond the ring wait in an overflow bucket
+ * until the ring runs dry. A node cheaper than the cursor, which an inconsistent heuristic can produce, moves the
+ * cursor back.
+ * <p>
+ * Each bucket is a chain of heaps. Almost always that's just the one, but a big search across flat ground can put
+ * more nodes in one bucket than a heap can be indexed with, and then the bucket carries on in another heap.
+ */
+public final class BucketOpenSet implements IOpenSet {
+
+    private static final int RING_BITS = 10;
+    private static final int RING = 1 << RING_BITS;
+    private static final int RING_MASK = RING - 1;
+
+    /**
+     * The bucket for nodes beyond the ring, after the ring buckets
+     */
+    private static final int OVERFLOW = RING;
+
+    private static final int BUCKETS = RING + 1;
+
+    /**
+     * {@link PathNode#heapPosition} holds the index within the heap in the high bits, and the heap in the low bits.
+     * The first {@link #BUCKETS} heaps are the first heap of each bucket. Between them, the heaps can index
+     * {@code 2^31} nodes, far more than a search could ever allocate.
+     */
+    private static final int LIST_BITS = 14;
+    private static final int LIST_MASK = (1 << LIST_BITS) - 1;
+    private static final int MAX_LISTS = 1 << LIST_BITS;
+    private static final int MAX_LIST_SIZE = 1 << (31 - LIST_BITS);
+
+    private static final int NONE = -1;
+
+    private final double width;
+
+    private PathNode[][] lists = new PathNode[BUCKETS][];
+
+    private int[] sizes = new int[BUCKETS];
+
+    /**
+     * The bucket that each heap belongs to
+     */
+    private int[] owners = new int[BUCKETS];
+
+    /**
+     * The next heap in the same bucket, or {@link #NONE}
+     */
+    private int[] next = new int[BUCKETS];
+
+    private int numLists = BUCKETS;
+
+    /**
+     * The number of nodes in each bucket, across all of its heaps
+     */
+    private final int[] counts = new int[BUCKETS];
+
+    /**
+     * No node in the ring has a key lower than this
+     */
+    private long cursor;
+
+    /**
+     * Every node in the ring has a key lower than this, and every node in overflow has a key at least this
+     */
+    private long limit;
+
+    private int ringSize;
+
+    private int size;
+
+    public BucketOpenSet() {
+        this(0.5);
+    }
+
+    /**
+     * @param width The range of costs that share a bucket
+     */
+    public BucketOpenSet(double width) {
+        this.width = width;
+        for (int i = 0; i < BUCKETS; i++) {
+            owners[i] = i;
+            next[i] = NONE;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < numLists; i++) {
+            if (sizes[i] > 0) {
+                Arrays.fill(lists[i], 0, sizes[i], null);
+                sizes[i] = 0;
+            }
+        }
+        Arrays.fill(counts, 0);
+        ringSize = 0;
+        size = 0;
+    }
+
+    @Override
+    public void insert(PathNode node) {
+        size++;
+        place(node, key(node.combinedCost));
+    }
+
+    @Override
+    public void update(PathNode node) {
+        long key = key(node.combinedCost);
+        int list = node.heapPosition & LIST_MASK;
+        int index = node.heapPosition >>> LIST_BITS;
+        int bucket = owners[list];
+        if (bucket != OVERFLOW && key >= cursor && key < limit && (int) (key & RING_MASK) == bucket) {
+            siftUp(list, index, node); // still in the right bucket, and only ever gets cheaper
+            return;
+        }
+        remove(list, index);
+        place(node, key);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public PathNode removeLowest() {
+        if (size == 0) {
+            throw new IllegalStateException();
+        }
+        if (ringSize == 0) {
+            refill();
+        }
+        int bucket;
+        while (counts[bucket = (int) (cursor & RING_MASK)] == 0) {
+            cursor++;
+        }
+        int list = cheapest(bucket);
+        PathNode result = lists[list][0];
+        remove(list, 0);
+        result.heapPosition = -1;
+        size--;
+        return result;
+    }
+
+    private long key(double cost) {
+        return (long) Math.floor(cost / width);
+    }
+
+    /**
+     * @return The heap in this non empty bucket whose root is cheapest
+     */
+    private int cheapest(int bucket) {
+        int best = NONE;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for (int list = bucket; list != NONE; list = next[list]) {
+            if (sizes[list] > 0 && lists[list][0].combinedCost < bestCost) {
+                best = list;
+                bestCost = lists[list][0].combinedCost;
+            }
+        }
+        return best;
+    }
+
+    private void place(PathNode node, long key) {
+        if (ringSize == 0 && counts[OVERFLOW] == 0) {
+            cursor = key;
+            limit = key + RING;
+        } else if (key < cursor) {
+            lowerCursor(key);
+        }
+        add(key < limit ? (int) (key & RING_MASK) : OVERFLOW, node);
+    }
+
+    /**
+     * Moves the cursor back to {@code key}, pushing any bucket that falls off the top of the ring into overflow
+     */
+    private void lowerCursor(long key) {
+        long newLimit = Math.min(limit, key + RING);
+        for (long k = Math.max(newLimit, cursor); k < limit; k++) {
+            int bucket = (int) (k & RING_MASK);
+            for (int list = bucket; list != NONE; list = next[list]) {
+                PathNode[] nodes = lists[list];
+                for (int i = sizes[list] - 1; i >= 0; i--) {
+                    add(OVERFLOW, nodes[i]);
+                    nodes[i] = null;
+                }
+                sizes[list] = 0;
+            }
+            ringSize -= counts[bucket];
+            counts[bucket] = 0;
+        }
+        cursor = key;
+        limit = newLimit;
+    }
+
+    /**
+     * The ring is empty, so restart it at the cheapest node in overflow, and pop everything that now fits in the ring
+     * off the overflow heaps
+     */
+    private void refill() {
+        long min = key(lists[cheapest(OVERFLOW)][0].combinedCost);
+        cursor = min;
+        limit = min + RING;
+        for (int list = OVERFLOW; list != NONE; list = next[list]) {
+            PathNode[] nodes = lists[list];
+            long key;
+            while (sizes[list] > 0 && (key = key(nodes[0].combinedCost)) < limit) {
+                PathNode node = nodes[0];
+                remove(list, 0);
+                add((int) (key & RING_MASK), node);
+            }
+        }
+    }
+
+    private void add(int bucket, PathNode node) {
+        int list = bucket;
+        while (sizes[list] == MAX_LIST_SIZE) {
+            if (next[list] == NONE) {
+                int added = newList(bucket); // before indexing into next, which this can replace
+                next[list] = added;
+            }
+            list = next[list];
+        }
+        int index = sizes[list];
+        PathNode[] nodes = lists[list];
+        if (nodes == null) {
+            lists[list] = new PathNode[16];
+        } else if (index == nodes.length) {
+            lists[list] = Arrays.copyOf(nodes, Math.min(index << 1, MAX_LIST_SIZE));
+        }
+        sizes[list] = index + 1;
+        siftUp(list, index, node);
+        counts[bucket]++;
+        if (bucket != OVERFLOW) {
+            ringSize++;
+        }
+    }
+
+    /**
+     * @return A new empty heap at the end of a bucket's chain, which stays with that bucket
+     */
+    private int newList(int bucket) {
+        if (numLists == lists.length) {
+            int capacity = Math.min(numLists << 1, MAX_LISTS);
+            lists = Arrays.copyOf(lists, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            owners = Arrays.copyOf(owners, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        owners[numLists] = bucket;
+        next[numLists] = NONE;
+        return numLists++;
+    }
+
+    private void remove(int list, int index) {
+        PathNode[] nodes = lists[list];
+        int last = --sizes[list];
+        PathNode moved = nodes[last];
+        nodes[last] = null;
+        if (index != last) {
+            siftDown(list, index, moved);
+            if (nodes[index] == moved) {
+                siftUp(list, index, moved);
+            }
+        }
+        int bucket = owners[list];
+        counts[bucket]--;
+        if (bucket != OVERFLOW) {
+            ringSize--;
+        }
+    }
+
+    private void siftUp(int list, int index, PathNode val) {
+        PathNode[] nodes = lists[list];
+        double cost = val.combinedCost;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            PathNode parentNode = nodes[parent];
+            if (parentNode.combinedCost <= cost) {
+                break;
+            }
+            nodes[index] = parentNode;
+            parentNode.heapPosition = index << LIST_BITS | list;
+            index = parent;
+        }
+        nodes[index] = val;
+        val.heapPosition = index << LIST_BITS | list;
+    }
+
+    private void siftDown(int list, int index, PathNode val) {
+        PathNode[] nodes = lists[list];
+        int size = sizes[list];
+        double cost = val.combinedCost;
+        int child;
+        while ((child = (index << 1) + 1) < size) {
+            if (child + 1 < size && nodes[child + 1].combinedCost < nodes[child].combinedCost) {
+                child++;
+            }
+            PathNode childNode = nodes[child];
+            if (cost <= childNode.combinedCost) {
+                break;
+            }
+            nodes[index] = childNode;
+            childNode.heapPosition = index << LIST_BITS | list;
+            index = child;
+        }
+        nodes[index] = val;
+        val.heapPosition = index << LIST_BITS | list;
+    }
+}
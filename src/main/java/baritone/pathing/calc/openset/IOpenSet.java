@@ -17,8 +17,11 @@
 
 package baritone.pathing.calc.openset;
 
+import baritone.api.utils.Helper;
 import baritone.pathing.calc.PathNode;
 
+import java.util.Locale;
+
 /**
  * An open set for A* or similar graph search algorithm
  *
@@ -51,4 +54,33 @@ public interface IOpenSet {
      * @param node The node
      */
     void update(PathNode node);
+
+    /**
+     * @return The number of nodes in the set
+     */
+    int size();
+
+    /**
+     * Removes every node, keeping any allocated capacity
+     */
+    void clear();
+
+    /**
+     * @param type One of {@code binary}, {@code quaternary} or {@code bucket}, in any case. Anything else gets a
+     *             warning in chat and {@code binary}.
+     * @return A new, empty open set of that type
+     */
+    static IOpenSet create(String type) {
+        switch (type.toLowerCase(Locale.ROOT)) {
+            case "quaternary":
+                return new QuaternaryHeapOpenSet();
+            case "bucket":
+                return new BucketOpenSet();
+            case "binary":
+                return new BinaryHeapOpenSet();
+            default:
+                Helper.HELPER.logDirect("Unknown pathingOpenSet " + type + ", using binary");
+                return new BinaryHeapOpenSet();
+        }
+    }
 }
@@ -30,6 +30,8 @@ class LinkedListOpenSet implements IOpenSet {
 
     private Node first = null;
 
+    private int size;
+
     @Override
     public boolean isEmpty() {
         return first == null;
@@ -41,6 +43,7 @@ class LinkedListOpenSet implements IOpenSet {
         node.val = pathNode;
         node.nextOpen = first;
         first = node;
+        size++;
     }
 
     @Override
@@ -48,11 +51,23 @@ class LinkedListOpenSet implements IOpenSet {
 
     }
 
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        first = null;
+        size = 0;
+    }
+
     @Override
     public PathNode removeLowest() {
         if (first == null) {
             return null;
         }
+        size--;
         Node current = first.nextOpen;
         if (current == null) {
             Node n = first;
@@ -0,0 +1,143 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc.openset;
+
+import baritone.pathing.calc.PathNode;
+
+import java.util.Arrays;
+
+/**
+ * A 4-ary heap with the cost of every entry copied into a primitive array next to it, so sifting only touches the
+ * nodes it actually moves. Half as deep as {@link BinaryHeapOpenSet}, and the four children of an entry are adjacent.
+ */
+public final class QuaternaryHeapOpenSet implements IOpenSet {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The cost of each entry, always equal to {@code nodes[i].combinedCost}
+     */
+    private double[] costs;
+
+    private PathNode[] nodes;
+
+    private int size;
+
+    public QuaternaryHeapOpenSet() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public QuaternaryHeapOpenSet(int size) {
+        this.costs = new double[size];
+        this.nodes = new PathNode[size];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(nodes, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    public void insert(PathNode value) {
+        if (size == nodes.length) {
+            costs = Arrays.copyOf(costs, size << 1);
+            nodes = Arrays.copyOf(nodes, size << 1);
+        }
+        siftUp(size++, value, value.combinedCost);
+    }
+
+    @Override
+    public void update(PathNode val) {
+        siftUp(val.heapPosition, val, val.combinedCost);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public PathNode removeLowest() {
+        if (size == 0) {
+            throw new IllegalStateException();
+        }
+        PathNode result = nodes[0];
+        result.heapPosition = -1;
+        size--;
+        PathNode last = nodes[size];
+        double lastCost = costs[size];
+        nodes[size] = null;
+        if (size > 0) {
+            siftDown(last, lastCost);
+        }
+        return result;
+    }
+
+    private void siftUp(int index, PathNode val, double cost) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 2;
+            if (costs[parent] <= cost) {
+                break;
+            }
+            PathNode parentNode = nodes[parent];
+            costs[index] = costs[parent];
+            nodes[index] = parentNode;
+            parentNode.heapPosition = index;
+            index = parent;
+        }
+        costs[index] = cost;
+        nodes[index] = val;
+        val.heapPosition = index;
+    }
+
+    /**
+     * Places {@code val} at the root and moves it down to where it belongs
+     */
+    private void siftDown(PathNode val, double cost) {
+        int index = 0;
+        int child;
+        while ((child = (index << 2) + 1) < size) {
+            int end = Math.min(child + 4, size);
+            int smallest = child;
+            double smallestCost = costs[child];
+            for (int i = child + 1; i < end; i++) {
+                if (costs[i] < smallestCost) {
+                    smallest = i;
+                    smallestCost = costs[i];
+                }
+            }
+            if (cost <= smallestCost) {
+                break;
+            }
+            PathNode childNode = nodes[smallest];
+            costs[index] = smallestCost;
+            nodes[index] = childNode;
+            childNode.heapPosition = index;
+            index = smallest;
+        }
+        costs[index] = cost;
+        nodes[index] = val;
+        val.heapPosition = index;
+    }
+}
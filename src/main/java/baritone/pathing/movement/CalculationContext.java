@@ -19,10 +19,13 @@ package baritone.pathing.movement;
 
 import baritone.Baritone;
 import baritone.api.IBaritone;
+import baritone.api.Settings;
 import baritone.api.pathing.movement.ActionCosts;
+import baritone.api.utils.Helper;
 import baritone.cache.WorldData;
 import baritone.pathing.precompute.PrecomputedData;
 import baritone.utils.BlockStateInterface;
+import baritone.utils.SearchBlockCache;
 import baritone.utils.ToolSet;
 import baritone.utils.pathing.BetterWorldBorder;
 import net.minecraft.client.player.LocalPlayer;
@@ -38,6 +41,7 @@ import net.minecraft.world.item.enchantment.effects.EnchantmentAttributeEffect;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.dimension.DimensionType;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -54,7 +58,9 @@ public class CalculationContext {
 
     public final boolean safeForThreadedUse;
     public final IBaritone baritone;
+    public final Settings settings;
     public final Level world;
+    public final DimensionType dimension;
     public final WorldData worldData;
     public final BlockStateInterface bsi;
     public final ToolSet toolSet;
@@ -86,19 +92,31 @@ public class CalculationContext {
 
     public final PrecomputedData precomputedData;
 
+    /**
+     * Whether this is a copy that only one search uses, see {@link #forSearch()}
+     */
+    private final boolean searchCopy;
+
+    /**
+     * Only set between {@link #startSearch()} and {@link #endSearch()}, on copies made with {@link #forSearch()}
+     */
+    private SearchBlockCache blockCache;
+
     public CalculationContext(IBaritone baritone) {
         this(baritone, false);
     }
 
     public CalculationContext(IBaritone baritone, boolean forUseOnAnotherThread) {
-        this.precomputedData = new PrecomputedData();
+        this.settings = Baritone.settings();
+        this.precomputedData = new PrecomputedData(settings);
         this.safeForThreadedUse = forUseOnAnotherThread;
         this.baritone = baritone;
         LocalPlayer player = baritone.getPlayerContext().player();
         this.world = baritone.getPlayerContext().world();
+        this.dimension = world.dimensionType();
         this.worldData = (WorldData) baritone.getPlayerContext().worldData();
         this.bsi = new BlockStateInterface(baritone.getPlayerContext(), forUseOnAnotherThread);
-        this.toolSet = new ToolSet(player);
+        this.toolSet = ((Baritone) baritone).getToolSet();
         this.hasThrowaway = Baritone.settings().allowPlace.value && ((Baritone) baritone).getInventoryBehavior().hasGenericThrowaway();
         this.hasWaterBucket = Baritone.settings().allowWaterBucketFall.value && Inventory.isHotbarSlot(player.getInventory().findSlotMatchingItem(STACK_BUCKET_WATER)) && world.dimension() != Level.NETHER;
         this.canSprint = Baritone.settings().allowSprint.value && player.getFoodData().getFoodLevel() > 6;
@@ -157,6 +175,119 @@ public class CalculationContext {
         // because if some movements are calculated one way and others are calculated another way,
         // then you get a wildly inconsistent path that isn't optimal for either scenario.
         this.worldBorder = new BetterWorldBorder(world.getWorldBorder());
+        this.searchCopy = false;
+    }
+
+    /**
+     * Creates a copy of {@code other} that has its own {@link BlockStateInterface} and {@link ToolSet}, so that it
+     * can be used by another pathing thread alongside the original. Must be called from the main thread.
+     *
+     * @param other The context to copy, which must be safe for threaded use
+     */
+    public CalculationContext(CalculationContext other) {
+        this(other, other.searchCopy, new ToolSet(other.baritone.getPlayerContext().player()));
+    }
+
+    private CalculationContext(CalculationContext other, boolean searchCopy, ToolSet toolSet) {
+        if (!other.safeForThreadedUse) {
+            throw new IllegalArgumentException("Can only copy a context that is safe for threaded use");
+        }
+        this.settings = other.settings;
+        this.precomputedData = other.precomputedData; // only ever lazily fills in the same values, sharing is fine
+        this.safeForThreadedUse = true;
+        this.baritone = other.baritone;
+        this.world = other.world;
+        this.dimension = other.dimension;
+        this.worldData = other.worldData;
+        this.bsi = new BlockStateInterface(other.bsi);
+        this.toolSet = toolSet;
+        this.hasThrowaway = other.hasThrowaway;
+        this.hasWaterBucket = other.hasWaterBucket;
+        this.canSprint = other.canSprint;
+        this.placeBlockCost = other.placeBlockCost;
+        this.allowBreak = other.allowBreak;
+        this.allowBreakAnyway = other.allowBreakAnyway;
+        this.allowParkour = other.allowParkour;
+        this.allowParkourPlace = other.allowParkourPlace;
+        this.allowJumpAt256 = other.allowJumpAt256;
+        this.allowParkourAscend = other.allowParkourAscend;
+        this.assumeWalkOnWater = other.assumeWalkOnWater;
+        this.allowFallIntoLava = other.allowFallIntoLava;
+        this.frostWalker = other.frostWalker;
+        this.allowDiagonalDescend = other.allowDiagonalDescend;
+        this.allowDiagonalAscend = other.allowDiagonalAscend;
+        this.allowDownward = other.allowDownward;
+        this.minFallHeight = other.minFallHeight;
+        this.maxFallHeightNoWater = other.maxFallHeightNoWater;
+        this.maxFallHeightBucket = other.maxFallHeightBucket;
+        this.waterWalkSpeed = other.waterWalkSpeed;
+        this.breakBlockAdditionalCost = other.breakBlockAdditionalCost;
+        this.backtrackCostFavoringCoefficient = other.backtrackCostFavoringCoefficient;
+        this.jumpPenalty = other.jumpPenalty;
+        this.walkOnWaterOnePenalty = other.walkOnWaterOnePenalty;
+        this.worldBorder = other.worldBorder;
+        this.searchCopy = searchCopy;
+    }
+
+    /**
+     * A context with no player or world behind it, for subclasses that supply every block themselves through
+     * {@link #get(int, int, int)} and {@link #isLoaded(int, int)}. With no tools or inventory, it can't break or place
+     * anything, and the rest comes from the given settings.
+     *
+     * @param settings    The settings to search by
+     * @param dimension   The dimension to search in, for its height
+     * @param worldBorder The border to stay inside
+     */
+    protected CalculationContext(Settings settings, DimensionType dimension, BetterWorldBorder worldBorder) {
+        this.settings = settings;
+        this.precomputedData = new PrecomputedData(settings);
+        this.safeForThreadedUse = true;
+        this.baritone = null;
+        this.world = null;
+        this.dimension = dimension;
+        this.worldData = null;
+        this.bsi = null;
+        this.toolSet = null;
+        this.hasThrowaway = false;
+        this.hasWaterBucket = false;
+        this.canSprint = settings.allowSprint.value;
+        this.placeBlockCost = settings.blockPlacementPenalty.value;
+        this.allowBreak = false;
+        this.allowBreakAnyway = new ArrayList<>();
+        this.allowParkour = settings.allowParkour.value;
+        this.allowParkourPlace = false;
+        this.allowJumpAt256 = settings.allowJumpAt256.value;
+        this.allowParkourAscend = settings.allowParkourAscend.value;
+        this.assumeWalkOnWater = settings.assumeWalkOnWater.value;
+        this.allowFallIntoLava = false;
+        this.frostWalker = 0;
+        this.allowDiagonalDescend = settings.allowDiagonalDescend.value;
+        this.allowDiagonalAscend = settings.allowDiagonalAscend.value;
+        this.allowDownward = settings.allowDownward.value;
+        this.minFallHeight = 3;
+        this.maxFallHeightNoWater = settings.maxFallHeightNoWater.value;
+        this.maxFallHeightBucket = settings.maxFallHeightBucket.value;
+        this.waterWalkSpeed = ActionCosts.WALK_ONE_BLOCK_COST; // what the player's constructor works out with no enchantments
+        this.breakBlockAdditionalCost = settings.blockBreakAdditionalPenalty.value;
+        this.backtrackCostFavoringCoefficient = settings.backtrackCostFavoringCoefficient.value;
+        this.jumpPenalty = settings.jumpPenalty.value;
+        this.walkOnWaterOnePenalty = settings.walkOnWaterOnePenalty.value;
+        this.worldBorder = worldBorder;
+        this.searchCopy = false;
+    }
+
+    /**
+     * A context that only one search uses, so that it can cache the block states it sees while the main thread keeps
+     * using this one. Subclasses change costs in ways that a plain copy wouldn't carry over, so they search as they are,
+     * without the cache.
+     *
+     * @return A copy of this context for one search, or this context if there's no need for one
+     */
+    public CalculationContext forSearch() {
+        if (!settings.pathingBlockCache.value || getClass() != CalculationContext.class) {
+            return this;
+        }
+        return new CalculationContext(this, true, toolSet); // the same one the search would have used without a copy
     }
 
     public final IBaritone getBaritone() {
@@ -164,9 +295,30 @@ public class CalculationContext {
     }
 
     public BlockState get(int x, int y, int z) {
+        SearchBlockCache cache = blockCache;
+        if (cache != null) {
+            return cache.get(x, y, z);
+        }
         return bsi.get0(x, y, z); // laughs maniacally
     }
 
+    /**
+     * Called by the thread about to search with this context, before it looks at any blocks
+     */
+    public void startSearch() {
+        blockCache = searchCopy ? new SearchBlockCache(bsi) : null;
+    }
+
+    /**
+     * Called once the search is over, so that the states it saw don't outlive it
+     */
+    public void endSearch() {
+        if (blockCache != null) {
+            Helper.HELPER.logDebug(blockCache.toString());
+            blockCache = null;
+        }
+    }
+
     public boolean isLoaded(int x, int z) {
         return bsi.isLoaded(x, z);
     }
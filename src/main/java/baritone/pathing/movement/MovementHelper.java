@@ -20,12 +20,14 @@ package baritone.pathing.movement;
 import baritone.Baritone;
 import baritone.api.BaritoneAPI;
 import baritone.api.IBaritone;
+import baritone.api.Settings;
 import baritone.api.pathing.movement.ActionCosts;
 import baritone.api.pathing.movement.MovementStatus;
 import baritone.api.utils.*;
 import baritone.api.utils.Rotation;
 import baritone.api.utils.input.Input;
 import baritone.pathing.movement.MovementState.MovementTarget;
+import baritone.pathing.precompute.PrecomputedData;
 import baritone.pathing.precompute.Ternary;
 import baritone.utils.BlockStateInterface;
 import baritone.utils.ToolSet;
@@ -70,10 +72,8 @@ public interface MovementHelper extends ActionCosts, Helper {
         if (!bsi.worldBorder.canPlaceAt(x, z)) {
             return true;
         }
-        Block b = state.getBlock();
-        return Baritone.settings().blocksToDisallowBreaking.value.contains(b)
-                || b == Blocks.ICE // ice becomes water, and water can mess up the path
-                || b instanceof InfestedBlock // obvious reasons
+        return Baritone.settings().blocksToDisallowBreaking.value.contains(state.getBlock())
+                || (PrecomputedData.features(state) & PrecomputedData.ALWAYS_AVOID_BREAKING) != 0 // ice becomes water, and infested blocks for obvious reasons
                 // call context.get directly with x,y,z. no need to make 5 new BlockPos for no reason
                 || avoidAdjacentBreaking(bsi, x, y + 1, z, true)
                 || avoidAdjacentBreaking(bsi, x + 1, y, z, false)
@@ -87,17 +87,17 @@ public interface MovementHelper extends ActionCosts, Helper {
         // this is only called for north, south, east, west, and up. this is NOT called for down.
         // we assume that it's ALWAYS okay to break the block thats ABOVE liquid
         BlockState state = bsi.get0(x, y, z);
-        Block block = state.getBlock();
+        int features = PrecomputedData.features(state);
         if (!directlyAbove // it is fine to mine a block that has a falling block directly above, this (the cost of breaking the stacked fallings) is included in cost calculations
                 // therefore if directlyAbove is true, we will actually ignore if this is falling
-                && block instanceof FallingBlock // obviously, this check is only valid for falling blocks
+                && (features & PrecomputedData.FALLING) != 0 // obviously, this check is only valid for falling blocks
                 && Baritone.settings().avoidUpdatingFallingBlocks.value // and if the setting is enabled
                 && FallingBlock.isFree(bsi.get0(x, y - 1, z))) { // and if it would fall (i.e. it's unsupported)
             return true; // dont break a block that is adjacent to unsupported gravel because it can cause really weird stuff
         }
         // only pure liquids for now
         // waterlogged blocks can have closed bottom sides and such
-        if (block instanceof LiquidBlock) {
+        if ((features & PrecomputedData.LIQUID_BLOCK) != 0) {
             if (directlyAbove || Baritone.settings().strictLiquidCheck.value) {
                 return true;
             }
@@ -106,9 +106,9 @@ public interface MovementHelper extends ActionCosts, Helper {
                 return true; // source blocks like to flow horizontally
             }
             // everything else will prefer flowing down
-            return !(bsi.get0(x, y - 1, z).getBlock() instanceof LiquidBlock); // assume everything is in a static state
+            return (PrecomputedData.features(bsi.get0(x, y - 1, z)) & PrecomputedData.LIQUID_BLOCK) == 0; // assume everything is in a static state
         }
-        return !state.getFluidState().isEmpty();
+        return (features & PrecomputedData.FLUID) != 0;
     }
 
     static boolean canWalkThrough(IPlayerContext ctx, BetterBlockPos pos) {
@@ -139,6 +139,10 @@ public interface MovementHelper extends ActionCosts, Helper {
     }
 
     static Ternary canWalkThroughBlockState(BlockState state) {
+        return canWalkThroughBlockState(state, Baritone.settings());
+    }
+
+    static Ternary canWalkThroughBlockState(BlockState state, Settings settings) {
         Block block = state.getBlock();
         if (block instanceof AirBlock) {
             return YES;
@@ -152,7 +156,7 @@ public interface MovementHelper extends ActionCosts, Helper {
         if (block == Blocks.POWDER_SNOW) {
             return NO;
         }
-        if (Baritone.settings().blocksToAvoid.value.contains(block)) {
+        if (settings.blocksToAvoid.value.contains(block)) {
             return NO;
         }
         if (block instanceof DoorBlock || block instanceof FenceGateBlock) {
@@ -411,6 +415,10 @@ public interface MovementHelper extends ActionCosts, Helper {
     }
 
     static Ternary canWalkOnBlockState(BlockState state) {
+        return canWalkOnBlockState(state, Baritone.settings());
+    }
+
+    static Ternary canWalkOnBlockState(BlockState state, Settings settings) {
         Block block = state.getBlock();
         if (isBlockNormalCube(state) && block != Blocks.MAGMA_BLOCK && block != Blocks.BUBBLE_COLUMN && block != Blocks.HONEY_BLOCK) {
             return YES;
@@ -418,7 +426,7 @@ public interface MovementHelper extends ActionCosts, Helper {
         if (block instanceof AzaleaBlock) {
             return YES;
         }
-        if (block == Blocks.LADDER || (block == Blocks.VINE && Baritone.settings().allowVines.value)) { // TODO reconsider this
+        if (block == Blocks.LADDER || (block == Blocks.VINE && settings.allowVines.value)) { // TODO reconsider this
             return YES;
         }
         if (block == Blocks.FARMLAND || block == Blocks.DIRT_PATH || block == Blocks.SOUL_SAND) {
@@ -436,11 +444,11 @@ public interface MovementHelper extends ActionCosts, Helper {
         if (isWater(state)) {
             return MAYBE;
         }
-        if (MovementHelper.isLava(state) && Baritone.settings().assumeWalkOnLava.value) {
+        if (MovementHelper.isLava(state) && settings.assumeWalkOnLava.value) {
             return MAYBE;
         }
         if (block instanceof SlabBlock) {
-            if (!Baritone.settings().allowWalkOnBottomSlab.value) {
+            if (!settings.allowWalkOnBottomSlab.value) {
                 if (state.getValue(SlabBlock.TYPE) != SlabType.BOTTOM) {
                     return YES;
                 }
@@ -596,9 +604,8 @@ public interface MovementHelper extends ActionCosts, Helper {
     }
 
     static double getMiningDurationTicks(CalculationContext context, int x, int y, int z, BlockState state, boolean includeFalling) {
-        Block block = state.getBlock();
         if (!canWalkThrough(context, x, y, z, state)) {
-            if (!state.getFluidState().isEmpty()) {
+            if ((PrecomputedData.features(state) & PrecomputedData.FLUID) != 0) {
                 return COST_INF;
             }
             double mult = context.breakCostMultiplierAt(x, y, z, state);
@@ -617,7 +624,7 @@ public interface MovementHelper extends ActionCosts, Helper {
             result *= mult;
             if (includeFalling) {
                 BlockState above = context.get(x, y + 1, z);
-                if (above.getBlock() instanceof FallingBlock) {
+                if ((PrecomputedData.features(above) & PrecomputedData.FALLING) != 0) {
                     result += getMiningDurationTicks(context, x, y + 1, z, above, true);
                 }
             }
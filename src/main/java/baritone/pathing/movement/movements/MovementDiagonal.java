@@ -26,6 +26,7 @@ import baritone.pathing.movement.CalculationContext;
 import baritone.pathing.movement.Movement;
 import baritone.pathing.movement.MovementHelper;
 import baritone.pathing.movement.MovementState;
+import baritone.pathing.precompute.PrecomputedData;
 import baritone.utils.BlockStateInterface;
 import baritone.utils.pathing.MutableMoveResult;
 import com.google.common.collect.ImmutableSet;
@@ -148,24 +149,24 @@ public class MovementDiagonal extends Movement {
             multiplier += context.walkOnWaterOnePenalty * SQRT_2;
         }
         Block fromDownBlock = fromDown.getBlock();
-        if (fromDownBlock == Blocks.LADDER || fromDownBlock == Blocks.VINE) {
+        if ((PrecomputedData.features(fromDown) & PrecomputedData.CLIMBABLE) != 0) {
             return;
         }
         if (fromDownBlock == Blocks.SOUL_SAND) {
             multiplier += (WALK_ONE_OVER_SOUL_SAND_COST - WALK_ONE_BLOCK_COST) / 2;
         }
         BlockState cuttingOver1 = context.get(x, y - 1, destZ);
-        if (cuttingOver1.getBlock() == Blocks.MAGMA_BLOCK || MovementHelper.isLava(cuttingOver1)) {
+        if (cuttingOver1.getBlock() == Blocks.MAGMA_BLOCK || (PrecomputedData.features(cuttingOver1) & PrecomputedData.LAVA) != 0) {
             return;
         }
         BlockState cuttingOver2 = context.get(destX, y - 1, z);
-        if (cuttingOver2.getBlock() == Blocks.MAGMA_BLOCK || MovementHelper.isLava(cuttingOver2)) {
+        if (cuttingOver2.getBlock() == Blocks.MAGMA_BLOCK || (PrecomputedData.features(cuttingOver2) & PrecomputedData.LAVA) != 0) {
             return;
         }
         boolean water = false;
         BlockState startState = context.get(x, y, z);
         Block startIn = startState.getBlock();
-        if (MovementHelper.isWater(startState) || MovementHelper.isWater(destInto)) {
+        if (((PrecomputedData.features(startState) | PrecomputedData.features(destInto)) & PrecomputedData.WATER) != 0) {
             if (ascend) {
                 return;
             }
@@ -177,6 +178,8 @@ public class MovementDiagonal extends Movement {
         }
         BlockState pb0 = context.get(x, y, destZ);
         BlockState pb2 = context.get(destX, y, z);
+        int pb0Features = PrecomputedData.features(pb0);
+        int pb2Features = PrecomputedData.features(pb2);
         if (ascend) {
             boolean ATop = MovementHelper.canWalkThrough(context, x, y + 2, destZ);
             boolean AMid = MovementHelper.canWalkThrough(context, x, y + 1, destZ);
@@ -185,8 +188,7 @@ public class MovementDiagonal extends Movement {
             boolean BMid = MovementHelper.canWalkThrough(context, destX, y + 1, z);
             boolean BLow = MovementHelper.canWalkThrough(context, destX, y, z, pb2);
             if ((!(ATop && AMid && ALow) && !(BTop && BMid && BLow)) // no option
-                    || MovementHelper.avoidWalkingInto(pb0) // bad
-                    || MovementHelper.avoidWalkingInto(pb2) // bad
+                    || ((pb0Features | pb2Features) & PrecomputedData.AVOID_WALKING_INTO) != 0 // bad
                     || (ATop && AMid && MovementHelper.canWalkOn(context, x, y, destZ, pb0)) // we could just ascend
                     || (BTop && BMid && MovementHelper.canWalkOn(context, destX, y, z, pb2)) // we could just ascend
                     || (!ATop && AMid && ALow) // head bonk A
@@ -213,7 +215,7 @@ public class MovementDiagonal extends Movement {
             return;
         }
         BlockState pb3 = context.get(destX, y + 1, z);
-        if (optionA == 0 && ((MovementHelper.avoidWalkingInto(pb2) && pb2.getBlock() != Blocks.WATER) || MovementHelper.avoidWalkingInto(pb3))) {
+        if (optionA == 0 && (((pb2Features & PrecomputedData.AVOID_WALKING_INTO) != 0 && pb2.getBlock() != Blocks.WATER) || (PrecomputedData.features(pb3) & PrecomputedData.AVOID_WALKING_INTO) != 0)) {
             // at this point we're done calculating optionA, so we can check if it's actually possible to edge around in that direction
             return;
         }
@@ -222,7 +224,7 @@ public class MovementDiagonal extends Movement {
             // and finally, if the cost is nonzero for both ways to approach this diagonal, it's not possible
             return;
         }
-        if (optionB == 0 && ((MovementHelper.avoidWalkingInto(pb0) && pb0.getBlock() != Blocks.WATER) || MovementHelper.avoidWalkingInto(pb1))) {
+        if (optionB == 0 && (((pb0Features & PrecomputedData.AVOID_WALKING_INTO) != 0 && pb0.getBlock() != Blocks.WATER) || (PrecomputedData.features(pb1) & PrecomputedData.AVOID_WALKING_INTO) != 0)) {
             // and now that option B is fully calculated, see if we can edge around that way
             return;
         }
@@ -26,14 +26,13 @@ import baritone.pathing.movement.CalculationContext;
 import baritone.pathing.movement.Movement;
 import baritone.pathing.movement.MovementHelper;
 import baritone.pathing.movement.MovementState;
+import baritone.pathing.precompute.PrecomputedData;
 import baritone.utils.BlockStateInterface;
 import baritone.utils.pathing.MutableMoveResult;
 import net.minecraft.core.Direction;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Blocks;
-import net.minecraft.world.level.block.StairBlock;
 import net.minecraft.world.level.block.state.BlockState;
-import net.minecraft.world.level.material.WaterFluid;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -79,7 +78,7 @@ public class MovementParkour extends Movement {
             // second most common case -- we could just traverse not parkour
             return;
         }
-        if (MovementHelper.avoidWalkingInto(adj) && !(adj.getFluidState().getType() instanceof WaterFluid)) { // magma sucks
+        if ((PrecomputedData.features(adj) & (PrecomputedData.AVOID_WALKING_INTO | PrecomputedData.WATER)) == PrecomputedData.AVOID_WALKING_INTO) { // magma sucks
             return;
         }
         if (!MovementHelper.fullyPassable(context, x + xDiff, y + 1, z + zDiff)) {
@@ -92,11 +91,12 @@ public class MovementParkour extends Movement {
             return;
         }
         BlockState standingOn = context.get(x, y - 1, z);
-        if (standingOn.getBlock() == Blocks.VINE || standingOn.getBlock() == Blocks.LADDER || standingOn.getBlock() instanceof StairBlock || MovementHelper.isBottomSlab(standingOn)) {
+        int standingOnFeatures = PrecomputedData.features(standingOn);
+        if ((standingOnFeatures & (PrecomputedData.CLIMBABLE | PrecomputedData.STAIRS | PrecomputedData.BOTTOM_SLAB)) != 0) {
             return;
         }
         // we can't jump from (frozen) water with assumeWalkOnWater because we can't be sure it will be frozen
-        if (context.assumeWalkOnWater && !standingOn.getFluidState().isEmpty()) {
+        if (context.assumeWalkOnWater && (standingOnFeatures & PrecomputedData.FLUID) != 0) {
             return;
         }
         if (!context.get(x, y, z).getFluidState().isEmpty()) {
@@ -128,7 +128,7 @@ public class MovementParkour extends Movement {
             }
 
             // check for ascend landing position
-            BlockState destInto = context.bsi.get0(destX, y, destZ);
+            BlockState destInto = context.get(destX, y, destZ);
             if (!MovementHelper.fullyPassable(context, destX, y, destZ, destInto)) {
                 if (i <= 3 && context.allowParkourAscend && context.canSprint && MovementHelper.canWalkOn(context, destX, y, destZ, destInto) && checkOvershootSafety(context.bsi, destX + xDiff, y + 1, destZ + zDiff)) {
                     res.x = destX;
@@ -141,7 +141,7 @@ public class MovementParkour extends Movement {
             }
 
             // check for flat landing position
-            BlockState landingOn = context.bsi.get0(destX, y - 1, destZ);
+            BlockState landingOn = context.get(destX, y - 1, destZ);
             // farmland needs to be canWalkOn otherwise farm can never work at all, but we want to specifically disallow ending a jump on farmland haha
             // frostwalker works here because we can't jump from possibly unfrozen water
             if ((landingOn.getBlock() != Blocks.FARMLAND && MovementHelper.canWalkOn(context, destX, y - 1, destZ, landingOn))
@@ -203,7 +203,7 @@ public class MovementParkour extends Movement {
 
     private static boolean checkOvershootSafety(BlockStateInterface bsi, int x, int y, int z) {
         // we're going to walk into these two blocks after the landing of the parkour anyway, so make sure they aren't avoidWalkingInto
-        return !MovementHelper.avoidWalkingInto(bsi.get0(x, y, z)) && !MovementHelper.avoidWalkingInto(bsi.get0(x, y + 1, z));
+        return (PrecomputedData.features(bsi.get0(x, y, z)) & PrecomputedData.AVOID_WALKING_INTO) == 0 && (PrecomputedData.features(bsi.get0(x, y + 1, z)) & PrecomputedData.AVOID_WALKING_INTO) == 0;
     }
 
     private static double costFromJumpDistance(int dist) {
@@ -29,12 +29,12 @@ import baritone.pathing.movement.CalculationContext;
 import baritone.pathing.movement.Movement;
 import baritone.pathing.movement.MovementHelper;
 import baritone.pathing.movement.MovementState;
+import baritone.pathing.precompute.PrecomputedData;
 import baritone.utils.BlockStateInterface;
 import com.google.common.collect.ImmutableSet;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.block.*;
 import net.minecraft.world.level.block.state.BlockState;
-import net.minecraft.world.level.block.state.properties.SlabType;
 import net.minecraft.world.phys.Vec3;
 
 import java.util.Set;
@@ -58,13 +58,15 @@ public class MovementPillar extends Movement {
     public static double cost(CalculationContext context, int x, int y, int z) {
         BlockState fromState = context.get(x, y, z);
         Block from = fromState.getBlock();
-        boolean ladder = from == Blocks.LADDER || from == Blocks.VINE;
+        int fromFeatures = PrecomputedData.features(fromState);
+        boolean ladder = (fromFeatures & PrecomputedData.CLIMBABLE) != 0;
         BlockState fromDown = context.get(x, y - 1, z);
+        int fromDownFeatures = PrecomputedData.features(fromDown);
         if (!ladder) {
-            if (fromDown.getBlock() == Blocks.LADDER || fromDown.getBlock() == Blocks.VINE) {
+            if ((fromDownFeatures & PrecomputedData.CLIMBABLE) != 0) {
                 return COST_INF; // can't pillar from a ladder or vine onto something that isn't also climbable
             }
-            if (fromDown.getBlock() instanceof SlabBlock && fromDown.getValue(SlabBlock.TYPE) == SlabType.BOTTOM) {
+            if ((fromDownFeatures & PrecomputedData.BOTTOM_SLAB) != 0) {
                 return COST_INF; // can't pillar up from a bottom slab onto a non ladder
             }
         }
@@ -73,13 +75,14 @@ public class MovementPillar extends Movement {
         }
         BlockState toBreak = context.get(x, y + 2, z);
         Block toBreakBlock = toBreak.getBlock();
+        int toBreakFeatures = PrecomputedData.features(toBreak);
         if (toBreakBlock instanceof FenceGateBlock) { // see issue #172
             return COST_INF;
         }
         BlockState srcUp = null;
-        if (MovementHelper.isWater(toBreak) && MovementHelper.isWater(fromState)) { // TODO should this also be allowed if toBreakBlock is air?
+        if ((toBreakFeatures & fromFeatures & PrecomputedData.WATER) != 0) { // TODO should this also be allowed if toBreakBlock is air?
             srcUp = context.get(x, y + 1, z);
-            if (MovementHelper.isWater(srcUp)) {
+            if ((PrecomputedData.features(srcUp) & PrecomputedData.WATER) != 0) {
                 return LADDER_UP_ONE_COST; // allow ascending pillars of water, but only if we're already in one
             }
         }
@@ -90,17 +93,17 @@ public class MovementPillar extends Movement {
             if (placeCost >= COST_INF) {
                 return COST_INF;
             }
-            if (fromDown.getBlock() instanceof AirBlock) {
+            if ((fromDownFeatures & PrecomputedData.AIR) != 0) {
                 placeCost += 0.1; // slightly (1/200th of a second) penalize pillaring on what's currently air
             }
         }
-        if ((MovementHelper.isLiquid(fromState) && !MovementHelper.canPlaceAgainst(context.bsi, x, y - 1, z, fromDown)) || (MovementHelper.isLiquid(fromDown) && context.assumeWalkOnWater)) {
+        if (((fromFeatures & PrecomputedData.FLUID) != 0 && !MovementHelper.canPlaceAgainst(context.bsi, x, y - 1, z, fromDown)) || ((fromDownFeatures & PrecomputedData.FLUID) != 0 && context.assumeWalkOnWater)) {
             // otherwise, if we're standing in water, we cannot pillar
             // if we're standing on water and assumeWalkOnWater is true, we cannot pillar
             // if we're standing on water and assumeWalkOnWater is false, we must have ascended to here, or sneak backplaced, so it is possible to pillar again
             return COST_INF;
         }
-        if ((from == Blocks.LILY_PAD || from instanceof CarpetBlock) && !fromDown.getFluidState().isEmpty()) {
+        if ((from == Blocks.LILY_PAD || from instanceof CarpetBlock) && (fromDownFeatures & PrecomputedData.FLUID) != 0) {
             // to ascend here we'd have to break the block we are standing on
             return COST_INF;
         }
@@ -109,16 +112,16 @@ public class MovementPillar extends Movement {
             return COST_INF;
         }
         if (hardness != 0) {
-            if (toBreakBlock == Blocks.LADDER || toBreakBlock == Blocks.VINE) {
+            if ((toBreakFeatures & PrecomputedData.CLIMBABLE) != 0) {
                 hardness = 0; // we won't actually need to break the ladder / vine because we're going to use it
             } else {
                 BlockState check = context.get(x, y + 3, z); // the block on top of the one we're going to break, could it fall on us?
-                if (check.getBlock() instanceof FallingBlock) {
+                if ((PrecomputedData.features(check) & PrecomputedData.FALLING) != 0) {
                     // see MovementAscend's identical check for breaking a falling block above our head
                     if (srcUp == null) {
                         srcUp = context.get(x, y + 1, z);
                     }
-                    if (!(toBreakBlock instanceof FallingBlock) || !(srcUp.getBlock() instanceof FallingBlock)) {
+                    if ((toBreakFeatures & PrecomputedData.FALLING) == 0 || (PrecomputedData.features(srcUp) & PrecomputedData.FALLING) == 0) {
                         return COST_INF;
                     }
                 }
@@ -605,15 +605,46 @@ public class PathExecutor implements IPathExecutor, Helper {
             if (!path.getDest().equals(next.getPath().getDest())) {
                 throw new IllegalStateException();
             }
-            PathExecutor ret = new PathExecutor(behavior, path);
-            ret.pathPosition = pathPosition;
-            ret.currentMovementOriginalCostEstimate = currentMovementOriginalCostEstimate;
-            ret.costEstimateIndex = costEstimateIndex;
-            ret.ticksOnCurrent = ticksOnCurrent;
-            return ret;
+            return continueOn(path);
         }).orElseGet(this::cutIfTooLong); // dont actually call cutIfTooLong every tick if we won't actually use it, use a method reference
     }
 
+    /**
+     * Switches over to a path from the same start that the search came up with later, keeping the progress made so far.
+     * Only possible if the two go the same way until at least the end of the current movement.
+     *
+     * @param refined The full path, starting where this one does
+     * @return The executor for this path up to where they split up followed by the rest of the refined one, or null
+     */
+    public PathExecutor tryRefine(IPath refined) {
+        List<BetterBlockPos> ours = path.positions();
+        List<BetterBlockPos> theirs = refined.positions();
+        if (!ours.get(0).equals(theirs.get(0))) {
+            return null;
+        }
+        int shared = 0;
+        while (shared + 1 < ours.size() && shared + 1 < theirs.size() && ours.get(shared + 1).equals(theirs.get(shared + 1))) {
+            shared++;
+        }
+        if (shared <= pathPosition || shared == theirs.size() - 1) {
+            // either they split up behind us, or the refined path doesn't go any further
+            return null;
+        }
+        // the movements we have up to there are kept, since the current one might be halfway done
+        return SplicedPath.trySplice(new CutoffPath(path, 0, shared), new CutoffPath(refined, shared, theirs.size() - 1), false)
+                .map(this::continueOn)
+                .orElse(null);
+    }
+
+    private PathExecutor continueOn(IPath path) {
+        PathExecutor ret = new PathExecutor(behavior, path);
+        ret.pathPosition = pathPosition;
+        ret.currentMovementOriginalCostEstimate = currentMovementOriginalCostEstimate;
+        ret.costEstimateIndex = costEstimateIndex;
+        ret.ticksOnCurrent = ticksOnCurrent;
+        return ret;
+    }
+
     private PathExecutor cutIfTooLong() {
         if (pathPosition > Baritone.settings().maxPathHistoryLength.value) {
             int cutoffAmt = Baritone.settings().pathHistoryCutoffAmount.value;
@@ -17,10 +17,13 @@
 
 package baritone.pathing.precompute;
 
+import baritone.api.Settings;
+import baritone.api.utils.Helper;
 import baritone.pathing.movement.MovementHelper;
 import baritone.utils.BlockStateInterface;
-import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.*;
 import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.state.properties.SlabType;
 
 import static baritone.pathing.precompute.Ternary.MAYBE;
 import static baritone.pathing.precompute.Ternary.YES;
@@ -29,6 +32,8 @@ public class PrecomputedData {
 
     private final int[] data = new int[Block.BLOCK_STATE_REGISTRY.size()];
 
+    private final Settings settings;
+
     private static final int COMPLETED_MASK = 1 << 0;
     private static final int CAN_WALK_ON_MASK = 1 << 1;
     private static final int CAN_WALK_ON_SPECIAL_MASK = 1 << 2;
@@ -37,10 +42,110 @@ public class PrecomputedData {
     private static final int FULLY_PASSABLE_MASK = 1 << 5;
     private static final int FULLY_PASSABLE_SPECIAL_MASK = 1 << 6;
 
+    /**
+     * Properties of each block state that don't depend on settings or position, shared by every context
+     */
+    private static final int[] FEATURES = new int[Block.BLOCK_STATE_REGISTRY.size()];
+
+    private static final int FEATURES_COMPLETED = 1 << 0;
+    public static final int AIR = 1 << 1;
+    public static final int WATER = 1 << 2;
+    public static final int LAVA = 1 << 3;
+    public static final int FLUID = 1 << 4;
+    public static final int POSSIBLY_FLOWING = 1 << 5;
+    public static final int LIQUID_BLOCK = 1 << 6;
+    public static final int AVOID_WALKING_INTO = 1 << 7;
+    public static final int BOTTOM_SLAB = 1 << 8;
+    public static final int HALF_SLAB = 1 << 9;
+    public static final int STAIRS = 1 << 10;
+    public static final int CLIMBABLE = 1 << 11;
+    public static final int FALLING = 1 << 12;
+    public static final int ALWAYS_AVOID_BREAKING = 1 << 13;
+
+    private static int fillFeatures(int id, BlockState state) {
+        Block block = state.getBlock();
+        int features = FEATURES_COMPLETED;
+        if (block instanceof AirBlock) {
+            features |= AIR;
+        }
+        if (MovementHelper.isWater(state)) {
+            features |= WATER;
+        }
+        if (MovementHelper.isLava(state)) {
+            features |= LAVA;
+        }
+        if (MovementHelper.isLiquid(state)) {
+            features |= FLUID;
+        }
+        if (MovementHelper.possiblyFlowing(state)) {
+            features |= POSSIBLY_FLOWING;
+        }
+        if (block instanceof LiquidBlock) {
+            features |= LIQUID_BLOCK;
+        }
+        if (MovementHelper.avoidWalkingInto(state)) {
+            features |= AVOID_WALKING_INTO;
+        }
+        if (MovementHelper.isBottomSlab(state)) {
+            features |= BOTTOM_SLAB;
+        }
+        if (block instanceof SlabBlock && state.getValue(SlabBlock.TYPE) != SlabType.DOUBLE) {
+            features |= HALF_SLAB;
+        }
+        if (block instanceof StairBlock) {
+            features |= STAIRS;
+        }
+        if (block == Blocks.LADDER || block == Blocks.VINE) {
+            features |= CLIMBABLE;
+        }
+        if (block instanceof FallingBlock) {
+            features |= FALLING;
+        }
+        if (block == Blocks.ICE // ice becomes water, and water can mess up the path
+                || block instanceof InfestedBlock) {
+            features |= ALWAYS_AVOID_BREAKING;
+        }
+        FEATURES[id] = features; // same reasoning as fillData, every thread computes the same int
+        return features;
+    }
+
+    /**
+     * @return The feature bits of this state, see the public constants of this class
+     */
+    public static int features(BlockState state) {
+        int id = Block.BLOCK_STATE_REGISTRY.getId(state);
+        int features = FEATURES[id];
+        if ((features & FEATURES_COMPLETED) == 0) {
+            features = fillFeatures(id, state);
+        }
+        return features;
+    }
+
+    /**
+     * Fills in the features of every block state ahead of time, so that the first searches don't have to. Meant to be
+     * run off thread when joining a world.
+     */
+    public static void precomputeFeatures() {
+        long start = System.nanoTime();
+        int count = 0;
+        for (BlockState state : Block.BLOCK_STATE_REGISTRY) {
+            int id = Block.BLOCK_STATE_REGISTRY.getId(state);
+            if ((FEATURES[id] & FEATURES_COMPLETED) == 0) {
+                fillFeatures(id, state);
+                count++;
+            }
+        }
+        Helper.HELPER.logDebug("Precomputed features of " + count + " block states in " + (System.nanoTime() - start) / 1000000 + "ms");
+    }
+
+    public PrecomputedData(Settings settings) {
+        this.settings = settings;
+    }
+
     private int fillData(int id, BlockState state) {
         int blockData = 0;
 
-        Ternary canWalkOnState = MovementHelper.canWalkOnBlockState(state);
+        Ternary canWalkOnState = MovementHelper.canWalkOnBlockState(state, settings);
         if (canWalkOnState == YES) {
             blockData |= CAN_WALK_ON_MASK;
         }
@@ -48,7 +153,7 @@ public class PrecomputedData {
             blockData |= CAN_WALK_ON_SPECIAL_MASK;
         }
 
-        Ternary canWalkThroughState = MovementHelper.canWalkThroughBlockState(state);
+        Ternary canWalkThroughState = MovementHelper.canWalkThroughBlockState(state, settings);
         if (canWalkThroughState == YES) {
             blockData |= CAN_WALK_THROUGH_MASK;
         }
@@ -76,6 +76,23 @@ public class BlockStateInterface {
         this.access = new BlockStateInterfaceAccessWrapper(this);
     }
 
+    /**
+     * Creates an interface reading from the same chunk provider and cache as {@code other}, but with its own
+     * lookup caches, so that the two can be used from different threads at the same time. This is only safe if
+     * {@code other} was created with {@code copyLoadedChunks} set.
+     *
+     * @param other The interface to share the underlying world with
+     */
+    public BlockStateInterface(BlockStateInterface other) {
+        this.world = other.world;
+        this.worldBorder = other.worldBorder;
+        this.worldData = other.worldData;
+        this.provider = other.provider;
+        this.useTheRealWorld = other.useTheRealWorld;
+        this.isPassableBlockPos = new BlockPos.MutableBlockPos();
+        this.access = new BlockStateInterfaceAccessWrapper(this);
+    }
+
     public boolean worldContainsLoadedChunk(int blockX, int blockZ) {
         return provider.hasChunk(blockX >> 4, blockZ >> 4);
     }
@@ -0,0 +1,98 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.utils;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.world.level.block.state.BlockState;
+
+/**
+ * Remembers every block state read through it for the length of one search, so that the same few blocks around each
+ * node, which neighboring movements read over and over, only go through {@link BlockStateInterface#get0} once.
+ * <p>
+ * States are kept in one flat array per 16x16x16 section, filled in as they're touched. Must be thrown away once the
+ * search is over, so that changes to the world show up in the next one.
+ */
+public final class SearchBlockCache {
+
+    /**
+     * How many sections to keep before starting over, each one is 4096 references
+     */
+    private static final int MAX_SECTIONS = 1024;
+
+    private final BlockStateInterface bsi;
+
+    private final Long2ObjectOpenHashMap<BlockState[]> sections = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * The section of the last lookup, since consecutive lookups are usually in the same one
+     */
+    private BlockState[] lastSection;
+    private long lastKey;
+
+    private long hits;
+    private long misses;
+
+    public SearchBlockCache(BlockStateInterface bsi) {
+        this.bsi = bsi;
+    }
+
+    public BlockState get(int x, int y, int z) {
+        long key = sectionKey(x >> 4, y >> 4, z >> 4);
+        BlockState[] section = lastSection;
+        if (section == null || key != lastKey) {
+            section = sections.get(key);
+            if (section == null) {
+                if (sections.size() >= MAX_SECTIONS) {
+                    sections.clear();
+                }
+                section = new BlockState[4096];
+                sections.put(key, section);
+            }
+            lastSection = section;
+            lastKey = key;
+        }
+        int index = (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+        BlockState state = section[index];
+        if (state == null) {
+            misses++;
+            state = bsi.get0(x, y, z);
+            section[index] = state;
+        } else {
+            hits++;
+        }
+        return state;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public String toString() {
+        long total = hits + misses;
+        return "Block cache: " + hits + " hits, " + misses + " misses (" + (total == 0 ? 0 : hits * 100 / total) + "% hit rate), " + sections.size() + " sections";
+    }
+
+    private static long sectionKey(int sectionX, int sectionY, int sectionZ) {
+        return ((long) sectionX & 0x3FFFFF) << 42 | ((long) sectionZ & 0x3FFFFF) << 20 | (sectionY & 0xFFFFF);
+    }
+}
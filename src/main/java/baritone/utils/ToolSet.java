@@ -30,10 +30,9 @@ import net.minecraft.world.item.enchantment.effects.EnchantmentAttributeEffect;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.state.BlockState;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.function.Function;
 
 /**
  * A cached list of the best tools on the hotbar for any block
@@ -43,29 +42,31 @@ import java.util.function.Function;
 public class ToolSet {
 
     /**
-     * A cache mapping a {@link Block} to how long it will take to break
-     * with this toolset, given the optimum tool is used.
+     * A cache indexed by block state id of how long it will take to break
+     * with this toolset, given the optimum tool is used. NaN until calculated.
+     * Only allocated once it's first needed, since most toolsets are only used to pick a slot.
      */
-    private final Map<Block, Double> breakStrengthCache;
+    private double[] breakStrengthCache;
+
+    private final LocalPlayer player;
 
     /**
-     * My buddy leijurv owned me so we have this to not create a new lambda instance.
+     * What the cached values were calculated with, see {@link #isCurrent}
      */
-    private final Function<Block, Double> backendCalculation;
-
-    private final LocalPlayer player;
+    private final double amplifier;
+    private final List<ItemStack> hotbar;
+    private final int selected;
+    private final List<Object> settings;
 
     public ToolSet(LocalPlayer player) {
-        breakStrengthCache = new HashMap<>();
         this.player = player;
-
-        if (Baritone.settings().considerPotionEffects.value) {
-            double amplifier = potionAmplifier();
-            Function<Double, Double> amplify = x -> amplifier * x;
-            backendCalculation = amplify.compose(this::getBestDestructionTime);
-        } else {
-            backendCalculation = this::getBestDestructionTime;
+        this.amplifier = Baritone.settings().considerPotionEffects.value ? potionAmplifier() : 1;
+        this.hotbar = new ArrayList<>(9);
+        for (int i = 0; i < 9; i++) {
+            hotbar.add(player.getInventory().getItem(i).copy());
         }
+        this.selected = player.getInventory().selected;
+        this.settings = currentSettings();
     }
 
     /**
@@ -75,7 +76,60 @@ public class ToolSet {
      * @return the speed of how fast we'll mine it. 1/(time in ticks)
      */
     public double getStrVsBlock(BlockState state) {
-        return breakStrengthCache.computeIfAbsent(state.getBlock(), backendCalculation);
+        double[] cache = breakStrengthCache;
+        if (cache == null) {
+            cache = new double[Block.BLOCK_STATE_REGISTRY.size()];
+            Arrays.fill(cache, Double.NaN);
+            breakStrengthCache = cache;
+        }
+        int id = Block.BLOCK_STATE_REGISTRY.getId(state);
+        double strength = cache[id];
+        if (Double.isNaN(strength)) {
+            // the time only depends on the block, so every state shares the value of the default one
+            Block block = state.getBlock();
+            int defaultId = Block.BLOCK_STATE_REGISTRY.getId(block.defaultBlockState());
+            strength = cache[defaultId];
+            if (Double.isNaN(strength)) {
+                strength = amplifier * getBestDestructionTime(block);
+                cache[defaultId] = strength;
+            }
+            cache[id] = strength; // every thread would calculate the same value, so a race here is harmless
+        }
+        return strength;
+    }
+
+    /**
+     * Whether this toolset would still calculate the same values for this player, which is the case until the hotbar,
+     * the selected slot, the mining effects or one of the settings involved change.
+     *
+     * @param player the player to check
+     * @return true if this toolset can keep being used for the player
+     */
+    public boolean isCurrent(LocalPlayer player) {
+        if (player != this.player || player.getInventory().selected != selected) {
+            return false;
+        }
+        if ((Baritone.settings().considerPotionEffects.value ? potionAmplifier() : 1) != amplifier) {
+            return false;
+        }
+        for (int i = 0; i < 9; i++) {
+            if (!ItemStack.matches(player.getInventory().getItem(i), hotbar.get(i))) {
+                return false;
+            }
+        }
+        return settings.equals(currentSettings());
+    }
+
+    private static List<Object> currentSettings() {
+        return Arrays.asList(
+                Baritone.settings().considerPotionEffects.value,
+                Baritone.settings().autoTool.value,
+                Baritone.settings().useSwordToMine.value,
+                Baritone.settings().itemSaver.value,
+                Baritone.settings().itemSaverThreshold.value,
+                Baritone.settings().avoidBreakingMultiplier.value,
+                new ArrayList<>(Baritone.settings().blocksToAvoidBreaking.value)
+        );
     }
 
     /**
@@ -17,12 +17,44 @@
 
 package baritone.cache;
 
+import baritone.api.utils.BlockUtils;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.tags.BlockTags;
+import net.minecraft.util.valueproviders.ConstantInt;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.dimension.BuiltinDimensionTypes;
+import net.minecraft.world.level.dimension.DimensionType;
+import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
 
 import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.*;
 
 public class CachedRegionTest {
 
+    private static DimensionType dimension;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void bootstrap() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        dimension = new DimensionType(OptionalLong.empty(), true, false, false, true, 1, true, false, -64, 384, 384, BlockTags.INFINIBURN_OVERWORLD, BuiltinDimensionTypes.OVERWORLD_EFFECTS, 0, new DimensionType.MonsterSettings(false, true, ConstantInt.of(0), 0));
+    }
+
     @Test
     public void blockPosSaving() {
         for (int x = 0; x < 16; x++) {
@@ -44,4 +76,182 @@ public class CachedRegionTest {
             }
         }
     }
+
+    @Test
+    public void varIntSaving() throws IOException {
+        int[] values = {0, 1, 127, 128, 255, 16383, 16384, 1 << 21, Integer.MAX_VALUE, -1};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int value : values) {
+            CachedRegion.writeVarInt(out, value);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (int value : values) {
+            assertEquals(value, CachedRegion.readVarInt(in));
+        }
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void specialPositionSaving() throws IOException {
+        int[] positions = {383 << 8 | 15 << 4 | 15, 0, 64 << 8 | 3 << 4 | 7, 64 << 8 | 3 << 4 | 8, 1};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CachedRegion.writePositions(new DataOutputStream(bytes), positions);
+        int[] sorted = positions.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, CachedRegion.readPositions(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+    }
+
+    @Test
+    public void regionSaving() throws IOException {
+        String directory = folder.getRoot().toString();
+        CachedChunk chunk = testChunk(1, -2);
+        CachedRegion region = new CachedRegion(1, -2, dimension);
+        region.updateCachedChunk(3, 5, chunk);
+        region.save(directory, -1);
+
+        CachedRegion loaded = new CachedRegion(1, -2, dimension);
+        loaded.load(directory, -1);
+        assertFalse(CachedRegion.isLegacy(folder.getRoot().toPath().resolve("r.1.-2.bcr")));
+        // chunks that haven't been read yet are copied over to the new file as they are
+        CachedChunk other = testChunk(1, -2, 0, 0);
+        loaded.updateCachedChunk(0, 0, other);
+        loaded.save(directory, -1);
+        assertSameChunk(chunk, loaded.getChunk(3, 5));
+        assertNull(loaded.getChunk(5, 3));
+
+        CachedRegion reloaded = new CachedRegion(1, -2, dimension);
+        reloaded.load(directory, -1);
+        assertSameChunk(chunk, reloaded.getChunk(3, 5));
+        assertSameChunk(other, reloaded.getChunk(0, 0));
+        loaded.close();
+        reloaded.close();
+    }
+
+    @Test
+    public void specialIndexSaving() throws IOException {
+        String directory = folder.getRoot().toString();
+        CachedChunk chunk = testChunk(1, -2);
+        CachedRegion region = new CachedRegion(1, -2, dimension);
+        region.updateCachedChunk(3, 5, chunk);
+        assertFalse(region.hasSpecialIndex());
+        region.buildSpecialIndex();
+        long[] chests = {
+                BlockPos.asLong(chunk.x * 16 + 1, 12, chunk.z * 16 + 2),
+                BlockPos.asLong(chunk.x * 16 + 15, -64, chunk.z * 16 + 15)
+        };
+        Arrays.sort(chests);
+        assertArrayEquals(chests, region.getLocationsOf(BlockUtils.blockToString(Blocks.CHEST)));
+        region.save(directory, -1);
+
+        CachedRegion loaded = new CachedRegion(1, -2, dimension);
+        loaded.load(directory, -1);
+        // straight from the file, without reading the chunk
+        assertTrue(loaded.hasSpecialIndex());
+        assertNull(loaded.getChunkInMemory(3, 5));
+        assertArrayEquals(chests, loaded.getLocationsOf(BlockUtils.blockToString(Blocks.CHEST)));
+        assertArrayEquals(new long[]{BlockPos.asLong(chunk.x * 16, 319, chunk.z * 16)}, loaded.getLocationsOf(BlockUtils.blockToString(Blocks.FURNACE)));
+
+        // caching the chunk again replaces its entries
+        loaded.updateCachedChunk(3, 5, testChunk(1, -2, 3, 5, false));
+        assertNull(loaded.getLocationsOf(BlockUtils.blockToString(Blocks.CHEST)));
+        region.close();
+        loaded.close();
+    }
+
+    @Test
+    public void legacyRegionConversion() throws IOException {
+        String directory = folder.getRoot().toString();
+        Path file = folder.getRoot().toPath().resolve("r.1.-2.bcr");
+        CachedChunk chunk = testChunk(1, -2);
+        writeLegacy(file, chunk, 3, 5);
+        assertTrue(CachedRegion.isLegacy(file));
+
+        CachedRegion region = new CachedRegion(1, -2, dimension);
+        region.load(directory, -1);
+        assertSameChunk(chunk, region.getChunk(3, 5));
+        region.save(directory, -1); // a legacy region always has changes to save, since it's in the old format
+        assertFalse(CachedRegion.isLegacy(file));
+
+        CachedRegion converted = new CachedRegion(1, -2, dimension);
+        converted.load(directory, -1);
+        assertSameChunk(chunk, converted.getChunk(3, 5));
+        region.close();
+        converted.close();
+    }
+
+    private static CachedChunk testChunk(int regionX, int regionZ) {
+        return testChunk(regionX, regionZ, 3, 5);
+    }
+
+    private static CachedChunk testChunk(int regionX, int regionZ, int chunkX, int chunkZ) {
+        return testChunk(regionX, regionZ, chunkX, chunkZ, true);
+    }
+
+    private static CachedChunk testChunk(int regionX, int regionZ, int chunkX, int chunkZ, boolean chests) {
+        long[][] data = new long[dimension.height() >> 4][CachedChunk.SECTION_WORDS];
+        for (int i = 0; i < CachedChunk.SECTION_WORDS; i++) {
+            data[4][i] = 0x5555555555555555L; // one whole section of solid blocks
+        }
+        data[5][7] = 0xA5L;
+        BlockState[] overview = new BlockState[256];
+        Arrays.fill(overview, Blocks.STONE.defaultBlockState());
+        overview[17] = Blocks.GRASS_BLOCK.defaultBlockState();
+        Map<String, List<BlockPos>> special = new HashMap<>();
+        if (chests) {
+            special.put(BlockUtils.blockToString(Blocks.CHEST), new ArrayList<>(Arrays.asList(new BlockPos(1, 12, 2), new BlockPos(15, -64, 15))));
+        }
+        special.put(BlockUtils.blockToString(Blocks.FURNACE), new ArrayList<>(Collections.singletonList(new BlockPos(0, 319, 0))));
+        return new CachedChunk(chunkX + 32 * regionX, chunkZ + 32 * regionZ, dimension.height(), data, overview, special, 1234567890L);
+    }
+
+    private static void assertSameChunk(CachedChunk expected, CachedChunk actual) {
+        assertNotNull(actual);
+        assertEquals(expected.x, actual.x);
+        assertEquals(expected.z, actual.z);
+        assertEquals(expected.cacheTimestamp, actual.cacheTimestamp);
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+        assertArrayEquals(expected.getOverview(), actual.getOverview());
+        assertEquals(positionSets(expected), positionSets(actual));
+    }
+
+    private static Map<String, Set<BlockPos>> positionSets(CachedChunk chunk) {
+        Map<String, Set<BlockPos>> positions = new HashMap<>();
+        chunk.getRelativeBlocks().forEach((name, list) -> positions.put(name, new HashSet<>(list)));
+        return positions;
+    }
+
+    /**
+     * Writes a region with one chunk in it in the old gzipped format, the way it used to be saved
+     */
+    private static void writeLegacy(Path file, CachedChunk chunk, int chunkX, int chunkZ) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(456022911);
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    if (x == chunkX && z == chunkZ) {
+                        out.write(1);
+                        byte[] bytes = chunk.toByteArray();
+                        out.write(bytes);
+                        out.write(new byte[chunk.sizeInBytes - bytes.length]);
+                    } else {
+                        out.write(0);
+                    }
+                }
+            }
+            for (BlockState state : chunk.getOverview()) {
+                out.writeUTF(BlockUtils.blockToString(state.getBlock()));
+            }
+            out.writeShort(chunk.getRelativeBlocks().size());
+            for (Map.Entry<String, List<BlockPos>> entry : chunk.getRelativeBlocks().entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeShort(entry.getValue().size());
+                for (BlockPos pos : entry.getValue()) {
+                    out.writeByte(pos.getZ() << 4 | pos.getX());
+                    out.writeInt(pos.getY() - dimension.minY());
+                }
+            }
+            out.writeLong(chunk.cacheTimestamp);
+        }
+    }
 }
@@ -0,0 +1,173 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Times region lookups while one thread loads and prunes regions and the rest read, like the loader and the pathing
+ * threads, against the synchronized {@link Long2ObjectMap} that {@link CachedWorld} used before. Not a unit test, run
+ * it with {@code ./gradlew regionMapBenchmark}.
+ */
+public final class RegionMapBenchmark {
+
+    private static final int[] READERS = {1, 2, 4, 8};
+
+    private static final long WARMUP_MS = 500;
+    private static final long RUN_MS = 2000;
+
+    /**
+     * How long the writer waits between loading or pruning regions, far more often than a real world does
+     */
+    private static final long WRITE_INTERVAL_NS = 100_000;
+
+    private RegionMapBenchmark() {}
+
+    public static void main(String[] args) throws InterruptedException {
+        long[] keys = new long[17 * 17];
+        int k = 0;
+        for (int x = -8; x <= 8; x++) {
+            for (int z = -8; z <= 8; z++) {
+                keys[k++] = (long) x & 0xFFFFFFFFL | ((long) z & 0xFFFFFFFFL) << 32;
+            }
+        }
+        System.out.println(keys.length + " regions, one writer, " + Runtime.getRuntime().availableProcessors() + " processors");
+        for (int readers : READERS) {
+            System.out.println(readers + " readers:");
+            run("RegionMap", new Lockless(), keys, readers);
+            run("synchronized Long2ObjectMap", new Locked(), keys, readers);
+        }
+    }
+
+    private static void run(String name, Regions regions, long[] keys, int readers) throws InterruptedException {
+        for (int i = 0; i < keys.length; i += 2) {
+            regions.put(keys[i], new Object());
+        }
+        time(regions, keys, readers, WARMUP_MS);
+        long reads = time(regions, keys, readers, RUN_MS);
+        System.out.println("  " + name + ": " + reads * 1000 / RUN_MS / 1000000 + "M reads per second");
+    }
+
+    /**
+     * @return How many reads the readers got through in that time, all together
+     */
+    private static long time(Regions regions, long[] keys, int readers, long millis) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        AtomicLong found = new AtomicLong(); // so that the reads can't be optimized away
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread(() -> {
+            Random random = new Random(4242);
+            while (running.get()) {
+                long key = keys[random.nextInt(keys.length)];
+                if (random.nextBoolean()) {
+                    regions.put(key, new Object());
+                } else {
+                    regions.remove(key);
+                }
+                LockSupport.parkNanos(WRITE_INTERVAL_NS);
+            }
+        }));
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> {
+                long count = 0;
+                long hits = 0;
+                while (running.get()) {
+                    for (long key : keys) {
+                        if (regions.get(key) != null) {
+                            hits++;
+                        }
+                    }
+                    count += keys.length;
+                }
+                reads.addAndGet(count);
+                found.addAndGet(hits);
+            }));
+        }
+        threads.forEach(Thread::start);
+        Thread.sleep(millis);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (found.get() < 0) {
+            throw new IllegalStateException();
+        }
+        return reads.get();
+    }
+
+    private interface Regions {
+
+        Object get(long key);
+
+        void put(long key, Object region);
+
+        void remove(long key);
+    }
+
+    private static final class Lockless implements Regions {
+
+        private final RegionMap<Object> map = new RegionMap<>();
+
+        @Override
+        public Object get(long key) {
+            return map.get(key);
+        }
+
+        @Override
+        public void put(long key, Object region) {
+            map.put(key, region);
+        }
+
+        @Override
+        public void remove(long key) {
+            map.remove(key);
+        }
+    }
+
+    /**
+     * The way {@link CachedWorld} kept its regions before, every access holding the world's lock
+     */
+    private static final class Locked implements Regions {
+
+        private final Long2ObjectMap<Object> map = new Long2ObjectOpenHashMap<>();
+
+        @Override
+        public synchronized Object get(long key) {
+            return map.get(key);
+        }
+
+        @Override
+        public synchronized void put(long key, Object region) {
+            map.put(key, region);
+        }
+
+        @Override
+        public synchronized void remove(long key) {
+            map.remove(key);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package baritone.cache;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class RegionMapTest {
+
+    @Test
+    public void matchesHashMap() {
+        Random random = new Random(4242);
+        RegionMap<Long> map = new RegionMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(200) - 100; // small range, so there are plenty of collisions and removals
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                long value = random.nextLong();
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+            long probe = random.nextInt(200) - 100;
+            assertEquals(expected.get(probe), map.get(probe));
+        }
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+    }
+
+    @Test
+    public void regionIdKeys() {
+        RegionMap<String> map = new RegionMap<>();
+        for (int x = -40; x < 40; x++) {
+            for (int z = -40; z < 40; z++) {
+                map.put(id(x, z), x + "," + z);
+            }
+        }
+        for (int x = -40; x < 40; x++) {
+            for (int z = -40; z < 40; z++) {
+                assertEquals(x + "," + z, map.get(id(x, z)));
+            }
+        }
+        assertNull(map.get(id(40, 40)));
+    }
+
+    /**
+     * One thread loading and pruning regions while the rest read, like the loader and the pathing threads. A read has
+     * to find either nothing or the region that was put under that key, and regions that are never pruned always have
+     * to be found.
+     */
+    @Test
+    public void readsWithOneWriter() throws Throwable {
+        RegionMap<Object> map = new RegionMap<>();
+        Long2ObjectMap<Object> regions = new Long2ObjectOpenHashMap<>();
+        long[] keys = new long[17 * 17];
+        int k = 0;
+        for (int x = -8; x <= 8; x++) {
+            for (int z = -8; z <= 8; z++) {
+                keys[k++] = id(x, z);
+                regions.put(id(x, z), new Object());
+                if (z == 0) {
+                    map.put(id(x, z), regions.get(id(x, z))); // never removed
+                }
+            }
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Set<Long> present = new HashSet<>();
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread(() -> {
+            try {
+                Random random = new Random(4242);
+                for (int i = 0; i < 20000; i++) {
+                    long key = keys[random.nextInt(keys.length)];
+                    if ((int) (key >>> 32) == 0) {
+                        continue;
+                    }
+                    if (random.nextBoolean()) {
+                        map.put(key, regions.get(key));
+                        present.add(key);
+                    } else {
+                        map.remove(key);
+                        present.remove(key);
+                    }
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            } finally {
+                running.set(false);
+            }
+        }));
+        for (int r = 0; r < 4; r++) {
+            threads.add(new Thread(() -> {
+                try {
+                    while (running.get()) {
+                        for (long key : keys) {
+                            Object region = map.get(key);
+                            if (region == null ? (int) (key >>> 32) == 0 : region != regions.get(key)) {
+                                throw new AssertionError("Read " + region + " for " + key);
+                            }
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        assertEquals(17 + present.size(), map.size());
+    }
+
+    private static long id(int regionX, int regionZ) {
+        return (long) regionX & 0xFFFFFFFFL | ((long) regionZ & 0xFFFFFFFFL) << 32;
+    }
+}
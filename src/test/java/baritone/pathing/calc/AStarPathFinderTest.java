@@ -0,0 +1,180 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc;
+
+import baritone.api.Settings;
+import baritone.api.pathing.goals.Goal;
+import baritone.api.utils.BetterBlockPos;
+import baritone.pathing.movement.CalculationContext;
+import baritone.utils.pathing.BetterWorldBorder;
+import baritone.utils.pathing.Favoring;
+import net.minecraft.SharedConstants;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.tags.BlockTags;
+import net.minecraft.util.valueproviders.ConstantInt;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.border.WorldBorder;
+import net.minecraft.world.level.dimension.BuiltinDimensionTypes;
+import net.minecraft.world.level.dimension.DimensionType;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.OptionalLong;
+import java.util.Random;
+
+import static baritone.api.pathing.movement.ActionCosts.COST_INF;
+import static baritone.api.pathing.movement.ActionCosts.SPRINT_ONE_BLOCK_COST;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AStarPathFinderTest {
+
+    private static final int SIZE = 64;
+
+    private static final int FLOOR = 63;
+
+    /**
+     * Either search can keep a path up to {@link AbstractNodeCostSearch#MIN_IMPROVEMENT} worse than the one it passes up
+     */
+    private static final double SLACK = 0.1;
+
+    private static DimensionType dimension;
+
+    @BeforeClass
+    public static void bootstrap() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        dimension = new DimensionType(OptionalLong.empty(), true, false, false, true, 1, true, false, -64, 384, 384, BlockTags.INFINIBURN_OVERWORLD, BuiltinDimensionTypes.OVERWORLD_EFFECTS, 0, new DimensionType.MonsterSettings(false, true, ConstantInt.of(0), 0));
+    }
+
+    @Test
+    public void jumpPointsFindEquallyCheapPaths() {
+        Random random = new Random(1);
+        for (int round = 0; round < 40; round++) {
+            // mostly open floor, so that there's plenty to jump across, with walls scattered over it
+            boolean[] walls = walls(random, round % 2 == 0 ? 0.2 : 0.9);
+            int startX = random.nextInt(SIZE) - SIZE / 2;
+            int startZ = random.nextInt(SIZE) - SIZE / 2;
+            int goalX = random.nextInt(SIZE) - SIZE / 2;
+            int goalZ = random.nextInt(SIZE) - SIZE / 2;
+            walls[index(startX, startZ)] = false;
+            walls[index(goalX, goalZ)] = false;
+            double plain = cost(walls, startX, startZ, goalX, goalZ, false);
+            double jumping = cost(walls, startX, startZ, goalX, goalZ, true);
+            assertTrue("round " + round, plain < COST_INF);
+            assertEquals("round " + round, plain, jumping, SLACK);
+        }
+    }
+
+    /**
+     * Walls only ever go on odd rows and columns, so that the floor along the even ones always connects every open spot
+     */
+    private static boolean[] walls(Random random, double density) {
+        boolean[] walls = new boolean[SIZE * SIZE];
+        for (int x = 1; x < SIZE; x += 2) {
+            for (int z = 1; z < SIZE; z += 2) {
+                walls[x * SIZE + z] = random.nextDouble() < density;
+            }
+        }
+        return walls;
+    }
+
+    private static int index(int x, int z) {
+        return (x + SIZE / 2) * SIZE + z + SIZE / 2;
+    }
+
+    /**
+     * @return The cost of the path that the search found to the goal, or {@link baritone.api.pathing.movement.ActionCosts#COST_INF}
+     * if it didn't get there
+     */
+    private static double cost(boolean[] walls, int startX, int startZ, int goalX, int goalZ, boolean jumpPoints) {
+        Settings settings = new Settings();
+        settings.pathingJumpPoints.value = jumpPoints;
+        Floor floor = new Floor(settings, walls);
+        BetterBlockPos start = new BetterBlockPos(startX, FLOOR + 1, startZ);
+        AStarPathFinder finder = new AStarPathFinder(start, startX, FLOOR + 1, startZ, new Spot(goalX, goalZ), new Favoring(null, floor), floor);
+        finder.calculate0(10000, 10000);
+        return finder.getNodeAtPosition(goalX, FLOOR + 1, goalZ, BetterBlockPos.longHash(goalX, FLOOR + 1, goalZ)).cost;
+    }
+
+    /**
+     * Standing on one spot of the floor. The heuristic never overestimates, since nothing is cheaper than sprinting, so
+     * that the cheapest path is the one that both searches should find.
+     */
+    private static final class Spot implements Goal {
+
+        private final int x;
+        private final int z;
+
+        Spot(int x, int z) {
+            this.x = x;
+            this.z = z;
+        }
+
+        @Override
+        public boolean isInGoal(int x, int y, int z) {
+            return x == this.x && y == FLOOR + 1 && z == this.z;
+        }
+
+        @Override
+        public double heuristic(int x, int y, int z) {
+            int dx = Math.abs(x - this.x);
+            int dz = Math.abs(z - this.z);
+            int diagonal = Math.min(dx, dz);
+            int straight = Math.max(dx, dz) - diagonal;
+            return (diagonal * Math.sqrt(2) + straight) * SPRINT_ONE_BLOCK_COST;
+        }
+    }
+
+    /**
+     * A stone floor with walls two blocks high on it, inside a world border around it
+     */
+    private static final class Floor extends CalculationContext {
+
+        private final boolean[] walls;
+
+        Floor(Settings settings, boolean[] walls) {
+            super(settings, dimension, border());
+            this.walls = walls;
+        }
+
+        private static BetterWorldBorder border() {
+            WorldBorder border = new WorldBorder();
+            border.setCenter(0, 0);
+            border.setSize(SIZE);
+            return new BetterWorldBorder(border);
+        }
+
+        @Override
+        public BlockState get(int x, int y, int z) {
+            if (y == FLOOR) {
+                return Blocks.STONE.defaultBlockState();
+            }
+            if ((y == FLOOR + 1 || y == FLOOR + 2) && x >= -SIZE / 2 && x < SIZE / 2 && z >= -SIZE / 2 && z < SIZE / 2 && walls[index(x, z)]) {
+                return Blocks.STONE.defaultBlockState();
+            }
+            return Blocks.AIR.defaultBlockState();
+        }
+
+        @Override
+        public boolean isLoaded(int x, int z) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc.openset;
+
+import baritone.api.pathing.goals.Goal;
+import baritone.pathing.calc.PathNode;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class BucketOpenSetTest {
+
+    private static final Goal NO_GOAL = new Goal() {
+        @Override
+        public boolean isInGoal(int x, int y, int z) {
+            return false;
+        }
+
+        @Override
+        public double heuristic(int x, int y, int z) {
+            return 0;
+        }
+    };
+
+    /**
+     * More nodes at the same cost than one list can hold, like a big search across flat ground
+     */
+    @Test
+    public void crowdedBucket() {
+        IOpenSet openSet = new BucketOpenSet();
+        PathNode[] nodes = new PathNode[200_000];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new PathNode(i, 0, 0, NO_GOAL);
+            nodes[i].combinedCost = 100;
+            openSet.insert(nodes[i]);
+        }
+        assertEquals(nodes.length, openSet.size());
+        // both of these were added after the first list of the bucket filled up
+        PathNode last = nodes[nodes.length - 1];
+        last.combinedCost = 99;
+        openSet.update(last);
+        PathNode other = nodes[150_000];
+        other.combinedCost = 99.9;
+        openSet.update(other);
+        assertSame(last, openSet.removeLowest());
+        assertSame(other, openSet.removeLowest());
+        // taking the cheapest out of a crowded bucket has to stay cheap, or this takes minutes
+        int removed = 0;
+        while (!openSet.isEmpty()) {
+            assertEquals(100, openSet.removeLowest().combinedCost, 0);
+            removed++;
+        }
+        assertEquals(nodes.length - 2, removed);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc.openset;
+
+import baritone.pathing.calc.PathNode;
+
+/**
+ * Times replays of recorded A* searches against each open set. Not a unit test, run it with
+ * {@code ./gradlew openSetBenchmark}.
+ */
+public final class OpenSetBenchmark {
+
+    static final String[] TYPES = {"binary", "quaternary", "bucket"};
+
+    private static final int WARMUP_RUNS = 5;
+    private static final int RUNS = 20;
+
+    private OpenSetBenchmark() {}
+
+    public static void main(String[] args) {
+        run("random costs", OpenSetTrace.record(42, false));
+        run("flat ground", OpenSetTrace.record(42, true));
+    }
+
+    private static void run(String name, OpenSetTrace trace) {
+        System.out.println(name + ": " + trace.length() + " open set operations");
+        PathNode[][] nodes = new PathNode[RUNS][];
+        for (String type : TYPES) {
+            IOpenSet openSet = IOpenSet.create(type);
+            for (int run = 0; run < WARMUP_RUNS; run++) {
+                openSet.clear();
+                trace.replay(openSet, OpenSetTrace.freshNodes());
+            }
+            for (int run = 0; run < RUNS; run++) {
+                nodes[run] = OpenSetTrace.freshNodes(); // outside of the timed part
+            }
+            long best = Long.MAX_VALUE;
+            long total = 0;
+            for (int run = 0; run < RUNS; run++) {
+                openSet.clear();
+                long start = System.nanoTime();
+                trace.replay(openSet, nodes[run]);
+                long time = System.nanoTime() - start;
+                best = Math.min(best, time);
+                total += time;
+            }
+            System.out.println("  " + type + ": best " + best / 1000 + "us, mean " + total / RUNS / 1000 + "us");
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc.openset;
+
+import baritone.api.pathing.goals.Goal;
+import baritone.pathing.calc.PathNode;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The insert / update / removeLowest calls of an A* shaped search over a grid, recorded so they can be replayed
+ * against each open set
+ */
+final class OpenSetTrace {
+
+    private static final byte INSERT = 0;
+    private static final byte UPDATE = 1;
+    private static final byte REMOVE_LOWEST = 2;
+
+    private static final int SIZE_X = 128;
+    private static final int SIZE_Y = 8;
+    private static final int SIZE_Z = 128;
+
+    static final int NODES = SIZE_X * SIZE_Y * SIZE_Z;
+
+    private static final Goal NO_GOAL = new Goal() {
+        @Override
+        public boolean isInGoal(int x, int y, int z) {
+            return false;
+        }
+
+        @Override
+        public double heuristic(int x, int y, int z) {
+            return 0;
+        }
+    };
+
+    private byte[] kinds = new byte[1024];
+    private int[] targets = new int[1024];
+    private double[] costs = new double[1024];
+    private int length;
+
+    private OpenSetTrace() {}
+
+    private void record(byte kind, int node, double cost) {
+        if (length == kinds.length) {
+            kinds = Arrays.copyOf(kinds, length << 1);
+            targets = Arrays.copyOf(targets, length << 1);
+            costs = Arrays.copyOf(costs, length << 1);
+        }
+        kinds[length] = kind;
+        targets[length] = node;
+        costs[length] = cost;
+        length++;
+    }
+
+    int length() {
+        return length;
+    }
+
+    private static int index(int x, int y, int z) {
+        return (x * SIZE_Y + y) * SIZE_Z + z;
+    }
+
+    /**
+     * Runs A* from one corner of the grid towards the other. Each cell has a random cost to step into, roughly the
+     * range of ActionCosts, and the heuristic is scaled by a little noise so it's not always consistent, like the real
+     * ones with costHeuristic.
+     *
+     * @param flat Whether every cell costs the same to step into, with a weaker but consistent heuristic, which spreads the
+     *             search wide and crowds its nodes into very few distinct costs
+     */
+    static OpenSetTrace record(long seed, boolean flat) {
+        OpenSetTrace trace = new OpenSetTrace();
+        Random random = new Random(seed);
+        double[] stepCost = new double[NODES];
+        double[] noise = new double[NODES];
+        for (int i = 0; i < NODES; i++) {
+            stepCost[i] = flat ? 4.633 : 3.5 + random.nextDouble() * 6;
+            noise[i] = flat ? 0.5 : 0.9 + random.nextDouble() * 0.2;
+        }
+        PathNode[] nodes = new PathNode[NODES];
+        double[] cost = new double[NODES];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        IOpenSet openSet = new BinaryHeapOpenSet();
+
+        int start = index(0, 0, 0);
+        nodes[start] = new PathNode(0, 0, 0, NO_GOAL);
+        cost[start] = 0;
+        nodes[start].combinedCost = heuristic(0, 0, 0, noise[start]);
+        openSet.insert(nodes[start]);
+        trace.record(INSERT, start, nodes[start].combinedCost);
+
+        int[][] offsets = {{1, 0, 0}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}, {0, 0, 1}, {0, 0, -1}};
+        while (!openSet.isEmpty()) {
+            PathNode current = openSet.removeLowest();
+            trace.record(REMOVE_LOWEST, -1, current.combinedCost);
+            if (current.x == SIZE_X - 1 && current.z == SIZE_Z - 1) {
+                break;
+            }
+            double currentCost = cost[index(current.x, current.y, current.z)];
+            for (int[] offset : offsets) {
+                int x = current.x + offset[0];
+                int y = current.y + offset[1];
+                int z = current.z + offset[2];
+                if (x < 0 || y < 0 || z < 0 || x >= SIZE_X || y >= SIZE_Y || z >= SIZE_Z) {
+                    continue;
+                }
+                int i = index(x, y, z);
+                double tentative = currentCost + stepCost[i];
+                if (tentative >= cost[i]) {
+                    continue;
+                }
+                cost[i] = tentative;
+                if (nodes[i] == null) {
+                    nodes[i] = new PathNode(x, y, z, NO_GOAL);
+                }
+                PathNode neighbor = nodes[i];
+                neighbor.combinedCost = tentative + heuristic(x, y, z, noise[i]);
+                if (neighbor.isOpen()) {
+                    openSet.update(neighbor);
+                    trace.record(UPDATE, i, neighbor.combinedCost);
+                } else {
+                    openSet.insert(neighbor);
+                    trace.record(INSERT, i, neighbor.combinedCost);
+                }
+            }
+        }
+        return trace;
+    }
+
+    private static double heuristic(int x, int y, int z, double noise) {
+        return (SIZE_X - 1 - x + SIZE_Z - 1 - z + y) * 3.563 * 1.5 * noise;
+    }
+
+    /**
+     * @return A fresh node for every cell of the grid, none of them in an open set
+     */
+    static PathNode[] freshNodes() {
+        PathNode[] nodes = new PathNode[NODES];
+        for (int i = 0; i < NODES; i++) {
+            nodes[i] = new PathNode(0, 0, 0, NO_GOAL);
+        }
+        return nodes;
+    }
+
+    /**
+     * Replays the recorded calls against {@code openSet}
+     *
+     * @param nodes Nodes from {@link #freshNodes()}
+     * @throws AssertionError If the open set hands back a different cost than the recorded search got
+     */
+    void replay(IOpenSet openSet, PathNode[] nodes) {
+        for (int i = 0; i < length; i++) {
+            switch (kinds[i]) {
+                case INSERT: {
+                    PathNode node = nodes[targets[i]];
+                    node.combinedCost = costs[i];
+                    openSet.insert(node);
+                    break;
+                }
+                case UPDATE: {
+                    PathNode node = nodes[targets[i]];
+                    node.combinedCost = costs[i];
+                    openSet.update(node);
+                    break;
+                }
+                default: {
+                    double cost = openSet.removeLowest().combinedCost;
+                    if (cost != costs[i]) {
+                        throw new AssertionError("Call " + i + " removed cost " + cost + " instead of " + costs[i]);
+                    }
+                }
+            }
+        }
+    }
+}
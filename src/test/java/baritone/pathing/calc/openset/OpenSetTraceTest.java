@@ -0,0 +1,46 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.calc.openset;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays the open set calls of a recorded A* search against each open set, checking they hand back the same costs.
+ * {@link OpenSetBenchmark} times the same replays.
+ */
+public class OpenSetTraceTest {
+
+    private static void replayAll(OpenSetTrace trace) {
+        assertTrue(trace.length() > 10000);
+        for (String type : OpenSetBenchmark.TYPES) {
+            trace.replay(IOpenSet.create(type), OpenSetTrace.freshNodes());
+        }
+    }
+
+    @Test
+    public void replayRecordedSearch() {
+        replayAll(OpenSetTrace.record(42, false));
+    }
+
+    @Test
+    public void replayFlatSearch() {
+        replayAll(OpenSetTrace.record(42, true));
+    }
+}
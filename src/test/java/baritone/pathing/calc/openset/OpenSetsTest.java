@@ -30,23 +30,28 @@ import static org.junit.Assert.*;
 @RunWith(Parameterized.class)
 public class OpenSetsTest {
 
+    private final String type;
     private final int size;
 
-    public OpenSetsTest(int size) {
+    public OpenSetsTest(String type, int size) {
+        this.type = type;
         this.size = size;
     }
 
     @Parameterized.Parameters
     public static Collection<Object[]> data() {
         ArrayList<Object[]> testSizes = new ArrayList<>();
-        for (int size = 1; size < 20; size++) {
-            testSizes.add(new Object[]{size});
-        }
-        for (int size = 100; size <= 1000; size += 100) {
-            testSizes.add(new Object[]{size});
+        // each heap is tested on its own, since they all store their position in the same PathNode field
+        for (String type : new String[]{"binary", "quaternary", "bucket"}) {
+            for (int size = 1; size < 20; size++) {
+                testSizes.add(new Object[]{type, size});
+            }
+            for (int size = 100; size <= 1000; size += 100) {
+                testSizes.add(new Object[]{type, size});
+            }
+            testSizes.add(new Object[]{type, 5000});
+            testSizes.add(new Object[]{type, 10000});
         }
-        testSizes.add(new Object[]{5000});
-        testSizes.add(new Object[]{10000});
         return testSizes;
     }
 
@@ -75,10 +80,10 @@ public class OpenSetsTest {
 
     @Test
     public void testSize() {
-        System.out.println("Testing size " + size);
+        System.out.println("Testing " + type + " size " + size);
         // Include LinkedListOpenSet even though it's not performant because I absolutely trust that it behaves properly
         // I'm really testing the heap implementations against it as the ground truth
-        IOpenSet[] test = new IOpenSet[]{new BinaryHeapOpenSet(), new LinkedListOpenSet()};
+        IOpenSet[] test = new IOpenSet[]{IOpenSet.create(type), new LinkedListOpenSet()};
         for (IOpenSet set : test) {
             assertTrue(set.isEmpty());
         }
@@ -0,0 +1,87 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.pathing.goals;
+
+import baritone.api.pathing.goals.*;
+import baritone.api.utils.interfaces.IGoalRenderPos;
+import net.minecraft.core.BlockPos;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class GoalCompositeTest {
+
+    @Test
+    public void indexedIsInGoalMatchesMembers() {
+        Random random = new Random(1);
+        for (int spread : new int[]{4, 64, 100000}) {
+            Goal[] goals = new Goal[500];
+            for (int i = 0; i < goals.length; i++) {
+                int x = random.nextInt(2 * spread) - spread;
+                int y = random.nextInt(100) - 64;
+                int z = random.nextInt(2 * spread) - spread;
+                switch (random.nextInt(5)) {
+                    case 0:
+                        goals[i] = new GoalBlock(x, y, z);
+                        break;
+                    case 1:
+                        goals[i] = new GoalGetToBlock(new BlockPos(x, y, z));
+                        break;
+                    case 2:
+                        goals[i] = new GoalTwoBlocks(x, y, z);
+                        break;
+                    case 3:
+                        goals[i] = new GoalXZ(x, z);
+                        break;
+                    default:
+                        // not indexed, since it changes the shape
+                        goals[i] = new GoalGetToBlock(new BlockPos(x, y, z)) {
+                            @Override
+                            public boolean isInGoal(int x, int y, int z) {
+                                return y <= this.y && super.isInGoal(x, y, z);
+                            }
+                        };
+                }
+            }
+            GoalComposite composite = new GoalComposite(goals);
+            for (int i = 0; i < 20000; i++) {
+                int x;
+                int y;
+                int z;
+                Goal member = goals[random.nextInt(goals.length)];
+                if (member instanceof GoalXZ) {
+                    x = ((GoalXZ) member).getX() + random.nextInt(5) - 2;
+                    y = random.nextInt(100) - 64;
+                    z = ((GoalXZ) member).getZ() + random.nextInt(5) - 2;
+                } else {
+                    BlockPos pos = ((IGoalRenderPos) member).getGoalPos();
+                    x = pos.getX() + random.nextInt(5) - 2;
+                    y = pos.getY() + random.nextInt(5) - 2;
+                    z = pos.getZ() + random.nextInt(5) - 2;
+                }
+                boolean expected = false;
+                for (Goal goal : goals) {
+                    expected |= goal.isInGoal(x, y, z);
+                }
+                assertEquals(x + "," + y + "," + z, expected, composite.isInGoal(x, y, z));
+            }
+        }
+    }
+}